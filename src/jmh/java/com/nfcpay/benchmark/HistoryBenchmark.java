@@ -0,0 +1,67 @@
+package com.nfcpay.benchmark;
+
+import com.nfcpay.exception.NFCPayException;
+import com.nfcpay.model.Transaction;
+import com.nfcpay.model.TransactionFilter;
+import com.nfcpay.model.TransactionPage;
+import com.nfcpay.service.PaymentService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of transaction history reads: first page, a page deep in the history,
+ * the page-count query and the legacy load-everything call for comparison
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HistoryBenchmark {
+    private static final int PAGE_SIZE = 10;
+
+    @State(Scope.Benchmark)
+    public static class History {
+        PaymentService paymentService;
+        int userId;
+        TransactionPage.Cursor middleCursor;
+
+        @Setup(Level.Trial)
+        public void setUp(SeededDatabase db) throws NFCPayException {
+            paymentService = new PaymentService();
+            userId = Math.max(1, db.users / 2);
+
+            // Walk to the middle of this user's history once; the benchmark starts from there
+            int pages = db.transactionsPerUser / PAGE_SIZE / 2;
+            for (int i = 0; i < pages; i++) {
+                TransactionPage page = paymentService.getTransactionPage(userId, TransactionFilter.none(), middleCursor, PAGE_SIZE);
+                if (!page.hasMore()) {
+                    break;
+                }
+                middleCursor = page.getNextCursor();
+            }
+        }
+    }
+
+    @Benchmark
+    public TransactionPage firstPage(History history) throws NFCPayException {
+        return history.paymentService.getTransactionPage(history.userId, TransactionFilter.none(), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public TransactionPage middlePage(History history) throws NFCPayException {
+        return history.paymentService.getTransactionPage(history.userId, TransactionFilter.none(), history.middleCursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public int countTransactions(History history) throws NFCPayException {
+        return history.paymentService.countTransactions(history.userId, TransactionFilter.none());
+    }
+
+    @Benchmark
+    public List<Transaction> fullHistory(History history) throws NFCPayException {
+        return history.paymentService.getTransactionHistory(history.userId);
+    }
+}
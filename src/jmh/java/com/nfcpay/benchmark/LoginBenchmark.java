@@ -0,0 +1,43 @@
+package com.nfcpay.benchmark;
+
+import com.nfcpay.exception.NFCPayException;
+import com.nfcpay.model.User;
+import com.nfcpay.service.AuthService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login latency; dominated by the BCrypt work factor
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoginBenchmark {
+
+    // AuthService remembers the logged-in user, so each thread gets its own
+    @State(Scope.Thread)
+    public static class Auth {
+        AuthService authService;
+
+        // Taking the database state orders this after seeding
+        @Setup(Level.Trial)
+        public void setUp(SeededDatabase db) {
+            authService = new AuthService();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public User login(SeededDatabase db, Auth auth) throws NFCPayException {
+        return auth.authService.login(db.emailOf(db.nextUserId()), SeededDatabase.PASSWORD);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public User loginConcurrent(SeededDatabase db, Auth auth) throws NFCPayException {
+        return auth.authService.login(db.emailOf(db.nextUserId()), SeededDatabase.PASSWORD);
+    }
+}
@@ -0,0 +1,69 @@
+package com.nfcpay.benchmark;
+
+import com.nfcpay.dao.TransactionDAO;
+import com.nfcpay.exception.NFCPayException;
+import com.nfcpay.model.Transaction;
+import com.nfcpay.service.PaymentService;
+import com.nfcpay.service.WalletService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the payment path and the wallet operations it contends with
+ * Each invocation targets the next seeded user, so threads spread across wallets
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PaymentBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @State(Scope.Benchmark)
+    public static class Services {
+        PaymentService paymentService;
+        WalletService walletService;
+        TransactionDAO transactionDAO;
+
+        @Setup(Level.Trial)
+        public void setUp(SeededDatabase db) {
+            paymentService = new PaymentService();
+            walletService = new WalletService();
+            transactionDAO = new TransactionDAO();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Transaction processPayment(SeededDatabase db, Services services) throws NFCPayException {
+        return pay(db, services);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Transaction processPaymentConcurrent(SeededDatabase db, Services services) throws NFCPayException {
+        return pay(db, services);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void transferFunds(SeededDatabase db, Services services) throws NFCPayException {
+        int from = db.nextUserId();
+        int to = from % db.users + 1;
+        services.walletService.transferFunds(from, to, AMOUNT, "Benchmark transfer");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public BigDecimal getDailySpent(SeededDatabase db, Services services) {
+        return services.transactionDAO.getDailySpent(db.nextUserId());
+    }
+
+    private static Transaction pay(SeededDatabase db, Services services) throws NFCPayException {
+        int userId = db.nextUserId();
+        return services.paymentService.processPayment(userId, db.cardFor(userId), db.merchantFor(userId), AMOUNT, "Benchmark payment");
+    }
+}
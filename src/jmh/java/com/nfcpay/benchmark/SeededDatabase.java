@@ -0,0 +1,163 @@
+package com.nfcpay.benchmark;
+
+import com.nfcpay.dao.DatabaseConnection;
+import com.nfcpay.dao.SpendRollupDAO;
+import com.nfcpay.dao.WalletBalanceCache;
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded in-memory H2 database seeded before each trial
+ * Sizes are JMH parameters, e.g. -p users=10000 -p transactionsPerUser=1000
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+    public static final String DB_URL = "jdbc:h2:mem:nfcpay-bench;DB_CLOSE_DELAY=-1";
+    public static final String PASSWORD = "BenchPass123";
+    public static final BigDecimal STARTING_BALANCE = new BigDecimal("5000.00");
+
+    @Param("1000")
+    public int users;
+
+    @Param("2")
+    public int cardsPerUser;
+
+    @Param("50")
+    public int merchants;
+
+    @Param("100")
+    public int transactionsPerUser;
+
+    private final AtomicInteger nextUser = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        System.setProperty(DatabaseConnection.DB_URL_PROPERTY, DB_URL);
+
+        try (Connection conn = DriverManager.getConnection(DB_URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+
+        // The application creates its own tables and indexes
+        DatabaseConnection.getInstance().initializeSchema();
+
+        try (Connection conn = DriverManager.getConnection(DB_URL, "sa", "")) {
+            conn.setAutoCommit(false);
+            seedUsers(conn);
+            seedMerchants(conn);
+            seedTransactions(conn);
+            conn.commit();
+        }
+
+        // Rows are generated in id order, so user N owns cards (N-1)*cardsPerUser+1 ...
+        // Seeded rows bypass the DAOs, so derived state is rebuilt from the tables
+        new SpendRollupDAO().rebuild();
+        WalletBalanceCache.getInstance().clear();
+        nextUser.set(0);
+    }
+
+    private void seedUsers(Connection conn) throws SQLException {
+        // One hash for everyone; hashing per user would dominate seeding time
+        String passwordHash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt());
+
+        try (PreparedStatement userStmt = conn.prepareStatement(
+                 "INSERT INTO users (full_name, email, password_hash) VALUES (?, ?, ?)");
+             PreparedStatement walletStmt = conn.prepareStatement(
+                 "INSERT INTO wallets (user_id, balance, currency) VALUES (?, ?, 'USD')");
+             PreparedStatement cardStmt = conn.prepareStatement(
+                 "INSERT INTO cards (user_id, card_uid, card_name, card_type) VALUES (?, ?, ?, ?)")) {
+
+            for (int userId = 1; userId <= users; userId++) {
+                userStmt.setString(1, "Bench User " + userId);
+                userStmt.setString(2, emailOf(userId));
+                userStmt.setString(3, passwordHash);
+                userStmt.addBatch();
+
+                walletStmt.setInt(1, userId);
+                walletStmt.setBigDecimal(2, STARTING_BALANCE);
+                walletStmt.addBatch();
+
+                for (int c = 0; c < cardsPerUser; c++) {
+                    cardStmt.setInt(1, userId);
+                    cardStmt.setString(2, String.format("BENCH%010d", (userId - 1) * cardsPerUser + c + 1));
+                    cardStmt.setString(3, "Bench Card " + (c + 1));
+                    cardStmt.setString(4, c % 2 == 0 ? "VIRTUAL" : "PHYSICAL");
+                    cardStmt.addBatch();
+                }
+            }
+            userStmt.executeBatch();
+            walletStmt.executeBatch();
+            cardStmt.executeBatch();
+        }
+    }
+
+    private void seedMerchants(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                 "INSERT INTO merchants (merchant_name, merchant_code, category) VALUES (?, ?, ?)")) {
+            for (int m = 1; m <= merchants; m++) {
+                pstmt.setString(1, "Bench Merchant " + m);
+                pstmt.setString(2, String.format("BM%05d", m));
+                pstmt.setString(3, "General");
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // History spread over the last 60 days, a couple of rows per user per day
+    private void seedTransactions(Connection conn) throws SQLException {
+        String sql = "INSERT INTO transactions (user_id, card_id, merchant_id, amount, transaction_type, status, " +
+                     "reference_code, description, created_at, processed_at) VALUES (?, ?, ?, ?, 'PAYMENT', 'SUCCESS', ?, ?, ?, ?)";
+        LocalDateTime now = LocalDateTime.now();
+        long spanMinutes = 60L * 24 * 60;
+        long reference = 0;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int userId = 1; userId <= users; userId++) {
+                for (int t = 0; t < transactionsPerUser; t++) {
+                    LocalDateTime createdAt = now.minusDays(1).minusMinutes((t + 1) * spanMinutes / (transactionsPerUser + 1));
+                    Timestamp ts = Timestamp.valueOf(createdAt);
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, cardFor(userId));
+                    pstmt.setInt(3, merchantFor(userId + t));
+                    pstmt.setBigDecimal(4, BigDecimal.valueOf(100 + (t * 37L) % 4900, 2));
+                    pstmt.setString(5, String.format("TXNSEED%013d", ++reference));
+                    pstmt.setString(6, "Seeded payment " + t);
+                    pstmt.setTimestamp(7, ts);
+                    pstmt.setTimestamp(8, ts);
+                    pstmt.addBatch();
+
+                    if (reference % 5_000 == 0) {
+                        pstmt.executeBatch();
+                    }
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Round-robin over all seeded users so per-user limits are never reached during a run
+     */
+    public int nextUserId() {
+        return 1 + Math.floorMod(nextUser.getAndIncrement(), users);
+    }
+
+    public int cardFor(int userId) {
+        return (userId - 1) * cardsPerUser + 1;
+    }
+
+    public int merchantFor(int key) {
+        return 1 + Math.floorMod(key, merchants);
+    }
+
+    public String emailOf(int userId) {
+        return "bench" + userId + "@nfcpay.test";
+    }
+}
@@ -1,8 +1,10 @@
 package com.nfcpay.controller;
 
 import com.nfcpay.service.AuthService;
+import com.nfcpay.service.ServiceExecutor;
 import com.nfcpay.model.User;
 import com.nfcpay.exception.NFCPayException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Authentication Controller
@@ -10,9 +12,11 @@ import com.nfcpay.exception.NFCPayException;
  */
 public class AuthController {
     private final AuthService authService;
+    private final ServiceExecutor serviceExecutor;
     
     public AuthController() {
         this.authService = new AuthService();
+        this.serviceExecutor = ServiceExecutor.getInstance();
     }
     
     public User registerUser(String fullName, String email, String password) throws NFCPayException {
@@ -23,6 +27,10 @@ public class AuthController {
         return authService.login(email, password);
     }
     
+    public CompletableFuture<User> loginAsync(String email, String password) {
+        return serviceExecutor.submit(() -> authService.login(email, password));
+    }
+    
     public void logout() {
         authService.logout();
     }
@@ -1,11 +1,14 @@
 package com.nfcpay.controller;
 
 import com.nfcpay.service.CardService;
+import com.nfcpay.service.ServiceExecutor;
 import com.nfcpay.model.Card;
+import com.nfcpay.model.CardTap;
 import com.nfcpay.model.enums.CardType;
 import com.nfcpay.exception.NFCPayException;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Card Management Controller
@@ -13,9 +16,11 @@ import java.util.List;
  */
 public class CardController {
     private final CardService cardService;
+    private final ServiceExecutor serviceExecutor;
     
     public CardController() {
         this.cardService = new CardService();
+        this.serviceExecutor = ServiceExecutor.getInstance();
     }
     
     public Card addCard(int userId, String cardName, CardType cardType) throws NFCPayException {
@@ -46,6 +51,10 @@ public class CardController {
         return cardService.getUserCards(userId);
     }
     
+    public CompletableFuture<List<Card>> getUserCardsAsync(int userId) {
+        return serviceExecutor.submit(() -> cardService.getUserCards(userId));
+    }
+    
     public List<Card> getActiveCards(int userId) throws NFCPayException {
         return cardService.getActiveCards(userId);
     }
@@ -58,6 +67,10 @@ public class CardController {
         return cardService.canAddMoreCards(userId);
     }
     
+    public CardTap resolveTap(String cardUid) throws NFCPayException {
+        return cardService.resolveTap(cardUid);
+    }
+    
     public void validateCardForPayment(int cardId, int userId) throws NFCPayException {
         cardService.validateCardForPayment(cardId, userId);
     }
@@ -89,6 +89,9 @@ public class MainController {
             // Clear session
             com.nfcpay.util.Session.logout();
             
+            // Release pooled database connections
+            com.nfcpay.dao.DatabaseConnection.getInstance().shutdown();
+            
             System.out.println("✅ NFC Payment System shutdown completed");
         } catch (Exception e) {
             System.err.println("⚠️ Warning during shutdown: " + e.getMessage());
@@ -1,12 +1,22 @@
 package com.nfcpay.controller;
 
+import com.nfcpay.service.ExportService;
 import com.nfcpay.service.PaymentService;
+import com.nfcpay.service.ServiceExecutor;
+import com.nfcpay.model.DashboardSummary;
+import com.nfcpay.model.Merchant;
 import com.nfcpay.model.Transaction;
+import com.nfcpay.model.TransactionFilter;
+import com.nfcpay.model.TransactionPage;
 import com.nfcpay.model.enums.TransactionType;
 import com.nfcpay.exception.NFCPayException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Payment Processing Controller
@@ -14,19 +24,60 @@ import java.util.List;
  */
 public class PaymentController {
     private final PaymentService paymentService;
+    private final ExportService exportService;
+    private final ServiceExecutor serviceExecutor;
     
     public PaymentController() {
         this.paymentService = new PaymentService();
+        this.exportService = new ExportService();
+        this.serviceExecutor = ServiceExecutor.getInstance();
     }
     
     public Transaction processPayment(int userId, int cardId, int merchantId, BigDecimal amount, String description) throws NFCPayException {
         return paymentService.processPayment(userId, cardId, merchantId, amount, description);
     }
     
+    public Transaction processPayment(int userId, int cardId, int merchantId, BigDecimal amount, String description, String idempotencyKey) throws NFCPayException {
+        return paymentService.processPayment(userId, cardId, merchantId, amount, description, idempotencyKey);
+    }
+    
+    public CompletableFuture<Transaction> processPaymentAsync(int userId, int cardId, int merchantId, BigDecimal amount, String description, String idempotencyKey) {
+        return serviceExecutor.submit(() -> paymentService.processPayment(userId, cardId, merchantId, amount, description, idempotencyKey));
+    }
+    
     public List<Transaction> getTransactionHistory(int userId) throws NFCPayException {
         return paymentService.getTransactionHistory(userId);
     }
     
+    public CompletableFuture<List<Transaction>> getTransactionHistoryAsync(int userId) {
+        return serviceExecutor.submit(() -> paymentService.getTransactionHistory(userId));
+    }
+    
+    public TransactionPage getTransactionPage(int userId, TransactionFilter filter, TransactionPage.Cursor after, int pageSize) throws NFCPayException {
+        return paymentService.getTransactionPage(userId, filter, after, pageSize);
+    }
+    
+    public DashboardSummary getDashboardSummary(int userId) throws NFCPayException {
+        return paymentService.getDashboardSummary(userId);
+    }
+    
+    public CompletableFuture<DashboardSummary> getDashboardSummaryAsync(int userId) {
+        return serviceExecutor.submit(() -> paymentService.getDashboardSummary(userId));
+    }
+    
+    public Map<String, BigDecimal> getMonthlySpendByCategory(int userId, YearMonth month) throws NFCPayException {
+        return paymentService.getMonthlySpendByCategory(userId, month);
+    }
+    
+    public int countTransactions(int userId, TransactionFilter filter) throws NFCPayException {
+        return paymentService.countTransactions(userId, filter);
+    }
+    
+    public long exportTransactions(int userId, TransactionFilter filter, ExportService.Format format, Path target,
+                                   ExportService.ProgressListener listener) throws NFCPayException {
+        return exportService.exportTransactions(userId, filter, format, target, listener);
+    }
+    
     public Transaction getTransaction(int transactionId, int userId) throws NFCPayException {
         return paymentService.getTransaction(transactionId, userId);
     }
@@ -44,4 +95,8 @@ public class PaymentController {
     public List<com.nfcpay.model.Merchant> getActiveMerchants() throws NFCPayException {
         return paymentService.getActiveMerchants();
     }
+    
+    public CompletableFuture<List<Merchant>> getActiveMerchantsAsync() {
+        return serviceExecutor.submit(paymentService::getActiveMerchants);
+    }
 }
\ No newline at end of file
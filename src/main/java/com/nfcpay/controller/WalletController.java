@@ -1,10 +1,12 @@
 package com.nfcpay.controller;
 
+import com.nfcpay.service.ServiceExecutor;
 import com.nfcpay.service.WalletService;
 import com.nfcpay.model.Wallet;
 import com.nfcpay.model.enums.Currency;
 import com.nfcpay.exception.NFCPayException;
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Wallet Management Controller
@@ -12,15 +14,21 @@ import java.math.BigDecimal;
  */
 public class WalletController {
     private final WalletService walletService;
+    private final ServiceExecutor serviceExecutor;
     
     public WalletController() {
         this.walletService = new WalletService();
+        this.serviceExecutor = ServiceExecutor.getInstance();
     }
     
     public Wallet getWallet(int userId) throws NFCPayException {
         return walletService.getWallet(userId);
     }
     
+    public CompletableFuture<Wallet> getWalletAsync(int userId) {
+        return serviceExecutor.submit(() -> walletService.getWallet(userId));
+    }
+    
     public void addFunds(int userId, BigDecimal amount, String source) throws NFCPayException {
         walletService.addFunds(userId, amount, source);
     }
@@ -1,6 +1,9 @@
 package com.nfcpay.dao;
 
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
 import com.nfcpay.model.Card;
+import com.nfcpay.model.CardTap;
 import com.nfcpay.model.enums.CardType;
 import java.math.BigDecimal;
 import java.sql.*;
@@ -13,14 +16,56 @@ import java.util.List;
  * Uses PreparedStatements to prevent SQL injection
  */
 public class CardDAO {
+    private static final Timer CREATE_CARD = MetricsRegistry.timer("dao.CardDAO.createCard");
+    private static final Timer GET_CARD_BY_ID = MetricsRegistry.timer("dao.CardDAO.getCardById");
+    private static final Timer GET_CARD_STATUS = MetricsRegistry.timer("dao.CardDAO.getCardStatus");
+    private static final Timer GET_CARD_STATUS_BY_UID = MetricsRegistry.timer("dao.CardDAO.getCardStatusByUid");
+    private static final Timer GET_CARDS_BY_USER_ID = MetricsRegistry.timer("dao.CardDAO.getCardsByUserId");
+    private static final Timer GET_ACTIVE_CARDS_BY_USER_ID = MetricsRegistry.timer("dao.CardDAO.getActiveCardsByUserId");
+    private static final Timer UPDATE_CARD = MetricsRegistry.timer("dao.CardDAO.updateCard");
+    private static final Timer ACTIVATE_CARD = MetricsRegistry.timer("dao.CardDAO.activateCard");
+    private static final Timer DEACTIVATE_CARD = MetricsRegistry.timer("dao.CardDAO.deactivateCard");
+    private static final Timer DELETE_CARD = MetricsRegistry.timer("dao.CardDAO.deleteCard");
+    private static final Timer CARD_UID_EXISTS = MetricsRegistry.timer("dao.CardDAO.cardUidExists");
+    private static final Timer CARD_BELONGS_TO_USER = MetricsRegistry.timer("dao.CardDAO.cardBelongsToUser");
+    private static final Timer GET_ACTIVE_CARD_COUNT = MetricsRegistry.timer("dao.CardDAO.getActiveCardCount");
+    private static final Timer CAN_ADD_MORE_CARDS = MetricsRegistry.timer("dao.CardDAO.canAddMoreCards");
+    private static final Timer CHECK_NEW_CARD = MetricsRegistry.timer("dao.CardDAO.checkNewCard");
+    
+    // Columns the full-row mapper reads
+    static final String COLUMNS = "card_id, user_id, card_uid, card_name, card_type, balance, is_active, created_at";
+    
     private DatabaseConnection dbConnection;
     
+    /**
+     * Facts card creation is validated against, read in one statement
+     */
+    public static class NewCardCheck {
+        private final boolean userActive;
+        private final int activeCardCount;
+        private final boolean nameTaken;
+        
+        NewCardCheck(boolean userActive, int activeCardCount, boolean nameTaken) {
+            this.userActive = userActive;
+            this.activeCardCount = activeCardCount;
+            this.nameTaken = nameTaken;
+        }
+        
+        public boolean isUserActive() { return userActive; }
+        public int getActiveCardCount() { return activeCardCount; }
+        public boolean isNameTaken() { return nameTaken; }
+    }
+    
     public CardDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
     }
     
     // CREATE - Add new card
     public boolean createCard(Card card) {
+        return CREATE_CARD.time(() -> doCreateCard(card));
+    }
+    
+    private boolean doCreateCard(Card card) {
         String sql = "INSERT INTO cards (user_id, card_uid, card_name, card_type, balance, is_active, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = dbConnection.getConnection();
@@ -41,9 +86,11 @@ public class CardDAO {
                 if (generatedKeys.next()) {
                     card.setCardId(generatedKeys.getInt(1));
                 }
+                CardUidIndex.getInstance().put(card);
                 return true;
             }
         } catch (SQLException e) {
+            CREATE_CARD.recordError();
             System.err.println("Error creating card: " + e.getMessage());
         }
         return false;
@@ -51,7 +98,11 @@ public class CardDAO {
     
     // READ - Get card by ID
     public Card getCardById(int cardId) {
-        String sql = "SELECT * FROM cards WHERE card_id = ?";
+        return GET_CARD_BY_ID.time(() -> doGetCardById(cardId));
+    }
+    
+    private Card doGetCardById(int cardId) {
+        String sql = "SELECT " + COLUMNS + " FROM cards WHERE card_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -63,16 +114,83 @@ public class CardDAO {
                 return mapResultSetToCard(rs);
             }
         } catch (SQLException e) {
+            GET_CARD_BY_ID.recordError();
             System.err.println("Error getting card by ID: " + e.getMessage());
         }
         return null;
     }
     
-
+    // READ - Owner and active flag of a card without the rest of the row (status probe)
+    public CardTap getCardStatus(int cardId) {
+        long start = GET_CARD_STATUS.start();
+        try {
+            return doGetCardStatus(cardId);
+        } catch (Exception e) {
+            GET_CARD_STATUS.recordError(e);
+            throw e;
+        } finally {
+            GET_CARD_STATUS.stop(start);
+        }
+    }
+    
+    private CardTap doGetCardStatus(int cardId) {
+        String sql = "SELECT card_uid, user_id, is_active FROM cards WHERE card_id = ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, cardId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return new CardTap(rs.getString(1), cardId, rs.getInt(2), rs.getBoolean(3));
+            }
+        } catch (SQLException e) {
+            GET_CARD_STATUS.recordError();
+            System.err.println("Error getting card status: " + e.getMessage());
+        }
+        return null;
+    }
+    
+    // READ - Card, owner and active flag for an NFC UID (index miss fallback)
+    public CardTap getCardStatusByUid(String cardUid) {
+        long start = GET_CARD_STATUS_BY_UID.start();
+        try {
+            return doGetCardStatusByUid(cardUid);
+        } catch (Exception e) {
+            GET_CARD_STATUS_BY_UID.recordError(e);
+            throw e;
+        } finally {
+            GET_CARD_STATUS_BY_UID.stop(start);
+        }
+    }
+    
+    private CardTap doGetCardStatusByUid(String cardUid) {
+        String sql = "SELECT card_id, user_id, is_active FROM cards WHERE card_uid = ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, cardUid);
+            ResultSet rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return new CardTap(cardUid, rs.getInt(1), rs.getInt(2), rs.getBoolean(3));
+            }
+        } catch (SQLException e) {
+            GET_CARD_STATUS_BY_UID.recordError();
+            System.err.println("Error getting card status by UID: " + e.getMessage());
+        }
+        return null;
+    }
     
     // READ - Get all cards for user
     public List<Card> getCardsByUserId(int userId) {
-        String sql = "SELECT * FROM cards WHERE user_id = ? ORDER BY created_at DESC";
+        return GET_CARDS_BY_USER_ID.time(() -> doGetCardsByUserId(userId));
+    }
+    
+    private List<Card> doGetCardsByUserId(int userId) {
+        String sql = "SELECT " + COLUMNS + " FROM cards WHERE user_id = ? ORDER BY created_at DESC";
         List<Card> cards = new ArrayList<>();
         
         try (Connection conn = dbConnection.getConnection();
@@ -85,6 +203,7 @@ public class CardDAO {
                 cards.add(mapResultSetToCard(rs));
             }
         } catch (SQLException e) {
+            GET_CARDS_BY_USER_ID.recordError();
             System.err.println("Error getting cards by user ID: " + e.getMessage());
         }
         return cards;
@@ -92,7 +211,11 @@ public class CardDAO {
     
     // READ - Get active cards for user
     public List<Card> getActiveCardsByUserId(int userId) {
-        String sql = "SELECT * FROM cards WHERE user_id = ? AND is_active = true ORDER BY created_at DESC";
+        return GET_ACTIVE_CARDS_BY_USER_ID.time(() -> doGetActiveCardsByUserId(userId));
+    }
+    
+    private List<Card> doGetActiveCardsByUserId(int userId) {
+        String sql = "SELECT " + COLUMNS + " FROM cards WHERE user_id = ? AND is_active = true ORDER BY created_at DESC";
         List<Card> cards = new ArrayList<>();
         
         try (Connection conn = dbConnection.getConnection();
@@ -105,6 +228,7 @@ public class CardDAO {
                 cards.add(mapResultSetToCard(rs));
             }
         } catch (SQLException e) {
+            GET_ACTIVE_CARDS_BY_USER_ID.recordError();
             System.err.println("Error getting active cards: " + e.getMessage());
         }
         return cards;
@@ -112,6 +236,10 @@ public class CardDAO {
     
     // UPDATE - Update card information
     public boolean updateCard(Card card) {
+        return UPDATE_CARD.time(() -> doUpdateCard(card));
+    }
+    
+    private boolean doUpdateCard(Card card) {
         String sql = "UPDATE cards SET card_name = ?, card_type = ? WHERE card_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
@@ -123,6 +251,7 @@ public class CardDAO {
             
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            UPDATE_CARD.recordError();
             System.err.println("Error updating card: " + e.getMessage());
         }
         return false;
@@ -130,14 +259,22 @@ public class CardDAO {
     
     // UPDATE - Activate card
     public boolean activateCard(int cardId) {
+        return ACTIVATE_CARD.time(() -> doActivateCard(cardId));
+    }
+    
+    private boolean doActivateCard(int cardId) {
         String sql = "UPDATE cards SET is_active = true WHERE card_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, cardId);
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() > 0) {
+                CardUidIndex.getInstance().setActive(cardId, true);
+                return true;
+            }
         } catch (SQLException e) {
+            ACTIVATE_CARD.recordError();
             System.err.println("Error activating card: " + e.getMessage());
         }
         return false;
@@ -145,14 +282,22 @@ public class CardDAO {
     
     // UPDATE - Deactivate card
     public boolean deactivateCard(int cardId) {
+        return DEACTIVATE_CARD.time(() -> doDeactivateCard(cardId));
+    }
+    
+    private boolean doDeactivateCard(int cardId) {
         String sql = "UPDATE cards SET is_active = false WHERE card_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, cardId);
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() > 0) {
+                CardUidIndex.getInstance().setActive(cardId, false);
+                return true;
+            }
         } catch (SQLException e) {
+            DEACTIVATE_CARD.recordError();
             System.err.println("Error deactivating card: " + e.getMessage());
         }
         return false;
@@ -160,14 +305,22 @@ public class CardDAO {
     
     // DELETE - Delete card (hard delete)
     public boolean deleteCard(int cardId) {
+        return DELETE_CARD.time(() -> doDeleteCard(cardId));
+    }
+    
+    private boolean doDeleteCard(int cardId) {
         String deleteSql = "DELETE FROM cards WHERE card_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(deleteSql)) {
             
             pstmt.setInt(1, cardId);
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() > 0) {
+                CardUidIndex.getInstance().remove(cardId);
+                return true;
+            }
         } catch (SQLException e) {
+            DELETE_CARD.recordError();
             System.err.println("Error deleting card: " + e.getMessage());
         }
         return false;
@@ -194,6 +347,10 @@ public class CardDAO {
     
     // VALIDATION - Check if card UID exists
     public boolean cardUidExists(String cardUid) {
+        return CARD_UID_EXISTS.time(() -> doCardUidExists(cardUid));
+    }
+    
+    private boolean doCardUidExists(String cardUid) {
         String sql = "SELECT COUNT(*) FROM cards WHERE card_uid = ?";
         
         try (Connection conn = dbConnection.getConnection();
@@ -206,6 +363,7 @@ public class CardDAO {
                 return rs.getInt(1) > 0;
             }
         } catch (SQLException e) {
+            CARD_UID_EXISTS.recordError();
             System.err.println("Error checking card UID existence: " + e.getMessage());
         }
         return false;
@@ -213,6 +371,10 @@ public class CardDAO {
     
     // VALIDATION - Check if card belongs to user
     public boolean cardBelongsToUser(int cardId, int userId) {
+        return CARD_BELONGS_TO_USER.time(() -> doCardBelongsToUser(cardId, userId));
+    }
+    
+    private boolean doCardBelongsToUser(int cardId, int userId) {
         String sql = "SELECT COUNT(*) FROM cards WHERE card_id = ? AND user_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
@@ -226,6 +388,7 @@ public class CardDAO {
                 return rs.getInt(1) > 0;
             }
         } catch (SQLException e) {
+            CARD_BELONGS_TO_USER.recordError();
             System.err.println("Error checking card ownership: " + e.getMessage());
         }
         return false;
@@ -233,6 +396,10 @@ public class CardDAO {
     
     // VALIDATION - Get active card count for user
     public int getActiveCardCount(int userId) {
+        return GET_ACTIVE_CARD_COUNT.time(() -> doGetActiveCardCount(userId));
+    }
+    
+    private int doGetActiveCardCount(int userId) {
         String sql = "SELECT COUNT(*) FROM cards WHERE user_id = ? AND is_active = true";
         
         try (Connection conn = dbConnection.getConnection();
@@ -245,13 +412,48 @@ public class CardDAO {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
+            GET_ACTIVE_CARD_COUNT.recordError();
             System.err.println("Error getting active card count: " + e.getMessage());
         }
         return 0;
     }
     
+    // VALIDATION - User status, active card count and name collision (case-insensitive) for a new card
+    public NewCardCheck checkNewCard(int userId, String cardName) {
+        return CHECK_NEW_CARD.time(() -> doCheckNewCard(userId, cardName));
+    }
+    
+    private NewCardCheck doCheckNewCard(int userId, String cardName) {
+        String sql = "SELECT " +
+                     "(SELECT is_active FROM users WHERE user_id = ?), " +
+                     "(SELECT COUNT(*) FROM cards WHERE user_id = ? AND is_active = true), " +
+                     "EXISTS (SELECT 1 FROM cards WHERE user_id = ? AND LOWER(card_name) = LOWER(?))";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, userId);
+            pstmt.setInt(3, userId);
+            pstmt.setString(4, cardName);
+            ResultSet rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return new NewCardCheck(rs.getBoolean(1), rs.getInt(2), rs.getBoolean(3));
+            }
+        } catch (SQLException e) {
+            CHECK_NEW_CARD.recordError();
+            System.err.println("Error checking new card: " + e.getMessage());
+        }
+        return null;
+    }
+    
     // VALIDATION - Check if user can add more cards (max 5)
     public boolean canAddMoreCards(int userId) {
+        return CAN_ADD_MORE_CARDS.time(() -> doCanAddMoreCards(userId));
+    }
+    
+    private boolean doCanAddMoreCards(int userId) {
         return getActiveCardCount(userId) < 5;
     }
     
@@ -0,0 +1,138 @@
+package com.nfcpay.dao;
+
+import java.sql.*;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Allocates card UIDs that are unique by construction
+ * A UID is the prefix digit, a 14-digit serial and a Luhn check digit (16 digits).
+ * Serials are handed out from blocks reserved with one card_uid_seq call, so
+ * processes sharing the database never overlap and no uniqueness probe is needed.
+ * Older random UIDs in the same format are skipped using a snapshot taken at
+ * startup; callers still retry with a fresh UID if an insert hits one the
+ * snapshot missed.
+ */
+public class CardUidAllocator {
+    private static CardUidAllocator instance;
+
+    static final String CREATE_SEQUENCE_SQL = "CREATE SEQUENCE IF NOT EXISTS card_uid_seq START WITH 1";
+
+    private static final String PREFIX = "9";
+    private static final int SERIAL_DIGITS = 14;
+    private static final long BLOCK_SIZE = 1000;
+    private static final long MAX_SERIAL = 99_999_999_999_999L;
+
+    private final DatabaseConnection dbConnection;
+    // Randomly generated UIDs from before the allocator that happen to fall in its format
+    private final Set<String> legacyUids;
+    private long nextSerial;
+    private long blockEnd;
+
+    // Package-private so tests can run several allocators against one database, as separate JVMs would
+    CardUidAllocator() {
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.legacyUids = loadLegacyUids();
+    }
+
+    /**
+     * The shared allocator; throws IllegalStateException if existing UIDs cannot be read
+     */
+    public static synchronized CardUidAllocator getInstance() {
+        if (instance == null) {
+            instance = new CardUidAllocator();
+        }
+        return instance;
+    }
+
+    /**
+     * Next unused card UID, or null if no serial block could be reserved
+     */
+    public synchronized String allocate() {
+        while (true) {
+            if (nextSerial >= blockEnd && !reserveBlock()) {
+                return null;
+            }
+            String uid = format(nextSerial++);
+            if (!legacyUids.contains(uid)) {
+                return uid;
+            }
+        }
+    }
+
+    public static boolean isValidLuhn(String number) {
+        if (number == null || number.length() < 2 || !number.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        int last = number.length() - 1;
+        return luhnCheckDigit(number.substring(0, last)) == number.charAt(last) - '0';
+    }
+
+    // Digit that makes payload + digit pass the Luhn check
+    static int luhnCheckDigit(String payload) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = payload.length() - 1; i >= 0; i--) {
+            int digit = payload.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static String format(long serial) {
+        String payload = PREFIX + String.format("%0" + SERIAL_DIGITS + "d", serial);
+        return payload + luhnCheckDigit(payload);
+    }
+
+    // Block n covers serials [n * BLOCK_SIZE, (n + 1) * BLOCK_SIZE)
+    private boolean reserveBlock() {
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT NEXT VALUE FOR card_uid_seq")) {
+
+            rs.next();
+            long block = rs.getLong(1);
+            if (block > MAX_SERIAL / BLOCK_SIZE) {
+                System.err.println("Card UID serial space exhausted");
+                return false;
+            }
+            nextSerial = block * BLOCK_SIZE;
+            blockEnd = nextSerial + BLOCK_SIZE;
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error reserving card UID block: " + e.getMessage());
+        }
+        return false;
+    }
+
+    // Without the snapshot, allocation could hand out UIDs that are already taken, so an error is fatal
+    private Set<String> loadLegacyUids() {
+        Set<String> uids = new HashSet<>();
+        String sql = "SELECT card_uid FROM cards WHERE card_uid LIKE ? AND LENGTH(card_uid) = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, PREFIX + "%");
+            pstmt.setInt(2, SERIAL_DIGITS + 2);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String uid = rs.getString(1);
+                    if (isValidLuhn(uid)) {
+                        uids.add(uid);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error loading existing card UIDs: " + e.getMessage(), e);
+        }
+        return uids;
+    }
+}
@@ -0,0 +1,109 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.model.Card;
+import com.nfcpay.model.CardTap;
+import java.sql.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory card_uid index for resolving NFC taps
+ * Loaded from the cards table on first use, then kept in step by this
+ * process's CardDAO writes (create, activate, deactivate, delete). A UID the
+ * index does not know is looked up once in the database and cached, so cards
+ * created by another process are found. Changes made elsewhere to a cached
+ * card are not seen until restart, which is why CardTap.isActive() is advisory:
+ * PaymentDAO re-reads the card's owner and active flag inside the payment.
+ */
+public class CardUidIndex {
+    private static CardUidIndex instance;
+
+    private final DatabaseConnection dbConnection;
+    private final CardDAO cardDAO;
+    private final ConcurrentHashMap<String, CardTap> byUid = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, String> uidById = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    private CardUidIndex() {
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.cardDAO = new CardDAO();
+        load();
+    }
+
+    public static synchronized CardUidIndex getInstance() {
+        if (instance == null) {
+            instance = new CardUidIndex();
+            MetricsRegistry.gauge("cardUidIndex.size", instance::size);
+        }
+        return instance;
+    }
+
+    /**
+     * Card the UID belongs to, or null if no card has it
+     */
+    public CardTap resolve(String cardUid) {
+        if (!loaded) {
+            load();
+        }
+        CardTap tap = byUid.get(cardUid);
+        if (tap == null) {
+            // Unknown here, but another process may have created it; misses are not cached
+            tap = cardDAO.getCardStatusByUid(cardUid);
+            if (tap != null) {
+                byUid.putIfAbsent(cardUid, tap);
+                uidById.putIfAbsent(tap.getCardId(), cardUid);
+            }
+        }
+        return tap;
+    }
+
+    public boolean contains(String cardUid) {
+        return resolve(cardUid) != null;
+    }
+
+    // Called by CardDAO after each committed write
+    void put(Card card) {
+        byUid.put(card.getCardUid(), new CardTap(card.getCardUid(), card.getCardId(), card.getUserId(), card.isActive()));
+        uidById.put(card.getCardId(), card.getCardUid());
+    }
+
+    void setActive(int cardId, boolean active) {
+        String cardUid = uidById.get(cardId);
+        if (cardUid != null) {
+            byUid.computeIfPresent(cardUid, (uid, tap) -> tap.withActive(active));
+        }
+    }
+
+    void remove(int cardId) {
+        String cardUid = uidById.remove(cardId);
+        if (cardUid != null) {
+            byUid.remove(cardUid);
+        }
+    }
+
+    public int size() {
+        return byUid.size();
+    }
+
+    // Reads only the four columns the index needs; stays unloaded (and retries on next use) if the read fails
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        String sql = "SELECT card_uid, card_id, user_id, is_active FROM cards";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                CardTap tap = new CardTap(rs.getString(1), rs.getInt(2), rs.getInt(3), rs.getBoolean(4));
+                byUid.putIfAbsent(tap.getCardUid(), tap);
+                uidById.putIfAbsent(tap.getCardId(), tap.getCardUid());
+            }
+            loaded = true;
+        } catch (SQLException e) {
+            System.err.println("Error loading card UID index: " + e.getMessage());
+        }
+    }
+}
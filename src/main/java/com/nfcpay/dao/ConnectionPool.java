@@ -0,0 +1,578 @@
+package com.nfcpay.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC Connection Pool
+ * Hands out logical connections whose close() returns the physical
+ * connection to the pool instead of closing it.
+ * Each physical connection also keeps an LRU cache of prepared statements
+ * keyed by SQL text, so a repeated query is parsed and planned only once
+ * per connection; closing a cached statement returns it to that cache.
+ * Session state a borrower changed (auto-commit, isolation, read-only and the
+ * H2 settings in SESSION_RESET_SQL) is restored before the connection is reused.
+ */
+public class ConnectionPool {
+    // H2 session settings the application changes with SET; run on check-in after a borrower
+    // used a plain Statement or prepared a SET command
+    private static final String[] SESSION_RESET_SQL = {
+        "SET LAZY_QUERY_EXECUTION FALSE"
+    };
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxActive;
+    private final int maxIdle;
+    private final int minIdle;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    // Permits bound the number of physical connections checked out at once
+    private final Semaphore permits;
+    // Most recently returned connections are reused first (LIFO keeps them warm)
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    // Metrics
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong statementCacheEvictions = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, int initialSize, int maxActive,
+                          int maxIdle, int minIdle, long borrowTimeoutMillis, long idleTimeoutMillis,
+                          int validationTimeoutSeconds, int statementCacheSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxActive = Math.max(1, maxActive);
+        this.maxIdle = Math.max(0, Math.min(maxIdle, this.maxActive));
+        this.minIdle = Math.max(0, Math.min(minIdle, this.maxIdle));
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.permits = new Semaphore(this.maxActive, true);
+
+        int warm = Math.min(initialSize, this.maxIdle);
+        for (int i = 0; i < warm; i++) {
+            try {
+                idle.offerFirst(createPhysical());
+            } catch (SQLException e) {
+                System.err.println("Error pre-filling connection pool: " + e.getMessage());
+                break;
+            }
+        }
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "nfcpay-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the borrow timeout for a free slot
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        long waited = System.nanoTime() - start;
+        borrowWaitNanos.addAndGet(waited);
+        maxBorrowWaitNanos.accumulateAndGet(waited, Math::max);
+
+        if (!acquired) {
+            borrowTimeouts.incrementAndGet();
+            throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection");
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = createPhysical();
+            }
+            borrowCount.incrementAndGet();
+            return pooled.checkout();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Validation-on-borrow: stale idle connections are discarded, not handed out
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            try {
+                if (pooled.physical.isValid(validationTimeoutSeconds)) {
+                    return pooled;
+                }
+            } catch (SQLException e) {
+                // Treat as invalid
+            }
+            validationFailures.incrementAndGet();
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private PooledConnection createPhysical() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical, physical.getTransactionIsolation());
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            boolean reusable = !closed && !pooled.physical.isClosed();
+            if (reusable) {
+                resetSession(pooled);
+            }
+            if (reusable && idle.size() < maxIdle) {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error returning connection to pool: " + e.getMessage());
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Never leak an open transaction or changed session settings to the next borrower
+    private void resetSession(PooledConnection pooled) throws SQLException {
+        Connection physical = pooled.physical;
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        if (pooled.isolationChanged) {
+            physical.setTransactionIsolation(pooled.defaultIsolation);
+        }
+        if (pooled.readOnlyChanged) {
+            physical.setReadOnly(false);
+        }
+        if (pooled.sessionChanged) {
+            try (Statement stmt = physical.createStatement()) {
+                for (String sql : SESSION_RESET_SQL) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+        pooled.isolationChanged = false;
+        pooled.readOnlyChanged = false;
+        pooled.sessionChanged = false;
+    }
+
+    // Close connections idle for longer than the idle timeout, then top the pool back up to minIdle
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        PooledConnection oldest;
+        while (idle.size() > minIdle && (oldest = idle.peekLast()) != null && oldest.lastUsed < cutoff) {
+            if (idle.removeLastOccurrence(oldest)) {
+                evictedCount.incrementAndGet();
+                destroy(oldest);
+            }
+        }
+        // Validation failures and a full maxIdle on release can leave fewer than minIdle behind
+        while (!closed && idle.size() < minIdle) {
+            try {
+                idle.offerLast(createPhysical());
+            } catch (SQLException e) {
+                System.err.println("Error refilling connection pool: " + e.getMessage());
+                break;
+            }
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Already unusable
+        }
+        totalConnections.decrementAndGet();
+        destroyedCount.incrementAndGet();
+    }
+
+    /**
+     * Close all idle connections and stop accepting borrows
+     */
+    public void shutdown() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    // Pool statistics
+    public int getMaxActive() { return maxActive; }
+    public int getActiveCount() { return maxActive - permits.availablePermits(); }
+    public int getIdleCount() { return idle.size(); }
+    public int getTotalConnections() { return totalConnections.get(); }
+    public long getBorrowCount() { return borrowCount.get(); }
+    public long getBorrowTimeouts() { return borrowTimeouts.get(); }
+    public long getCreatedCount() { return createdCount.get(); }
+    public long getDestroyedCount() { return destroyedCount.get(); }
+    public long getValidationFailures() { return validationFailures.get(); }
+    public long getEvictedCount() { return evictedCount.get(); }
+    public long getMaxBorrowWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(maxBorrowWaitNanos.get()); }
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public long getStatementCacheHits() { return statementCacheHits.get(); }
+    public long getStatementCacheMisses() { return statementCacheMisses.get(); }
+    public long getStatementCacheEvictions() { return statementCacheEvictions.get(); }
+
+    public double getStatementCacheHitRate() {
+        long hits = statementCacheHits.get();
+        long lookups = hits + statementCacheMisses.get();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public double getAverageBorrowWaitMillis() {
+        long borrows = borrowCount.get() + borrowTimeouts.get();
+        return borrows == 0 ? 0.0 : borrowWaitNanos.get() / (borrows * 1_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "active=" + getActiveCount() +
+                ", idle=" + getIdleCount() +
+                ", total=" + getTotalConnections() +
+                ", maxActive=" + maxActive +
+                ", borrows=" + getBorrowCount() +
+                ", timeouts=" + getBorrowTimeouts() +
+                ", avgWaitMs=" + String.format("%.3f", getAverageBorrowWaitMillis()) +
+                ", maxWaitMs=" + getMaxBorrowWaitMillis() +
+                ", validationFailures=" + getValidationFailures() +
+                ", evicted=" + getEvictedCount() +
+                ", statementCacheSize=" + statementCacheSize +
+                '}';
+    }
+
+    /**
+     * Physical connection plus pool bookkeeping
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        // Idle cached statements by cache key, least recently returned first; only the borrower touches it
+        private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<>();
+        private volatile long lastUsed = System.currentTimeMillis();
+        private final int defaultIsolation;
+        // Session state changed during the current checkout; only the borrower touches these
+        private boolean isolationChanged;
+        private boolean readOnlyChanged;
+        private boolean sessionChanged;
+
+        private PooledConnection(Connection physical, int defaultIsolation) {
+            this.physical = physical;
+            this.defaultIsolation = defaultIsolation;
+        }
+
+        private Connection checkout() {
+            return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new LogicalConnection(this));
+        }
+    }
+
+    /**
+     * Per-checkout handle; close() hands the physical connection back exactly once
+     */
+    private final class LogicalConnection implements InvocationHandler {
+        private final PooledConnection pooled;
+        // Cached statements handed out during this checkout and not yet closed
+        private final List<CachedStatement> openStatements = new ArrayList<>();
+        private boolean returned;
+
+        private LogicalConnection(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        closeOpenStatements();
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    trackSessionChange(name, args);
+                    if (name.equals("prepareStatement") && isCacheable(method)) {
+                        return prepareCached(proxy, method, args);
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        // Noted before the call, so a change that half-applied before failing is still undone
+        private void trackSessionChange(String name, Object[] args) {
+            switch (name) {
+                case "setTransactionIsolation":
+                    pooled.isolationChanged = true;
+                    break;
+                case "setReadOnly":
+                    pooled.readOnlyChanged = true;
+                    break;
+                case "createStatement":
+                    pooled.sessionChanged = true;
+                    break;
+                case "prepareStatement":
+                case "prepareCall":
+                    String sql = ((String) args[0]).trim();
+                    if (sql.regionMatches(true, 0, "SET ", 0, 4)) {
+                        pooled.sessionChanged = true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys); other overloads set cursor options
+        private boolean isCacheable(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            return statementCacheSize > 0 && (types.length == 1 || (types.length == 2 && types[1] == int.class));
+        }
+
+        private Object prepareCached(Object proxy, Method method, Object[] args) throws Throwable {
+            String key = args.length == 1 ? (String) args[0] : args[1] + ":" + args[0];
+            // Taken out of the cache while in use, so a nested prepare of the same SQL gets its own statement
+            PreparedStatement statement = pooled.statements.remove(key);
+            if (statement != null && !statement.isClosed()) {
+                statementCacheHits.incrementAndGet();
+            } else {
+                statementCacheMisses.incrementAndGet();
+                try {
+                    statement = (PreparedStatement) method.invoke(pooled.physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            CachedStatement handle = new CachedStatement(this, (Connection) proxy, key, statement);
+            openStatements.add(handle);
+            return Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                handle);
+        }
+
+        // Reset a closed statement and park it in the cache, evicting the least recently used beyond the bound
+        private void checkIn(CachedStatement handle) {
+            openStatements.remove(handle);
+            PreparedStatement statement = handle.statement;
+            if (returned || !handle.reusable || pooled.statements.containsKey(handle.key)) {
+                closeQuietly(statement);
+                return;
+            }
+            try {
+                ResultSet resultSet = statement.getResultSet();
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+                handle.restoreLimits();
+            } catch (SQLException e) {
+                closeQuietly(statement);
+                return;
+            }
+            pooled.statements.put(handle.key, statement);
+            if (pooled.statements.size() > statementCacheSize) {
+                Iterator<Map.Entry<String, PreparedStatement>> eldest = pooled.statements.entrySet().iterator();
+                closeQuietly(eldest.next().getValue());
+                eldest.remove();
+                statementCacheEvictions.incrementAndGet();
+            }
+        }
+
+        // JDBC closes a connection's statements with it; these are never reused
+        private void closeOpenStatements() {
+            for (CachedStatement handle : openStatements) {
+                handle.closed = true;
+                closeQuietly(handle.statement);
+            }
+            openStatements.clear();
+        }
+    }
+
+    /**
+     * Handle for a cached statement; close() returns it to its connection's cache
+     */
+    private static final class CachedStatement implements InvocationHandler {
+        private final LogicalConnection owner;
+        private final Connection connection;
+        private final String key;
+        private final PreparedStatement statement;
+        private boolean closed;
+        // Prepare-time limits, captured before a caller first changes them; -1 means untouched
+        private int defaultMaxRows = -1;
+        private int defaultFetchSize = -1;
+        private int defaultQueryTimeout = -1;
+        // Cleared by setters whose effect checkIn cannot undo
+        private boolean reusable = true;
+
+        private CachedStatement(LogicalConnection owner, Connection connection, String key, PreparedStatement statement) {
+            this.owner = owner;
+            this.connection = connection;
+            this.key = key;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        owner.checkIn(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + statement + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement is closed");
+                    }
+                    trackSetting(method.getName());
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        private void trackSetting(String name) throws SQLException {
+            switch (name) {
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                    if (defaultMaxRows < 0) {
+                        defaultMaxRows = statement.getMaxRows();
+                    }
+                    break;
+                case "setFetchSize":
+                    if (defaultFetchSize < 0) {
+                        defaultFetchSize = statement.getFetchSize();
+                    }
+                    break;
+                case "setQueryTimeout":
+                    if (defaultQueryTimeout < 0) {
+                        defaultQueryTimeout = statement.getQueryTimeout();
+                    }
+                    break;
+                case "setFetchDirection":
+                case "setMaxFieldSize":
+                case "setEscapeProcessing":
+                case "setPoolable":
+                case "setCursorName":
+                case "closeOnCompletion":
+                    reusable = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // Put back the limits a caller changed so the next borrower sees prepare-time behaviour
+        private void restoreLimits() throws SQLException {
+            if (defaultMaxRows >= 0) {
+                statement.setMaxRows(defaultMaxRows);
+            }
+            if (defaultFetchSize >= 0) {
+                statement.setFetchSize(defaultFetchSize);
+            }
+            if (defaultQueryTimeout >= 0) {
+                statement.setQueryTimeout(defaultQueryTimeout);
+            }
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // Already unusable
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.model.Transaction;
+import com.nfcpay.model.enums.TransactionStatus;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Running per-user totals of today's successful transactions
+ * Rebuilt from today's spend rollups at startup and at each midnight
+ * rollover, then maintained incrementally as transactions are recorded.
+ * Ledger writers hold a shared lock from their first write through commitAndRecord;
+ * a reload holds it exclusively from snapshot to swap, so every row is either in
+ * the snapshot or counted after it, never both. A rollup rebuild holds it
+ * exclusively too, so no write is between its rollup update and its commit.
+ */
+public class DailySpendTracker {
+    private static DailySpendTracker instance;
+    private DatabaseConnection dbConnection;
+    private final Clock clock;
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private volatile DayTotals today;
+
+    // Package-private so tests can move the clock across midnight
+    DailySpendTracker(Clock clock) {
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.clock = clock;
+        this.today = load(LocalDate.now(clock));
+    }
+
+    public static synchronized DailySpendTracker getInstance() {
+        if (instance == null) {
+            instance = new DailySpendTracker(Clock.systemDefaultZone());
+        }
+        return instance;
+    }
+
+    /**
+     * Amount spent by the user today - O(1) regardless of transaction history
+     */
+    public BigDecimal getDailySpent(int userId) {
+        DayTotals totals = current();
+        if (!totals.loaded) {
+            return querySpent(userId, totals.day);
+        }
+        return totals.spent.getOrDefault(userId, BigDecimal.ZERO);
+    }
+
+    /**
+     * Hold the shared lock for a group of ledger writes; released after commitAndRecord
+     * (or the rollback) with endWrites. Must not be held while reading daily spend.
+     */
+    void beginWrites() {
+        commitLock.readLock().lock();
+    }
+
+    void endWrites() {
+        commitLock.readLock().unlock();
+    }
+
+    /**
+     * Commit the connection's transaction and count the transactions it wrote
+     */
+    public void commitAndRecord(Connection conn, Transaction transaction) throws SQLException {
+        commitAndRecord(conn, Collections.singletonList(transaction));
+    }
+
+    public void commitAndRecord(Connection conn, Collection<Transaction> transactions) throws SQLException {
+        commitLock.readLock().lock();
+        try {
+            conn.commit();
+            // Never reloads here: a stale or unloaded day is rebuilt later and then includes these rows
+            DayTotals totals = today;
+            for (Transaction transaction : transactions) {
+                if (totals.loaded && transaction.getStatus() == TransactionStatus.SUCCESS && transaction.getCreatedAt() != null
+                        && transaction.getCreatedAt().toLocalDate().equals(totals.day)) {
+                    totals.spent.merge(transaction.getUserId(), transaction.getAmount(), BigDecimal::add);
+                }
+            }
+        } finally {
+            commitLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite the rollups on the given connection and reload today's totals from
+     * them, with no ledger write in flight; rewrite must commit its work
+     */
+    synchronized void rebuild(Connection conn, RollupRewrite rewrite) throws SQLException {
+        LocalDate day = LocalDate.now(clock);
+        commitLock.writeLock().lock();
+        try {
+            rewrite.run(conn);
+            today = read(conn, day);
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    interface RollupRewrite {
+        void run(Connection conn) throws SQLException;
+    }
+
+    private DayTotals current() {
+        DayTotals totals = today;
+        LocalDate now = LocalDate.now(clock);
+        if (totals.day.equals(now) && totals.loaded) {
+            return totals;
+        }
+        synchronized (this) {
+            // Midnight rollover or a previous failed load
+            if (!today.day.equals(now) || !today.loaded) {
+                today = load(now);
+            }
+            return today;
+        }
+    }
+
+    // Same figure as summing the day's successful rows, read from the DAY rollups
+    // The connection is borrowed before locking so blocked committers cannot starve the reload of one
+    private DayTotals load(LocalDate day) {
+        try (Connection conn = dbConnection.getConnection()) {
+            commitLock.writeLock().lock();
+            try {
+                // Swapped before unlocking: commits after this point count into the new totals
+                DayTotals totals = read(conn, day);
+                today = totals;
+                return totals;
+            } finally {
+                commitLock.writeLock().unlock();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading daily spend totals: " + e.getMessage());
+        }
+        return new DayTotals(day, false);
+    }
+
+    private static DayTotals read(Connection conn, LocalDate day) throws SQLException {
+        String sql = "SELECT user_id, SUM(payment_total + refund_total) FROM spend_rollups WHERE period_type = 'DAY' AND period_start = ? GROUP BY user_id";
+        DayTotals totals = new DayTotals(day, true);
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(day));
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                totals.spent.put(rs.getInt(1), rs.getBigDecimal(2));
+            }
+        }
+        return totals;
+    }
+
+    // Fallback while the in-memory totals are unavailable
+    private BigDecimal querySpent(int userId, LocalDate day) {
+        String sql = "SELECT COALESCE(SUM(payment_total + refund_total), 0) FROM spend_rollups WHERE user_id = ? AND period_type = 'DAY' AND period_start = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userId);
+            pstmt.setDate(2, Date.valueOf(day));
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                return rs.getBigDecimal(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting daily spent: " + e.getMessage());
+        }
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * Totals for a single calendar day
+     */
+    private static final class DayTotals {
+        private final LocalDate day;
+        private final boolean loaded;
+        private final ConcurrentHashMap<Integer, BigDecimal> spent = new ConcurrentHashMap<>();
+
+        private DayTotals(LocalDate day, boolean loaded) {
+            this.day = day;
+            this.loaded = loaded;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
+import com.nfcpay.model.DashboardSummary;
+import com.nfcpay.model.Transaction;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dashboard Data Access Object
+ * Loads the dashboard figures in a single round trip
+ * Uses PreparedStatements to prevent SQL injection
+ */
+public class DashboardDAO {
+    private static final Timer GET_DASHBOARD_SUMMARY = MetricsRegistry.timer("dao.DashboardDAO.getDashboardSummary");
+    
+    private DatabaseConnection dbConnection;
+    
+    public DashboardDAO() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+    
+    // READ - Balance, active card count, this month's payment count and the newest transactions
+    public DashboardSummary getDashboardSummary(int userId, int recentLimit) {
+        return GET_DASHBOARD_SUMMARY.time(() -> doGetDashboardSummary(userId, recentLimit));
+    }
+    
+    private DashboardSummary doGetDashboardSummary(int userId, int recentLimit) {
+        // The scalar figures form a one-row table; the recent rows are joined onto it so an
+        // empty history still returns that row (with NULL transaction columns)
+        String sql = "SELECT s.balance, s.card_count, s.month_payments, t.* FROM (SELECT " +
+                     "(SELECT balance FROM wallets WHERE user_id = ?) AS balance, " +
+                     "(SELECT COUNT(*) FROM cards WHERE user_id = ? AND is_active = TRUE) AS card_count, " +
+                     "(SELECT COALESCE(SUM(payment_count), 0) FROM spend_rollups WHERE user_id = ? " +
+                     "AND period_type = 'MONTH' AND period_start = ?) AS month_payments) s " +
+                     "LEFT JOIN (SELECT " + TransactionDAO.COLUMNS + " FROM transactions WHERE user_id = ? " +
+                     "ORDER BY created_at DESC, transaction_id DESC LIMIT ?) t ON TRUE " +
+                     "ORDER BY t.created_at DESC, t.transaction_id DESC";
+        LocalDate monthStart = LocalDate.now().withDayOfMonth(1);
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, userId);
+            pstmt.setInt(3, userId);
+            pstmt.setDate(4, Date.valueOf(monthStart));
+            pstmt.setInt(5, userId);
+            pstmt.setInt(6, recentLimit);
+            ResultSet rs = pstmt.executeQuery();
+            
+            BigDecimal balance = null;
+            int cardCount = 0;
+            int monthPayments = 0;
+            List<Transaction> recent = new ArrayList<>();
+            while (rs.next()) {
+                balance = rs.getBigDecimal("balance");
+                cardCount = rs.getInt("card_count");
+                monthPayments = rs.getInt("month_payments");
+                if (rs.getObject("transaction_id") != null) {
+                    recent.add(TransactionDAO.mapResultSetToTransaction(rs));
+                }
+            }
+            return new DashboardSummary(balance, cardCount, monthPayments, recent);
+        } catch (SQLException e) {
+            GET_DASHBOARD_SUMMARY.recordError();
+            System.err.println("Error getting dashboard summary: " + e.getMessage());
+        }
+        return null;
+    }
+}
@@ -1,67 +1,220 @@
 package com.nfcpay.dao;
 
+import com.nfcpay.metrics.MetricsRegistry;
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Properties;
 import java.io.InputStream;
 import java.io.IOException;
 
 /**
  * Database Connection Singleton
- * Manages PostgreSQL database connections
+ * Manages a bounded pool of database connections
  */
 public class DatabaseConnection {
     private static DatabaseConnection instance;
-    private Connection connection;
-    
+    private ConnectionPool pool;
+    private Properties config = new Properties();
+
     // Database configuration - H2 (file-based)
     private static final String DB_URL = "jdbc:h2:./nfc_payment_system;AUTO_SERVER=TRUE;DB_CLOSE_DELAY=-1";
     private static final String DB_USER = "sa";
     private static final String DB_PASSWORD = "";
-    
+    private static final String CONFIG_FILE = "/config/database.properties";
+
+    // Overrides DB_URL, e.g. to point benchmarks and load tests at an in-memory database
+    public static final String DB_URL_PROPERTY = "nfcpay.db.url";
+
+    private static final String[] SCHEMA_UPDATES = {
+        // Base tables, so a new (or in-memory) database starts with the same layout and constraints as
+        // schema.sql; keep the two in step (Postgres "~*" is REGEXP_LIKE(..., 'i') here)
+        "CREATE TABLE IF NOT EXISTS users (" +
+            "user_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "full_name VARCHAR(100) NOT NULL CHECK (LENGTH(full_name) >= 2), " +
+            "email VARCHAR(100) NOT NULL UNIQUE CHECK (REGEXP_LIKE(email, '^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$', 'i')), " +
+            "password_hash VARCHAR(255) NOT NULL, " +
+            "phone VARCHAR(15) CHECK (REGEXP_LIKE(phone, '^\\+?[1-9]\\d{1,14}$', 'i')), " +
+            "is_active BOOLEAN DEFAULT TRUE, " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "last_login TIMESTAMP, " +
+            "CONSTRAINT users_email_lowercase CHECK (email = LOWER(email)))",
+        "CREATE TABLE IF NOT EXISTS wallets (" +
+            "wallet_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE, " +
+            "balance DECIMAL(10,2) DEFAULT 0.00 CHECK (balance >= 0), " +
+            "currency VARCHAR(3) DEFAULT 'USD' CHECK (currency IN ('USD', 'EUR', 'GBP', 'RWF')), " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "CONSTRAINT unique_user_wallet UNIQUE (user_id))",
+        "CREATE TABLE IF NOT EXISTS cards (" +
+            "card_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE, " +
+            "card_uid VARCHAR(50) NOT NULL UNIQUE, " +
+            "card_name VARCHAR(50) NOT NULL CHECK (LENGTH(card_name) >= 2), " +
+            "card_type VARCHAR(20) DEFAULT 'VIRTUAL' CHECK (card_type IN ('VIRTUAL', 'PHYSICAL')), " +
+            "balance DECIMAL(10,2) DEFAULT 0.00 CHECK (balance >= 0), " +
+            "is_active BOOLEAN DEFAULT TRUE, " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+        "CREATE TABLE IF NOT EXISTS merchants (" +
+            "merchant_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "merchant_name VARCHAR(100) NOT NULL CHECK (LENGTH(merchant_name) >= 2), " +
+            "merchant_code VARCHAR(20) NOT NULL UNIQUE, " +
+            "category VARCHAR(50) DEFAULT 'General', " +
+            "is_active BOOLEAN DEFAULT TRUE, " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "CONSTRAINT merchant_code_format CHECK (REGEXP_LIKE(merchant_code, '^[A-Z0-9]{4,10}$', 'i')))",
+        "CREATE TABLE IF NOT EXISTS transactions (" +
+            "transaction_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "user_id INTEGER NOT NULL REFERENCES users(user_id), " +
+            "card_id INTEGER NOT NULL REFERENCES cards(card_id), " +
+            "merchant_id INTEGER NOT NULL REFERENCES merchants(merchant_id), " +
+            "amount DECIMAL(10,2) NOT NULL CHECK (amount > 0 AND amount <= 10000), " +
+            "transaction_type VARCHAR(20) DEFAULT 'PAYMENT' CHECK (transaction_type IN ('PAYMENT', 'REFUND')), " +
+            "status VARCHAR(20) DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'SUCCESS', 'FAILED', 'CANCELLED')), " +
+            "reference_code VARCHAR(50) NOT NULL UNIQUE, " +
+            "description VARCHAR, " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "processed_at TIMESTAMP, " +
+            "CONSTRAINT reference_code_format CHECK (REGEXP_LIKE(reference_code, '^TXN[A-Z0-9]{10,20}$', 'i')))",
+        
+        // Keyset pagination of transaction history
+        "CREATE INDEX IF NOT EXISTS idx_transactions_user_created ON transactions(user_id, created_at DESC, transaction_id DESC)",
+
+        // Client request ids for idempotent payment submission (NULLs are not considered duplicates)
+        "ALTER TABLE transactions ADD COLUMN IF NOT EXISTS idempotency_key VARCHAR(64)",
+        "CREATE UNIQUE INDEX IF NOT EXISTS idx_transactions_idempotency ON transactions(user_id, idempotency_key)",
+
+        // Serial blocks for card UID allocation
+        CardUidAllocator.CREATE_SEQUENCE_SQL,
+        // Leased node ids for transaction reference generation
+        TransactionReferenceGenerator.CREATE_TABLE_SQL,
+        TransactionReferenceGenerator.ADD_LAST_STAMP_SQL,
+
+        // Change marker polled by the in-memory merchant catalog
+        "ALTER TABLE merchants ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP",
+
+        // Day and month spend rollups, backfilled from the ledger the first time they are created
+        SpendRollupDAO.CREATE_TABLE_SQL,
+        SpendRollupDAO.BACKFILL_IF_EMPTY_SQL[0],
+        SpendRollupDAO.BACKFILL_IF_EMPTY_SQL[1]
+    };
+
     private DatabaseConnection() {
         try {
             Class.forName("org.h2.Driver");
-            System.out.println("🔗 Attempting to connect to: " + DB_URL);
-            this.connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-            System.out.println("✅ H2 database connection established successfully!");
-            
+            String url = System.getProperty(DB_URL_PROPERTY, DB_URL);
+            System.out.println("🔗 Attempting to connect to: " + url);
+
+            this.config = loadConfig();
+            this.pool = new ConnectionPool(
+                url, DB_USER, DB_PASSWORD,
+                intProperty(config, "db.pool.initialSize", 5),
+                intProperty(config, "db.pool.maxActive", 20),
+                intProperty(config, "db.pool.maxIdle", 10),
+                intProperty(config, "db.pool.minIdle", 5),
+                intProperty(config, "db.connection.timeout", 30) * 1000L,
+                intProperty(config, "db.pool.idleTimeout", 300) * 1000L,
+                intProperty(config, "db.pool.validationTimeout", 2),
+                intProperty(config, "db.pool.statementCacheSize", 64)
+            );
+            System.out.println("✅ H2 connection pool established: " + pool);
+
+            MetricsRegistry.gauge("pool.active", pool::getActiveCount);
+            MetricsRegistry.gauge("pool.idle", pool::getIdleCount);
+            MetricsRegistry.gauge("pool.total", pool::getTotalConnections);
+            MetricsRegistry.gauge("pool.averageBorrowWaitMillis", pool::getAverageBorrowWaitMillis);
+            MetricsRegistry.gauge("pool.statementCache.hits", pool::getStatementCacheHits);
+            MetricsRegistry.gauge("pool.statementCache.hitRate", pool::getStatementCacheHitRate);
+            MetricsRegistry.gauge("pool.statementCache.evictions", pool::getStatementCacheEvictions);
+
             // Initialize database schema
             initializeSchema();
         } catch (ClassNotFoundException e) {
             System.err.println("❌ H2 Driver not found: " + e.getMessage());
             e.printStackTrace();
-        } catch (SQLException e) {
-            System.err.println("❌ Database connection failed: " + e.getMessage());
-            System.err.println("   URL: " + DB_URL);
-            System.err.println("   User: " + DB_USER);
-            e.printStackTrace();
         }
     }
-    
-    public static DatabaseConnection getInstance() {
+
+    public static synchronized DatabaseConnection getInstance() {
         if (instance == null) {
             instance = new DatabaseConnection();
         }
         return instance;
     }
-    
-    public Connection getConnection() {
+
+    /**
+     * Borrow a pooled connection. Closing it returns it to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        if (pool == null) {
+            throw new SQLException("Database connection pool is not available");
+        }
+        return pool.borrow();
+    }
+
+    /**
+     * Integer setting from database.properties, or the default when absent or invalid
+     */
+    public int getIntSetting(String key, int defaultValue) {
+        return intProperty(config, key, defaultValue);
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    public void shutdown() {
+        TransactionReferenceGenerator.releaseInstance();
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private Properties loadConfig() {
+        Properties config = new Properties();
+        try (InputStream in = DatabaseConnection.class.getResourceAsStream(CONFIG_FILE)) {
+            if (in != null) {
+                config.load(in);
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not read " + CONFIG_FILE + ", using pool defaults: " + e.getMessage());
+        }
+        return config;
+    }
+
+    private static int intProperty(Properties config, String key, int defaultValue) {
+        String value = config.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
         try {
-            if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Apply idempotent schema updates; safe to call again after tables are recreated
+     */
+    public void initializeSchema() {
+        // Idempotent updates for the embedded H2 database; schema.sql holds the full definition
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String ddl : SCHEMA_UPDATES) {
+                try {
+                    stmt.execute(ddl);
+                } catch (SQLException e) {
+                    System.err.println("⚠️ Schema update failed (" + ddl + "): " + e.getMessage());
+                }
             }
         } catch (SQLException e) {
-            System.err.println("❌ Failed to get connection: " + e.getMessage());
+            System.err.println("❌ Schema initialization failed: " + e.getMessage());
+            return;
         }
-        return connection;
-    }
-    
-    private void initializeSchema() {
-        // Schema initialization will be handled by SchemaInitializer
         System.out.println("📋 Database schema initialization completed");
     }
-    
+
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.metrics.Counter;
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.model.Merchant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory catalog of all merchants, indexed by id and by category
+ * Loaded in full on first use and swapped as a whole when the merchants table's
+ * change marker (row count and latest updated_at) moves, which a background
+ * thread checks periodically. Payment validation reads it without a query.
+ */
+public class MerchantCatalog {
+    private static MerchantCatalog instance;
+
+    private static final Counter RELOADS = MetricsRegistry.counter("merchantCatalog.reloads");
+
+    private final MerchantDAO merchantDAO;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private MerchantCatalog() {
+        this.merchantDAO = new MerchantDAO();
+        refresh();
+
+        long period = Math.max(1, DatabaseConnection.getInstance().getIntSetting("db.merchantCatalog.refreshSeconds", 30));
+        ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "nfcpay-merchant-catalog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, period, period, TimeUnit.SECONDS);
+    }
+
+    public static synchronized MerchantCatalog getInstance() {
+        if (instance == null) {
+            instance = new MerchantCatalog();
+            MetricsRegistry.gauge("merchantCatalog.size", instance::size);
+        }
+        return instance;
+    }
+
+    /**
+     * Merchant by id, or null if it does not exist
+     * An unknown id triggers one change check, so a merchant added since the last poll is still found
+     */
+    public Merchant getMerchant(int merchantId) {
+        Merchant merchant = snapshot.byId.get(merchantId);
+        if (merchant == null) {
+            refresh();
+            merchant = snapshot.byId.get(merchantId);
+        }
+        return merchant;
+    }
+
+    public boolean isActive(int merchantId) {
+        Merchant merchant = getMerchant(merchantId);
+        return merchant != null && merchant.isActive();
+    }
+
+    /**
+     * Active merchants sorted by name
+     */
+    public List<Merchant> getActiveMerchants() {
+        return snapshot.active;
+    }
+
+    /**
+     * Active merchants in one category sorted by name
+     */
+    public List<Merchant> getMerchantsByCategory(String category) {
+        return snapshot.byCategory.getOrDefault(category, Collections.emptyList());
+    }
+
+    /**
+     * Reload the catalog if the merchants table changed since the last load
+     * Keeps the current snapshot when the database cannot be read
+     */
+    public synchronized void refresh() {
+        String version = merchantDAO.getCatalogVersion();
+        if (version == null || version.equals(snapshot.version)) {
+            return;
+        }
+        List<Merchant> merchants = merchantDAO.getAllMerchants();
+        if (merchants != null) {
+            snapshot = new Snapshot(version, merchants);
+            RELOADS.increment();
+        }
+    }
+
+    public int size() {
+        return snapshot.byId.size();
+    }
+
+    // Immutable view of one load; readers always see a consistent set of indexes
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(null, Collections.emptyList());
+
+        private final String version;
+        private final Map<Integer, Merchant> byId;
+        private final List<Merchant> active;
+        private final Map<String, List<Merchant>> byCategory;
+
+        // Merchants arrive sorted by name, which the lists keep
+        private Snapshot(String version, List<Merchant> merchants) {
+            Map<Integer, Merchant> byId = new HashMap<>(merchants.size() * 2);
+            List<Merchant> active = new ArrayList<>();
+            Map<String, List<Merchant>> byCategory = new HashMap<>();
+            for (Merchant merchant : merchants) {
+                byId.put(merchant.getMerchantId(), merchant);
+                if (merchant.isActive()) {
+                    active.add(merchant);
+                    byCategory.computeIfAbsent(Objects.toString(merchant.getCategory(), "General"), c -> new ArrayList<>()).add(merchant);
+                }
+            }
+            byCategory.replaceAll((category, list) -> Collections.unmodifiableList(list));
+
+            this.version = version;
+            this.byId = Collections.unmodifiableMap(byId);
+            this.active = Collections.unmodifiableList(active);
+            this.byCategory = Collections.unmodifiableMap(byCategory);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.nfcpay.dao;
 
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
 import com.nfcpay.model.Merchant;
 import java.sql.*;
 import java.util.ArrayList;
@@ -13,17 +15,62 @@ import java.util.Map;
  * Uses PreparedStatements to prevent SQL injection
  */
 public class MerchantDAO {
+    private static final Timer CREATE_MERCHANT = MetricsRegistry.timer("dao.MerchantDAO.createMerchant");
+    private static final Timer GET_MERCHANT_BY_ID = MetricsRegistry.timer("dao.MerchantDAO.getMerchantById");
+    private static final Timer GET_ACTIVE_MERCHANTS = MetricsRegistry.timer("dao.MerchantDAO.getActiveMerchants");
+    private static final Timer GET_MERCHANTS_BY_CATEGORY = MetricsRegistry.timer("dao.MerchantDAO.getMerchantsByCategory");
+    private static final Timer GET_ALL_MERCHANTS = MetricsRegistry.timer("dao.MerchantDAO.getAllMerchants");
+    private static final Timer GET_CATALOG_VERSION = MetricsRegistry.timer("dao.MerchantDAO.getCatalogVersion");
+    
+    // Columns the full-row mapper reads
+    static final String COLUMNS = "merchant_id, merchant_name, merchant_code, category, is_active, created_at";
+    
     private DatabaseConnection dbConnection;
     
     public MerchantDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
     }
     
-
+    // CREATE - Add new merchant
+    public boolean createMerchant(Merchant merchant) {
+        return CREATE_MERCHANT.time(() -> doCreateMerchant(merchant));
+    }
+    
+    private boolean doCreateMerchant(Merchant merchant) {
+        String sql = "INSERT INTO merchants (merchant_name, merchant_code, category, is_active, created_at) VALUES (?, ?, ?, ?, ?)";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            
+            pstmt.setString(1, merchant.getMerchantName());
+            pstmt.setString(2, merchant.getMerchantCode());
+            pstmt.setString(3, merchant.getCategory());
+            pstmt.setBoolean(4, merchant.isActive());
+            pstmt.setTimestamp(5, Timestamp.valueOf(merchant.getCreatedAt()));
+            
+            int rowsAffected = pstmt.executeUpdate();
+            
+            if (rowsAffected > 0) {
+                ResultSet generatedKeys = pstmt.getGeneratedKeys();
+                if (generatedKeys.next()) {
+                    merchant.setMerchantId(generatedKeys.getInt(1));
+                }
+                return true;
+            }
+        } catch (SQLException e) {
+            CREATE_MERCHANT.recordError();
+            System.err.println("Error creating merchant: " + e.getMessage());
+        }
+        return false;
+    }
     
     // READ - Get merchant by ID
     public Merchant getMerchantById(int merchantId) {
-        String sql = "SELECT * FROM merchants WHERE merchant_id = ?";
+        return GET_MERCHANT_BY_ID.time(() -> doGetMerchantById(merchantId));
+    }
+    
+    private Merchant doGetMerchantById(int merchantId) {
+        String sql = "SELECT " + COLUMNS + " FROM merchants WHERE merchant_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -35,6 +82,7 @@ public class MerchantDAO {
                 return mapResultSetToMerchant(rs);
             }
         } catch (SQLException e) {
+            GET_MERCHANT_BY_ID.recordError();
             System.err.println("Error getting merchant by ID: " + e.getMessage());
         }
         return null;
@@ -46,7 +94,11 @@ public class MerchantDAO {
     
     // READ - Get active merchants only
     public List<Merchant> getActiveMerchants() {
-        String sql = "SELECT * FROM merchants WHERE is_active = true ORDER BY merchant_name";
+        return GET_ACTIVE_MERCHANTS.time(() -> doGetActiveMerchants());
+    }
+    
+    private List<Merchant> doGetActiveMerchants() {
+        String sql = "SELECT " + COLUMNS + " FROM merchants WHERE is_active = true ORDER BY merchant_name";
         List<Merchant> merchants = new ArrayList<>();
         
         try (Connection conn = dbConnection.getConnection();
@@ -57,6 +109,7 @@ public class MerchantDAO {
                 merchants.add(mapResultSetToMerchant(rs));
             }
         } catch (SQLException e) {
+            GET_ACTIVE_MERCHANTS.recordError();
             System.err.println("Error getting active merchants: " + e.getMessage());
         }
         return merchants;
@@ -64,7 +117,11 @@ public class MerchantDAO {
     
     // READ - Get merchants by category
     public List<Merchant> getMerchantsByCategory(String category) {
-        String sql = "SELECT * FROM merchants WHERE category = ? AND is_active = true ORDER BY merchant_name";
+        return GET_MERCHANTS_BY_CATEGORY.time(() -> doGetMerchantsByCategory(category));
+    }
+    
+    private List<Merchant> doGetMerchantsByCategory(String category) {
+        String sql = "SELECT " + COLUMNS + " FROM merchants WHERE category = ? AND is_active = true ORDER BY merchant_name";
         List<Merchant> merchants = new ArrayList<>();
         
         try (Connection conn = dbConnection.getConnection();
@@ -77,16 +134,57 @@ public class MerchantDAO {
                 merchants.add(mapResultSetToMerchant(rs));
             }
         } catch (SQLException e) {
+            GET_MERCHANTS_BY_CATEGORY.recordError();
             System.err.println("Error getting merchants by category: " + e.getMessage());
         }
         return merchants;
     }
     
-
+    // READ - Get every merchant, active or not (catalog preload)
+    public List<Merchant> getAllMerchants() {
+        return GET_ALL_MERCHANTS.time(() -> doGetAllMerchants());
+    }
     
-
+    private List<Merchant> doGetAllMerchants() {
+        String sql = "SELECT " + COLUMNS + " FROM merchants ORDER BY merchant_name";
+        List<Merchant> merchants = new ArrayList<>();
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                merchants.add(mapResultSetToMerchant(rs));
+            }
+        } catch (SQLException e) {
+            GET_ALL_MERCHANTS.recordError();
+            System.err.println("Error getting all merchants: " + e.getMessage());
+            return null;
+        }
+        return merchants;
+    }
     
-
+    // READ - Cheap change marker for the merchants table: row count and latest update time
+    public String getCatalogVersion() {
+        return GET_CATALOG_VERSION.time(() -> doGetCatalogVersion());
+    }
+    
+    private String doGetCatalogVersion() {
+        String sql = "SELECT COUNT(*), MAX(updated_at) FROM merchants";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            if (rs.next()) {
+                return rs.getLong(1) + "@" + rs.getTimestamp(2);
+            }
+        } catch (SQLException e) {
+            GET_CATALOG_VERSION.recordError();
+            System.err.println("Error getting merchant catalog version: " + e.getMessage());
+        }
+        return null;
+    }
     
     // Helper method to map ResultSet to Merchant object
     private Merchant mapResultSetToMerchant(ResultSet rs) throws SQLException {
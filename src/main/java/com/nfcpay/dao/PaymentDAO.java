@@ -0,0 +1,248 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.exception.DatabaseException;
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
+import com.nfcpay.model.Transaction;
+import com.nfcpay.model.UserStatus;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Payment Data Access Object
+ * Runs payment validation, wallet debit and ledger insert as one unit of a
+ * group commit (see TransactionBatchWriter)
+ * Uses PreparedStatements to prevent SQL injection
+ */
+public class PaymentDAO {
+    private static final Timer EXECUTE_PAYMENT = MetricsRegistry.timer("dao.PaymentDAO.executePayment");
+    private static final Timer EXECUTE_REFUND = MetricsRegistry.timer("dao.PaymentDAO.executeRefund");
+    
+    private final WalletDAO walletDAO;
+    private final TransactionDAO transactionDAO;
+    private final MerchantCatalog merchantCatalog;
+    private final UserDAO userDAO;
+
+    /**
+     * Outcome of an atomic payment attempt
+     */
+    public enum Outcome {
+        APPROVED,
+        USER_INACTIVE,
+        CARD_NOT_FOUND,
+        CARD_INACTIVE,
+        CARD_UNAUTHORIZED,
+        MERCHANT_INACTIVE,
+        INSUFFICIENT_FUNDS,
+        DAILY_LIMIT_EXCEEDED
+    }
+
+    /**
+     * Result of an atomic payment attempt with the figures used to decide it
+     */
+    public static class PaymentResult {
+        private final Outcome outcome;
+        private final BigDecimal balance;
+        private final BigDecimal dailySpent;
+
+        PaymentResult(Outcome outcome, BigDecimal balance, BigDecimal dailySpent) {
+            this.outcome = outcome;
+            this.balance = balance;
+            this.dailySpent = dailySpent;
+        }
+
+        public Outcome getOutcome() { return outcome; }
+        public BigDecimal getBalance() { return balance; }
+        public BigDecimal getDailySpent() { return dailySpent; }
+        public boolean isApproved() { return outcome == Outcome.APPROVED; }
+    }
+
+    public PaymentDAO() {
+        this.walletDAO = new WalletDAO();
+        this.transactionDAO = new TransactionDAO();
+        this.merchantCatalog = MerchantCatalog.getInstance();
+        this.userDAO = new UserDAO();
+    }
+
+    // TRANSACTION - Validate, debit and record a payment atomically
+    public PaymentResult executePayment(Transaction transaction, BigDecimal dailyLimit) {
+        long start = EXECUTE_PAYMENT.start();
+        try {
+            return doExecutePayment(transaction, dailyLimit);
+        } catch (Exception e) {
+            EXECUTE_PAYMENT.recordError(e);
+            throw e;
+        } finally {
+            EXECUTE_PAYMENT.stop(start);
+        }
+    }
+
+    private PaymentResult doExecutePayment(Transaction transaction, BigDecimal dailyLimit) {
+        int userId = transaction.getUserId();
+
+        // Resolved before the writer takes its connection: on a cache miss each of these borrows its
+        // own, and holding one while waiting for another lets a burst of payments exhaust the pool
+        PaymentUnit payment = new PaymentUnit(transaction, dailyLimit,
+            userDAO.getUserStatus(userId),
+            merchantCatalog.isActive(transaction.getMerchantId()),
+            DailySpendTracker.getInstance().getDailySpent(userId));
+
+        // Group-committed with concurrent ledger writes; a declined payment commits nothing
+        try {
+            if (TransactionBatchWriter.getInstance().submit(payment)) {
+                return payment.result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while executing payment");
+        } catch (DatabaseException e) {
+            System.err.println("Error executing payment: " + e.getMessage());
+        }
+        EXECUTE_PAYMENT.recordError();
+        return null;
+    }
+
+    // TRANSACTION - Credit wallet and record a refund atomically
+    public boolean executeRefund(Transaction refundTransaction) {
+        long start = EXECUTE_REFUND.start();
+        try {
+            return doExecuteRefund(refundTransaction);
+        } catch (Exception e) {
+            EXECUTE_REFUND.recordError(e);
+            throw e;
+        } finally {
+            EXECUTE_REFUND.stop(start);
+        }
+    }
+
+    private boolean doExecuteRefund(Transaction refundTransaction) {
+        TransactionBatchWriter.Unit refund = new TransactionBatchWriter.Unit() {
+            @Override
+            public List<Transaction> write(Connection conn) throws SQLException {
+                if (!walletDAO.credit(conn, refundTransaction.getUserId(), refundTransaction.getAmount())
+                        || !transactionDAO.insertTransaction(conn, refundTransaction)) {
+                    throw new SQLException("Refund for user " + refundTransaction.getUserId() + " was not written");
+                }
+                return Collections.singletonList(refundTransaction);
+            }
+
+            @Override
+            public void committed() {
+                WalletBalanceCache.getInstance().applyDelta(refundTransaction.getUserId(), refundTransaction.getAmount());
+            }
+
+            @Override
+            public void rolledBack() {
+                refundTransaction.setTransactionId(0);
+            }
+        };
+
+        try {
+            if (TransactionBatchWriter.getInstance().submit(refund)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while executing refund");
+        } catch (DatabaseException e) {
+            System.err.println("Error executing refund: " + e.getMessage());
+        }
+        EXECUTE_REFUND.recordError();
+        return false;
+    }
+
+    /**
+     * Validation, wallet debit and ledger insert for one payment, run inside a group commit
+     */
+    private final class PaymentUnit implements TransactionBatchWriter.Unit {
+        // One statement reads the rows the payment decision depends on; user status, merchant
+        // status and today's spend come from in-memory data
+        private static final String SQL = "SELECT c.card_id, c.user_id, c.is_active, w.balance " +
+                                          "FROM (VALUES (1)) AS probe(x) " +
+                                          "LEFT JOIN cards c ON c.card_id = ? " +
+                                          "LEFT JOIN wallets w ON w.user_id = ?";
+
+        private final Transaction transaction;
+        private final BigDecimal dailyLimit;
+        private final UserStatus user;
+        private final boolean merchantActive;
+        private final BigDecimal dailySpent;
+        private volatile PaymentResult result;
+
+        private PaymentUnit(Transaction transaction, BigDecimal dailyLimit, UserStatus user,
+                            boolean merchantActive, BigDecimal dailySpent) {
+            this.transaction = transaction;
+            this.dailyLimit = dailyLimit;
+            this.user = user;
+            this.merchantActive = merchantActive;
+            this.dailySpent = dailySpent;
+        }
+
+        @Override
+        public List<Transaction> write(Connection conn) throws SQLException {
+            int userId = transaction.getUserId();
+            BigDecimal amount = transaction.getAmount();
+            BigDecimal balance;
+            Outcome outcome;
+
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+                pstmt.setInt(1, transaction.getCardId());
+                pstmt.setInt(2, userId);
+                ResultSet rs = pstmt.executeQuery();
+                rs.next();
+
+                balance = rs.getBigDecimal(4) != null ? rs.getBigDecimal(4) : BigDecimal.ZERO;
+
+                if (user == null || !user.isActive()) {
+                    outcome = Outcome.USER_INACTIVE;
+                } else if (rs.getObject(1) == null) {
+                    outcome = Outcome.CARD_NOT_FOUND;
+                } else if (!rs.getBoolean(3)) {
+                    outcome = Outcome.CARD_INACTIVE;
+                } else if (rs.getInt(2) != userId) {
+                    outcome = Outcome.CARD_UNAUTHORIZED;
+                } else if (!merchantActive) {
+                    outcome = Outcome.MERCHANT_INACTIVE;
+                } else if (balance.compareTo(amount) < 0) {
+                    outcome = Outcome.INSUFFICIENT_FUNDS;
+                } else if (dailySpent.add(amount).compareTo(dailyLimit) > 0) {
+                    outcome = Outcome.DAILY_LIMIT_EXCEEDED;
+                } else {
+                    outcome = Outcome.APPROVED;
+                }
+            }
+
+            // Conditional debit still guards against a concurrent writer draining the wallet
+            if (outcome == Outcome.APPROVED && !walletDAO.debit(conn, userId, amount)) {
+                outcome = Outcome.INSUFFICIENT_FUNDS;
+            }
+
+            if (outcome != Outcome.APPROVED) {
+                // Nothing was written, so there is nothing to roll back
+                result = new PaymentResult(outcome, balance, dailySpent);
+                return Collections.emptyList();
+            }
+
+            if (!transactionDAO.insertTransaction(conn, transaction)) {
+                throw new SQLException("Payment for user " + userId + " was not recorded");
+            }
+            result = new PaymentResult(Outcome.APPROVED, balance.subtract(amount), dailySpent.add(amount));
+            return Collections.singletonList(transaction);
+        }
+
+        @Override
+        public void committed() {
+            if (result.isApproved()) {
+                WalletBalanceCache.getInstance().applyDelta(transaction.getUserId(), transaction.getAmount().negate());
+            }
+        }
+
+        @Override
+        public void rolledBack() {
+            transaction.setTransactionId(0);
+            result = null;
+        }
+    }
+}
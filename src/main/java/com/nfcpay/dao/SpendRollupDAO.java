@@ -0,0 +1,234 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
+import com.nfcpay.model.Transaction;
+import com.nfcpay.model.enums.TransactionStatus;
+import com.nfcpay.model.enums.TransactionType;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Spend Rollup Data Access Object
+ * Maintains spend_rollups: successful payment and refund totals per user and
+ * merchant (with the merchant's category) for each DAY and MONTH. Rows are
+ * updated in the same JDBC transaction as the ledger insert, so reads cost the
+ * same however long a user's history is.
+ */
+public class SpendRollupDAO {
+    private static final Timer GET_MONTH_PAYMENT_COUNT = MetricsRegistry.timer("dao.SpendRollupDAO.getMonthPaymentCount");
+    private static final Timer GET_CATEGORY_TOTALS = MetricsRegistry.timer("dao.SpendRollupDAO.getCategoryTotals");
+    private static final Timer GET_MERCHANT_TOTALS = MetricsRegistry.timer("dao.SpendRollupDAO.getMerchantTotals");
+    private static final Timer REBUILD = MetricsRegistry.timer("dao.SpendRollupDAO.rebuild");
+
+    public static final String DAY = "DAY";
+    public static final String MONTH = "MONTH";
+
+    static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS spend_rollups (" +
+        "user_id INTEGER NOT NULL, " +
+        "merchant_id INTEGER NOT NULL, " +
+        "category VARCHAR(50), " +
+        "period_type VARCHAR(5) NOT NULL, " +
+        "period_start DATE NOT NULL, " +
+        "payment_total DECIMAL(14,2) DEFAULT 0 NOT NULL, " +
+        "payment_count INTEGER DEFAULT 0 NOT NULL, " +
+        "refund_total DECIMAL(14,2) DEFAULT 0 NOT NULL, " +
+        "refund_count INTEGER DEFAULT 0 NOT NULL, " +
+        "PRIMARY KEY (user_id, period_type, period_start, merchant_id))";
+
+    // Aggregates the ledger into one period granularity; {period} is the period_start expression
+    private static final String BACKFILL_SQL = "INSERT INTO spend_rollups (user_id, merchant_id, category, period_type, period_start, " +
+        "payment_total, payment_count, refund_total, refund_count) " +
+        "SELECT t.user_id, t.merchant_id, MAX(m.category), '{type}', {period}, " +
+        "SUM(CASE WHEN t.transaction_type = 'PAYMENT' THEN t.amount ELSE 0 END), " +
+        "SUM(CASE WHEN t.transaction_type = 'PAYMENT' THEN 1 ELSE 0 END), " +
+        "SUM(CASE WHEN t.transaction_type = 'REFUND' THEN t.amount ELSE 0 END), " +
+        "SUM(CASE WHEN t.transaction_type = 'REFUND' THEN 1 ELSE 0 END) " +
+        "FROM transactions t LEFT JOIN merchants m ON m.merchant_id = t.merchant_id " +
+        "WHERE t.status = 'SUCCESS' AND t.transaction_type IN ('PAYMENT', 'REFUND') {guard}" +
+        "GROUP BY t.user_id, t.merchant_id, {period}";
+
+    private static final String DAY_PERIOD = "CAST(t.created_at AS DATE)";
+    private static final String MONTH_PERIOD = "CAST(DATE_TRUNC('MONTH', t.created_at) AS DATE)";
+
+    // One-time population when upgrading a database that predates the rollups
+    static final String[] BACKFILL_IF_EMPTY_SQL = {
+        backfill(DAY, DAY_PERIOD, "AND NOT EXISTS (SELECT 1 FROM spend_rollups WHERE period_type = 'DAY') "),
+        backfill(MONTH, MONTH_PERIOD, "AND NOT EXISTS (SELECT 1 FROM spend_rollups WHERE period_type = 'MONTH') ")
+    };
+
+    private static final String MERGE_SQL = "MERGE INTO spend_rollups r USING (SELECT " +
+        "CAST(? AS INTEGER) AS user_id, CAST(? AS INTEGER) AS merchant_id, CAST(? AS VARCHAR(5)) AS period_type, " +
+        "CAST(? AS DATE) AS period_start, CAST(? AS DECIMAL(14,2)) AS payment_total, CAST(? AS INTEGER) AS payment_count, " +
+        "CAST(? AS DECIMAL(14,2)) AS refund_total, CAST(? AS INTEGER) AS refund_count) s " +
+        "ON r.user_id = s.user_id AND r.period_type = s.period_type AND r.period_start = s.period_start AND r.merchant_id = s.merchant_id " +
+        "WHEN MATCHED THEN UPDATE SET payment_total = r.payment_total + s.payment_total, payment_count = r.payment_count + s.payment_count, " +
+        "refund_total = r.refund_total + s.refund_total, refund_count = r.refund_count + s.refund_count " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, merchant_id, category, period_type, period_start, payment_total, payment_count, refund_total, refund_count) " +
+        "VALUES (s.user_id, s.merchant_id, (SELECT category FROM merchants WHERE merchant_id = s.merchant_id), s.period_type, s.period_start, " +
+        "s.payment_total, s.payment_count, s.refund_total, s.refund_count)";
+
+    private DatabaseConnection dbConnection;
+
+    public SpendRollupDAO() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    private static String backfill(String type, String period, String guard) {
+        return BACKFILL_SQL.replace("{type}", type).replace("{period}", period).replace("{guard}", guard);
+    }
+
+    // Whether a transaction contributes to the rollups
+    static boolean isRolledUp(Transaction transaction) {
+        return transaction.getStatus() == TransactionStatus.SUCCESS
+            && (transaction.getTransactionType() == TransactionType.PAYMENT || transaction.getTransactionType() == TransactionType.REFUND);
+    }
+
+    // UPDATE - Add a transaction to its day and month rows on a caller-supplied connection (joins the caller's JDBC transaction)
+    static void apply(Connection conn, Transaction transaction) throws SQLException {
+        if (!isRolledUp(transaction)) {
+            return;
+        }
+        boolean refund = transaction.getTransactionType() == TransactionType.REFUND;
+        BigDecimal amount = transaction.getAmount();
+        LocalDate day = transaction.getCreatedAt().toLocalDate();
+
+        try (PreparedStatement pstmt = conn.prepareStatement(MERGE_SQL)) {
+            bindMerge(pstmt, transaction, DAY, day, refund, amount);
+            pstmt.addBatch();
+            bindMerge(pstmt, transaction, MONTH, day.withDayOfMonth(1), refund, amount);
+            pstmt.addBatch();
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void bindMerge(PreparedStatement pstmt, Transaction transaction, String periodType, LocalDate periodStart,
+                                  boolean refund, BigDecimal amount) throws SQLException {
+        pstmt.setInt(1, transaction.getUserId());
+        pstmt.setInt(2, transaction.getMerchantId());
+        pstmt.setString(3, periodType);
+        pstmt.setDate(4, Date.valueOf(periodStart));
+        pstmt.setBigDecimal(5, refund ? BigDecimal.ZERO : amount);
+        pstmt.setInt(6, refund ? 0 : 1);
+        pstmt.setBigDecimal(7, refund ? amount : BigDecimal.ZERO);
+        pstmt.setInt(8, refund ? 1 : 0);
+    }
+
+    // READ - Successful payments made by the user in the month starting at monthStart
+    public int getMonthPaymentCount(int userId, LocalDate monthStart) {
+        return GET_MONTH_PAYMENT_COUNT.time(() -> doGetMonthPaymentCount(userId, monthStart));
+    }
+
+    private int doGetMonthPaymentCount(int userId, LocalDate monthStart) {
+        String sql = "SELECT COALESCE(SUM(payment_count), 0) FROM spend_rollups WHERE user_id = ? AND period_type = 'MONTH' AND period_start = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userId);
+            pstmt.setDate(2, Date.valueOf(monthStart.withDayOfMonth(1)));
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            GET_MONTH_PAYMENT_COUNT.recordError();
+            System.err.println("Error getting monthly payment count: " + e.getMessage());
+        }
+        return 0;
+    }
+
+    // READ - Net spend (payments minus refunds) per merchant category for one period, largest first
+    public Map<String, BigDecimal> getCategoryTotals(int userId, String periodType, LocalDate periodStart) {
+        return GET_CATEGORY_TOTALS.time(() -> doGetCategoryTotals(userId, periodType, periodStart));
+    }
+
+    private Map<String, BigDecimal> doGetCategoryTotals(int userId, String periodType, LocalDate periodStart) {
+        String sql = "SELECT COALESCE(category, 'General'), SUM(payment_total - refund_total) AS net FROM spend_rollups " +
+                     "WHERE user_id = ? AND period_type = ? AND period_start = ? GROUP BY COALESCE(category, 'General') ORDER BY net DESC";
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, periodType);
+            pstmt.setDate(3, Date.valueOf(periodStart));
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                totals.put(rs.getString(1), rs.getBigDecimal(2));
+            }
+        } catch (SQLException e) {
+            GET_CATEGORY_TOTALS.recordError();
+            System.err.println("Error getting category totals: " + e.getMessage());
+        }
+        return totals;
+    }
+
+    // READ - Net spend (payments minus refunds) per merchant id for one period, largest first
+    public Map<Integer, BigDecimal> getMerchantTotals(int userId, String periodType, LocalDate periodStart) {
+        return GET_MERCHANT_TOTALS.time(() -> doGetMerchantTotals(userId, periodType, periodStart));
+    }
+
+    private Map<Integer, BigDecimal> doGetMerchantTotals(int userId, String periodType, LocalDate periodStart) {
+        String sql = "SELECT merchant_id, payment_total - refund_total AS net FROM spend_rollups " +
+                     "WHERE user_id = ? AND period_type = ? AND period_start = ? ORDER BY net DESC";
+        Map<Integer, BigDecimal> totals = new LinkedHashMap<>();
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, periodType);
+            pstmt.setDate(3, Date.valueOf(periodStart));
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                totals.put(rs.getInt(1), rs.getBigDecimal(2));
+            }
+        } catch (SQLException e) {
+            GET_MERCHANT_TOTALS.recordError();
+            System.err.println("Error getting merchant totals: " + e.getMessage());
+        }
+        return totals;
+    }
+
+    // MAINTENANCE - Recompute every rollup row from the transactions table
+    public boolean rebuild() {
+        return REBUILD.time(() -> doRebuild());
+    }
+
+    // Ledger writes pause for the rebuild, so none can update a rollup row between the delete
+    // and the backfill or commit a row the backfill missed; the daily limit's totals are reloaded
+    // from the new rows under the same pause
+    private boolean doRebuild() {
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                DailySpendTracker.getInstance().rebuild(conn, rollups -> {
+                    try (Statement stmt = rollups.createStatement()) {
+                        stmt.executeUpdate("DELETE FROM spend_rollups");
+                        stmt.executeUpdate(backfill(DAY, DAY_PERIOD, ""));
+                        stmt.executeUpdate(backfill(MONTH, MONTH_PERIOD, ""));
+                    }
+                    rollups.commit();
+                });
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            REBUILD.recordError();
+            System.err.println("Error rebuilding spend rollups: " + e.getMessage());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,264 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.exception.DatabaseException;
+import com.nfcpay.metrics.Counter;
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
+import com.nfcpay.model.Transaction;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit writer for ledger writes
+ * Payments, refunds and standalone transaction inserts are queued as units of
+ * work and run by one thread on one connection, each under its own savepoint,
+ * then committed together so they share one log flush. A unit that fails is
+ * rolled back to its savepoint without affecting the rest of the group. Each
+ * caller blocks until its unit is committed or has failed.
+ * If the writer thread ever stops, pending callers are failed and later
+ * units run directly on the calling thread.
+ */
+public class TransactionBatchWriter {
+    private static TransactionBatchWriter instance;
+
+    private static final Timer FLUSH = MetricsRegistry.timer("dao.TransactionBatchWriter.flush");
+    private static final Counter BATCHED_ROWS = MetricsRegistry.counter("transactionBatch.rows");
+    private static final Counter UNIT_FAILURES = MetricsRegistry.counter("transactionBatch.unitFailures");
+
+    private final DatabaseConnection dbConnection;
+    private final TransactionDAO transactionDAO;
+    private final LinkedBlockingQueue<PendingUnit> queue = new LinkedBlockingQueue<>();
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long timeoutMillis;
+    private volatile boolean running = true;
+
+    /**
+     * One caller's share of a group commit
+     */
+    interface Unit {
+        /**
+         * Write on the shared connection and return the ledger rows written (empty if it chose not to write)
+         * Throwing rolls back this unit's writes only
+         */
+        List<Transaction> write(Connection conn) throws SQLException;
+
+        // After the group has committed
+        default void committed() {}
+
+        // After this unit's writes were rolled back, alone or with the group
+        default void rolledBack() {}
+    }
+
+    private TransactionBatchWriter() {
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.transactionDAO = new TransactionDAO();
+        this.maxBatchSize = Math.max(1, dbConnection.getIntSetting("db.batch.maxSize", 64));
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, dbConnection.getIntSetting("db.batch.maxDelayMicros", 2000)));
+        this.timeoutMillis = Math.max(1, dbConnection.getIntSetting("db.batch.timeoutMillis", 10_000));
+        // Loaded now so the writer never borrows a second connection for it mid-commit
+        DailySpendTracker.getInstance();
+
+        Thread writer = new Thread(this::run, "nfcpay-transaction-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static synchronized TransactionBatchWriter getInstance() {
+        if (instance == null) {
+            instance = new TransactionBatchWriter();
+            MetricsRegistry.gauge("transactionBatch.queueDepth", instance.queue::size);
+        }
+        return instance;
+    }
+
+    /**
+     * Insert a transaction with the next group commit
+     * Returns once the row is committed (true, id set on the transaction) or has failed (false);
+     * throws if the writer does not answer within db.batch.timeoutMillis
+     */
+    public boolean insert(Transaction transaction) throws InterruptedException, DatabaseException {
+        return submit(new Unit() {
+            @Override
+            public List<Transaction> write(Connection conn) throws SQLException {
+                if (!transactionDAO.insertTransaction(conn, transaction)) {
+                    throw new SQLException("Transaction row was not inserted");
+                }
+                return Collections.singletonList(transaction);
+            }
+
+            @Override
+            public void rolledBack() {
+                transaction.setTransactionId(0);
+            }
+        });
+    }
+
+    /**
+     * Run the unit in the next group commit
+     * Returns true once its writes are committed, false if they were rolled back;
+     * throws if the writer does not answer within db.batch.timeoutMillis
+     */
+    boolean submit(Unit unit) throws InterruptedException, DatabaseException {
+        PendingUnit pending = new PendingUnit(unit);
+        if (!running) {
+            return runDirectly(pending);
+        }
+        queue.put(pending);
+        // The writer may have stopped (and drained the queue) just before the put
+        if (!running && queue.remove(pending)) {
+            return runDirectly(pending);
+        }
+
+        if (!pending.done.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            if (queue.remove(pending)) {
+                throw new DatabaseException("BATCH_TIMEOUT", "Ledger write not picked up within " + timeoutMillis + " ms",
+                    "The system is busy. Please try again in a moment.");
+            }
+            // Already taken into a group: its commit may still land
+            throw new DatabaseException("BATCH_TIMEOUT", "Ledger write not confirmed within " + timeoutMillis + " ms, outcome unknown",
+                "Your request is taking longer than expected. Please check your history before retrying.");
+        }
+        return pending.success;
+    }
+
+    private void run() {
+        List<PendingUnit> batch = new ArrayList<>(maxBatchSize);
+        try {
+            processBatches(batch);
+        } finally {
+            // Nothing will serve the queue any more: fail what is waiting, later units run directly
+            running = false;
+            batch.forEach(PendingUnit::fail);
+            PendingUnit stranded;
+            while ((stranded = queue.poll()) != null) {
+                stranded.fail();
+            }
+            System.err.println("Transaction batch writer stopped; ledger writes will run directly");
+        }
+    }
+
+    private void processBatches(List<PendingUnit> batch) {
+        while (true) {
+            try {
+                batch.add(queue.take());
+                // Wait briefly for concurrent callers to join this commit
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingUnit next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // The units still in the batch are failed by run()
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Error in transaction batch writer: " + e.getMessage());
+                batch.forEach(PendingUnit::fail);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingUnit> batch) {
+        long start = FLUSH.start();
+        try {
+            commitGroup(batch);
+            for (PendingUnit pending : batch) {
+                pending.done.countDown();
+            }
+        } finally {
+            FLUSH.stop(start);
+        }
+    }
+
+    // Each unit under its own savepoint, then one commit for the group; the spend tracker's
+    // shared lock is held from the first write to the commit so a rollup rebuild waits
+    private void commitGroup(List<PendingUnit> batch) {
+        List<Transaction> written = new ArrayList<>();
+        DailySpendTracker dailySpend = DailySpendTracker.getInstance();
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            dailySpend.beginWrites();
+            try {
+                for (PendingUnit pending : batch) {
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        written.addAll(pending.unit.write(conn));
+                        pending.success = true;
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback(savepoint);
+                        pending.unit.rolledBack();
+                        UNIT_FAILURES.increment();
+                        System.err.println("Error writing transaction: " + e.getMessage());
+                    }
+                }
+                dailySpend.commitAndRecord(conn, written);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                dailySpend.endWrites();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error committing transaction batch: " + e.getMessage());
+            for (PendingUnit pending : batch) {
+                if (pending.success) {
+                    pending.success = false;
+                    pending.unit.rolledBack();
+                }
+            }
+            return;
+        }
+        BATCHED_ROWS.add(written.size());
+        for (PendingUnit pending : batch) {
+            if (pending.success) {
+                try {
+                    pending.unit.committed();
+                } catch (RuntimeException e) {
+                    // Committed regardless; only the caller's follow-up (e.g. a cache update) was lost
+                    System.err.println("Error after committing transaction: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Fallback once the writer thread is gone: a group of one on the calling thread
+    private boolean runDirectly(PendingUnit pending) {
+        commitGroup(Collections.singletonList(pending));
+        return pending.success;
+    }
+
+    private static final class PendingUnit {
+        private final Unit unit;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean success;
+
+        private PendingUnit(Unit unit) {
+            this.unit = unit;
+        }
+
+        private void fail() {
+            if (done.getCount() > 0) {
+                success = false;
+                unit.rolledBack();
+                done.countDown();
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.nfcpay.dao;
 
+import com.nfcpay.exception.DatabaseException;
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
 import com.nfcpay.model.Transaction;
+import com.nfcpay.model.TransactionFilter;
+import com.nfcpay.model.TransactionPage;
 import com.nfcpay.model.enums.TransactionType;
 import com.nfcpay.model.enums.TransactionStatus;
 import java.math.BigDecimal;
@@ -8,6 +13,7 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Transaction Data Access Object
@@ -15,6 +21,23 @@ import java.util.List;
  * Uses PreparedStatements to prevent SQL injection
  */
 public class TransactionDAO {
+    private static final Timer CREATE_TRANSACTION = MetricsRegistry.timer("dao.TransactionDAO.createTransaction");
+    private static final Timer GET_TRANSACTION_BY_ID = MetricsRegistry.timer("dao.TransactionDAO.getTransactionById");
+    private static final Timer GET_TRANSACTION_SUMMARY = MetricsRegistry.timer("dao.TransactionDAO.getTransactionSummary");
+    private static final Timer GET_TRANSACTION_BY_IDEMPOTENCY_KEY = MetricsRegistry.timer("dao.TransactionDAO.getTransactionByIdempotencyKey");
+    private static final Timer GET_TRANSACTIONS_BY_USER_ID = MetricsRegistry.timer("dao.TransactionDAO.getTransactionsByUserId");
+    private static final Timer GET_RECENT_TRANSACTIONS = MetricsRegistry.timer("dao.TransactionDAO.getRecentTransactions");
+    private static final Timer GET_TRANSACTIONS_PAGE = MetricsRegistry.timer("dao.TransactionDAO.getTransactionsPage");
+    private static final Timer COUNT_TRANSACTIONS = MetricsRegistry.timer("dao.TransactionDAO.countTransactions");
+    private static final Timer STREAM_TRANSACTIONS = MetricsRegistry.timer("dao.TransactionDAO.streamTransactions");
+    private static final Timer GET_DAILY_SPENT = MetricsRegistry.timer("dao.TransactionDAO.getDailySpent");
+    
+    // Columns the full-row mapper reads
+    static final String COLUMNS = "transaction_id, user_id, card_id, merchant_id, amount, transaction_type, status, reference_code, description, created_at, processed_at, idempotency_key";
+    // Lean projection for list and check paths: no description or idempotency key, read by position
+    static final String SUMMARY_COLUMNS = "transaction_id, user_id, card_id, merchant_id, amount, transaction_type, status, reference_code, created_at, processed_at";
+    private static final String INSERT_SQL = "INSERT INTO transactions (user_id, card_id, merchant_id, amount, transaction_type, status, reference_code, description, created_at, idempotency_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
     private DatabaseConnection dbConnection;
     
     public TransactionDAO() {
@@ -23,25 +46,50 @@ public class TransactionDAO {
     
     // CREATE - Create new transaction
     public boolean createTransaction(Transaction transaction) {
+        long start = CREATE_TRANSACTION.start();
+        try {
+            return doCreateTransaction(transaction);
+        } catch (Exception e) {
+            CREATE_TRANSACTION.recordError(e);
+            throw e;
+        } finally {
+            CREATE_TRANSACTION.stop(start);
+        }
+    }
+    
+    private boolean doCreateTransaction(Transaction transaction) {
         // Ensure reference code is not null
         if (transaction.getReferenceCode() == null) {
-            transaction.setReferenceCode(com.nfcpay.util.UIDGenerator.generateTransactionReference());
+            try {
+                transaction.setReferenceCode(com.nfcpay.util.UIDGenerator.generateTransactionReference());
+            } catch (IllegalStateException e) {
+                CREATE_TRANSACTION.recordError();
+                System.err.println("Error creating transaction: " + e.getMessage());
+                return false;
+            }
         }
         
-        String sql = "INSERT INTO transactions (user_id, card_id, merchant_id, amount, transaction_type, status, reference_code, description, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setInt(1, transaction.getUserId());
-            pstmt.setInt(2, transaction.getCardId());
-            pstmt.setInt(3, transaction.getMerchantId());
-            pstmt.setBigDecimal(4, transaction.getAmount());
-            pstmt.setString(5, transaction.getTransactionType().toString());
-            pstmt.setString(6, transaction.getStatus().toString());
-            pstmt.setString(7, transaction.getReferenceCode());
-            pstmt.setString(8, transaction.getDescription());
-            pstmt.setTimestamp(9, Timestamp.valueOf(transaction.getCreatedAt()));
+        // Group-committed with concurrent inserts; the writer also records daily spend
+        try {
+            if (TransactionBatchWriter.getInstance().insert(transaction)) {
+                return true;
+            }
+            CREATE_TRANSACTION.recordError();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CREATE_TRANSACTION.recordError();
+            System.err.println("Interrupted while creating transaction");
+        } catch (DatabaseException e) {
+            CREATE_TRANSACTION.recordError();
+            System.err.println("Error creating transaction: " + e.getMessage());
+        }
+        return false;
+    }
+    
+    // CREATE - Insert transaction and its spend rollups on a caller-supplied connection (joins the caller's JDBC transaction)
+    boolean insertTransaction(Connection conn, Transaction transaction) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindInsert(pstmt, transaction);
             
             int rowsAffected = pstmt.executeUpdate();
             
@@ -50,17 +98,34 @@ public class TransactionDAO {
                 if (generatedKeys.next()) {
                     transaction.setTransactionId(generatedKeys.getInt(1));
                 }
+                SpendRollupDAO.apply(conn, transaction);
                 return true;
             }
-        } catch (SQLException e) {
-            System.err.println("Error creating transaction: " + e.getMessage());
         }
         return false;
     }
     
+    // Bind INSERT_SQL parameters
+    private static void bindInsert(PreparedStatement pstmt, Transaction transaction) throws SQLException {
+        pstmt.setInt(1, transaction.getUserId());
+        pstmt.setInt(2, transaction.getCardId());
+        pstmt.setInt(3, transaction.getMerchantId());
+        pstmt.setBigDecimal(4, transaction.getAmount());
+        pstmt.setString(5, transaction.getTransactionType().toString());
+        pstmt.setString(6, transaction.getStatus().toString());
+        pstmt.setString(7, transaction.getReferenceCode());
+        pstmt.setString(8, transaction.getDescription());
+        pstmt.setTimestamp(9, Timestamp.valueOf(transaction.getCreatedAt()));
+        pstmt.setString(10, transaction.getIdempotencyKey());
+    }
+    
     // READ - Get transaction by ID
     public Transaction getTransactionById(int transactionId) {
-        String sql = "SELECT * FROM transactions WHERE transaction_id = ?";
+        return GET_TRANSACTION_BY_ID.time(() -> doGetTransactionById(transactionId));
+    }
+    
+    private Transaction doGetTransactionById(int transactionId) {
+        String sql = "SELECT " + COLUMNS + " FROM transactions WHERE transaction_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -72,14 +137,76 @@ public class TransactionDAO {
                 return mapResultSetToTransaction(rs);
             }
         } catch (SQLException e) {
+            GET_TRANSACTION_BY_ID.recordError();
             System.err.println("Error getting transaction by ID: " + e.getMessage());
         }
         return null;
     }
     
+    // READ - Transaction by ID without its description (ownership, refund and status checks)
+    public Transaction getTransactionSummary(int transactionId) {
+        return GET_TRANSACTION_SUMMARY.time(() -> doGetTransactionSummary(transactionId));
+    }
+    
+    private Transaction doGetTransactionSummary(int transactionId) {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM transactions WHERE transaction_id = ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, transactionId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return mapSummary(rs);
+            }
+        } catch (SQLException e) {
+            GET_TRANSACTION_SUMMARY.recordError();
+            System.err.println("Error getting transaction summary: " + e.getMessage());
+        }
+        return null;
+    }
+    
+    // READ - Get a user's transaction by client idempotency key
+    public Transaction getTransactionByIdempotencyKey(int userId, String idempotencyKey) {
+        long start = GET_TRANSACTION_BY_IDEMPOTENCY_KEY.start();
+        try {
+            return doGetTransactionByIdempotencyKey(userId, idempotencyKey);
+        } catch (Exception e) {
+            GET_TRANSACTION_BY_IDEMPOTENCY_KEY.recordError(e);
+            throw e;
+        } finally {
+            GET_TRANSACTION_BY_IDEMPOTENCY_KEY.stop(start);
+        }
+    }
+    
+    private Transaction doGetTransactionByIdempotencyKey(int userId, String idempotencyKey) {
+        String sql = "SELECT " + COLUMNS + " FROM transactions WHERE user_id = ? AND idempotency_key = ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, idempotencyKey);
+            ResultSet rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return mapResultSetToTransaction(rs);
+            }
+        } catch (SQLException e) {
+            GET_TRANSACTION_BY_IDEMPOTENCY_KEY.recordError();
+            System.err.println("Error getting transaction by idempotency key: " + e.getMessage());
+        }
+        return null;
+    }
+    
     // READ - Get all transactions for user
     public List<Transaction> getTransactionsByUserId(int userId) {
-        String sql = "SELECT * FROM transactions WHERE user_id = ? ORDER BY created_at DESC";
+        return GET_TRANSACTIONS_BY_USER_ID.time(() -> doGetTransactionsByUserId(userId));
+    }
+    
+    private List<Transaction> doGetTransactionsByUserId(int userId) {
+        String sql = "SELECT " + COLUMNS + " FROM transactions WHERE user_id = ? ORDER BY created_at DESC";
         List<Transaction> transactions = new ArrayList<>();
         
         try (Connection conn = dbConnection.getConnection();
@@ -92,6 +219,7 @@ public class TransactionDAO {
                 transactions.add(mapResultSetToTransaction(rs));
             }
         } catch (SQLException e) {
+            GET_TRANSACTIONS_BY_USER_ID.recordError();
             System.err.println("Error getting transactions by user ID: " + e.getMessage());
         }
         return transactions;
@@ -99,7 +227,11 @@ public class TransactionDAO {
     
     // READ - Get recent transactions (for dashboard)
     public List<Transaction> getRecentTransactions(int userId, int limit) {
-        String sql = "SELECT * FROM transactions WHERE user_id = ? ORDER BY created_at DESC LIMIT ?";
+        return GET_RECENT_TRANSACTIONS.time(() -> doGetRecentTransactions(userId, limit));
+    }
+    
+    private List<Transaction> doGetRecentTransactions(int userId, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM transactions WHERE user_id = ? ORDER BY created_at DESC LIMIT ?";
         List<Transaction> transactions = new ArrayList<>();
         
         try (Connection conn = dbConnection.getConnection();
@@ -113,40 +245,203 @@ public class TransactionDAO {
                 transactions.add(mapResultSetToTransaction(rs));
             }
         } catch (SQLException e) {
+            GET_RECENT_TRANSACTIONS.recordError();
             System.err.println("Error getting recent transactions: " + e.getMessage());
         }
         return transactions;
     }
     
-
+    // READ - Get one page of transactions for user, newest first (keyset pagination)
+    public TransactionPage getTransactionsPage(int userId, TransactionFilter filter, TransactionPage.Cursor after, int pageSize) {
+        return GET_TRANSACTIONS_PAGE.time(() -> doGetTransactionsPage(userId, filter, after, pageSize));
+    }
     
-
+    private TransactionPage doGetTransactionsPage(int userId, TransactionFilter filter, TransactionPage.Cursor after, int pageSize) {
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM transactions WHERE user_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        appendFilter(sql, params, filter);
+        
+        if (after != null) {
+            // Leading created_at bound keeps the scan on idx_transactions_user_created
+            sql.append(" AND created_at <= ? AND (created_at < ? OR transaction_id < ?)");
+            Timestamp createdAt = Timestamp.valueOf(after.getCreatedAt());
+            params.add(createdAt);
+            params.add(createdAt);
+            params.add(after.getTransactionId());
+        }
+        
+        // One extra row tells whether another page follows
+        sql.append(" ORDER BY created_at DESC, transaction_id DESC LIMIT ?");
+        params.add(pageSize + 1);
+        
+        List<Transaction> transactions = new ArrayList<>(pageSize + 1);
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            
+            setParameters(pstmt, params);
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                transactions.add(mapResultSetToTransaction(rs));
+            }
+        } catch (SQLException e) {
+            GET_TRANSACTIONS_PAGE.recordError();
+            System.err.println("Error getting transactions page: " + e.getMessage());
+            return TransactionPage.empty();
+        }
+        
+        if (transactions.size() > pageSize) {
+            transactions.remove(pageSize);
+            return new TransactionPage(transactions, TransactionPage.Cursor.after(transactions.get(pageSize - 1)));
+        }
+        return new TransactionPage(transactions, null);
+    }
     
-
+    // READ - Count transactions for user matching a filter
+    public int countTransactions(int userId, TransactionFilter filter) {
+        return COUNT_TRANSACTIONS.time(() -> doCountTransactions(userId, filter));
+    }
     
-    // ANALYTICS - Get daily spending for user
-    public BigDecimal getDailySpent(int userId) {
-        String sql = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE user_id = ? AND status = 'SUCCESS' AND DATE(created_at) = CURRENT_DATE";
+    private int doCountTransactions(int userId, TransactionFilter filter) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM transactions WHERE user_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        appendFilter(sql, params, filter);
         
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
             
-            pstmt.setInt(1, userId);
+            setParameters(pstmt, params);
             ResultSet rs = pstmt.executeQuery();
             
             if (rs.next()) {
-                return rs.getBigDecimal(1);
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            COUNT_TRANSACTIONS.recordError();
+            System.err.println("Error counting transactions: " + e.getMessage());
+        }
+        return 0;
+    }
+    
+    // READ - Stream transactions for user through a forward-only cursor, newest first
+    // The handler returns false to stop early; rows are never collected in memory
+    public boolean streamTransactions(int userId, TransactionFilter filter, int fetchSize, Predicate<Transaction> handler) {
+        return STREAM_TRANSACTIONS.time(() -> doStreamTransactions(userId, filter, fetchSize, handler));
+    }
+    
+    private boolean doStreamTransactions(int userId, TransactionFilter filter, int fetchSize, Predicate<Transaction> handler) {
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM transactions WHERE user_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        appendFilter(sql, params, filter);
+        sql.append(" ORDER BY created_at DESC, transaction_id DESC");
+        
+        try (Connection conn = dbConnection.getConnection()) {
+            // H2 materializes embedded results unless lazy execution is on for the session;
+            // the pool turns it off again when the connection is returned
+            try (Statement session = conn.createStatement()) {
+                session.execute("SET LAZY_QUERY_EXECUTION TRUE");
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(fetchSize);
+                setParameters(pstmt, params);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.setFetchSize(fetchSize);
+                    while (rs.next()) {
+                        if (!handler.test(mapResultSetToTransaction(rs))) {
+                            break;
+                        }
+                    }
+                }
+                return true;
             }
         } catch (SQLException e) {
-            System.err.println("Error getting daily spent: " + e.getMessage());
+            STREAM_TRANSACTIONS.recordError();
+            System.err.println("Error streaming transactions: " + e.getMessage());
         }
-        return BigDecimal.ZERO;
+        return false;
+    }
+    
+    // Helper method to append filter predicates shared by the page and count queries
+    private void appendFilter(StringBuilder sql, List<Object> params, TransactionFilter filter) {
+        if (filter == null) {
+            return;
+        }
+        if (filter.getType() != null) {
+            sql.append(" AND transaction_type = ?");
+            params.add(filter.getType().toString());
+        }
+        if (filter.getSince() != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(filter.getSince()));
+        }
+        if (filter.getSearchText() != null) {
+            sql.append(" AND (LOWER(description) LIKE ? ESCAPE '\\' OR CAST(amount AS VARCHAR) LIKE ? ESCAPE '\\'" +
+                       " OR LOWER(transaction_type) LIKE ? ESCAPE '\\' OR LOWER(status) LIKE ? ESCAPE '\\')");
+            String pattern = "%" + escapeLike(filter.getSearchText().toLowerCase()) + "%";
+            for (int i = 0; i < 4; i++) {
+                params.add(pattern);
+            }
+        }
+    }
+    
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    private static void setParameters(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+    
+
+    
+
+    
+
+    
+    // ANALYTICS - Get daily spending for user (running counter, no table scan)
+    public BigDecimal getDailySpent(int userId) {
+        return GET_DAILY_SPENT.time(() -> doGetDailySpent(userId));
+    }
+    
+    private BigDecimal doGetDailySpent(int userId) {
+        return DailySpendTracker.getInstance().getDailySpent(userId);
     }
     
 
     
+    // Maps a SUMMARY_COLUMNS row by position; description and idempotency key stay null
+    static Transaction mapSummary(ResultSet rs) throws SQLException {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(rs.getInt(1));
+        transaction.setUserId(rs.getInt(2));
+        transaction.setCardId(rs.getInt(3));
+        transaction.setMerchantId(rs.getInt(4));
+        transaction.setAmount(rs.getBigDecimal(5));
+        transaction.setTransactionType(TransactionType.valueOf(rs.getString(6)));
+        transaction.setStatus(TransactionStatus.valueOf(rs.getString(7)));
+        transaction.setReferenceCode(rs.getString(8));
+        
+        Timestamp createdAt = rs.getTimestamp(9);
+        if (createdAt != null) {
+            transaction.setCreatedAt(createdAt.toLocalDateTime());
+        }
+        
+        Timestamp processedAt = rs.getTimestamp(10);
+        if (processedAt != null) {
+            transaction.setProcessedAt(processedAt.toLocalDateTime());
+        }
+        return transaction;
+    }
+    
     // Helper method to map ResultSet to Transaction object
-    private Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
+    static Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
         Transaction transaction = new Transaction();
         transaction.setTransactionId(rs.getInt("transaction_id"));
         transaction.setUserId(rs.getInt("user_id"));
@@ -168,6 +463,7 @@ public class TransactionDAO {
             transaction.setProcessedAt(processedAt.toLocalDateTime());
         }
         
+        transaction.setIdempotencyKey(rs.getString("idempotency_key"));
         return transaction;
     }
 }
\ No newline at end of file
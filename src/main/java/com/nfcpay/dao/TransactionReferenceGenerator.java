@@ -0,0 +1,273 @@
+package com.nfcpay.dao;
+
+import java.lang.management.ManagementFactory;
+import java.sql.*;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style transaction reference codes
+ * Each id packs milliseconds since 2024-01-01 (41 bits), a node id (10 bits)
+ * and a per-millisecond sequence (12 bits). Ids are issued lock-free from one
+ * atomic counter, so they are unique and increasing within a JVM, and the
+ * node id keeps JVMs sharing the database apart.
+ * Node ids are leased from node_leases and kept alive by a heartbeat; a lease
+ * whose heartbeat is older than db.nodeLease.seconds (or that was released at
+ * shutdown) is handed to the next JVM. When all 1024 are live, startup fails.
+ * Each lease row keeps the last stamp its holder issued, and a new holder
+ * continues after it, so ids stay unique even when the previous holder's
+ * stamp had run ahead of the clock.
+ */
+public class TransactionReferenceGenerator {
+    private static TransactionReferenceGenerator instance;
+
+    public static final String NODE_ID_PROPERTY = "nfcpay.nodeId";
+    static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS node_leases (" +
+        "node_id INTEGER PRIMARY KEY, " +
+        "owner VARCHAR(100) NOT NULL, " +
+        "heartbeat TIMESTAMP NOT NULL, " +
+        "last_stamp BIGINT DEFAULT 0 NOT NULL)";
+    // For node_leases tables created before last_stamp was kept
+    static final String ADD_LAST_STAMP_SQL = "ALTER TABLE node_leases ADD COLUMN IF NOT EXISTS last_stamp BIGINT DEFAULT 0 NOT NULL";
+
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    // 63-bit ids are at most 13 base-36 digits; fixed width keeps string order equal to id order
+    private static final int CODE_LENGTH = 13;
+
+    private final DatabaseConnection dbConnection;
+    private final String owner;
+    private final long leaseMillis;
+    // References stop a full heartbeat period before another JVM could take the lease over
+    private final long issueWindowMillis;
+    private volatile long nodeId;
+    private volatile long nodeBits;
+    // Wall-clock time just before the last successful claim or heartbeat; Long.MAX_VALUE for a configured id
+    private volatile long leaseRenewedAt;
+    private ScheduledExecutorService heartbeat;
+    private boolean released;
+    // Last issued (timestamp << SEQUENCE_BITS | sequence)
+    private final AtomicLong lastStamp = new AtomicLong();
+
+    // Package-private so tests can run several generators against one database, as separate JVMs would
+    TransactionReferenceGenerator() {
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(Math.max(5, dbConnection.getIntSetting("db.nodeLease.seconds", 60)));
+        long period = leaseMillis / 3;
+        this.issueWindowMillis = leaseMillis - period;
+
+        Long configured = configuredNodeId();
+        if (configured != null) {
+            // Operator-assigned ids bypass leasing; they must not overlap leased ones
+            setNode(configured);
+            this.leaseRenewedAt = Long.MAX_VALUE;
+            return;
+        }
+
+        long claimedAt = System.currentTimeMillis();
+        setNode(claimLease());
+        this.leaseRenewedAt = claimedAt;
+
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "nfcpay-node-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::renewLease, period, period, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::releaseLease, "nfcpay-node-lease-release"));
+    }
+
+    /**
+     * The shared generator; throws IllegalStateException if no node id can be claimed
+     */
+    public static synchronized TransactionReferenceGenerator getInstance() {
+        if (instance == null) {
+            instance = new TransactionReferenceGenerator();
+        }
+        return instance;
+    }
+
+    /**
+     * Next reference code: "TXN" followed by 13 upper-case base-36 characters
+     */
+    public String nextReference() {
+        String digits = Long.toString(nextId(), 36).toUpperCase();
+        StringBuilder code = new StringBuilder(3 + CODE_LENGTH).append("TXN");
+        for (int i = digits.length(); i < CODE_LENGTH; i++) {
+            code.append('0');
+        }
+        return code.append(digits).toString();
+    }
+
+    public long getNodeId() { return nodeId; }
+
+    // Called by DatabaseConnection.shutdown() while the pool is still open
+    static synchronized void releaseInstance() {
+        if (instance != null) {
+            instance.releaseLease();
+        }
+    }
+
+    // When a millisecond's 4096 sequence values run out (or the clock steps back) the stamp
+    // moves ahead of the wall clock instead of waiting, and the clock catches up later
+    long nextId() {
+        long nowMillis = System.currentTimeMillis();
+        if (nowMillis - leaseRenewedAt > issueWindowMillis) {
+            // Another JVM may soon hold this node id
+            throw new IllegalStateException("Node id lease " + nodeId + " is about to expire without renewal; refusing to issue references");
+        }
+        long now = (nowMillis - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long stamp;
+        long last;
+        do {
+            last = lastStamp.get();
+            stamp = Math.max(now, last + 1);
+        } while (!lastStamp.compareAndSet(last, stamp));
+
+        long timestamp = stamp >>> SEQUENCE_BITS;
+        long sequence = stamp & ((1L << SEQUENCE_BITS) - 1);
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | sequence;
+    }
+
+    private void setNode(long id) {
+        this.nodeId = id;
+        this.nodeBits = id << SEQUENCE_BITS;
+    }
+
+    // -Dnfcpay.nodeId, or null when unset; values outside 0-1023 are rejected rather than masked
+    private static Long configuredNodeId() {
+        String configured = System.getProperty(NODE_ID_PROPERTY);
+        if (configured == null) {
+            return null;
+        }
+        long id;
+        try {
+            id = Long.parseLong(configured.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid " + NODE_ID_PROPERTY + " '" + configured + "'", e);
+        }
+        if (id < 0 || id > MAX_NODE_ID) {
+            throw new IllegalStateException(NODE_ID_PROPERTY + " must be between 0 and " + MAX_NODE_ID + ", got " + id);
+        }
+        return id;
+    }
+
+    // Take over the lowest expired or released lease, else add the next unused node id,
+    // then continue after the last stamp issued under that node id
+    private long claimLease() {
+        String expiredSql = "SELECT node_id FROM node_leases WHERE heartbeat < DATEADD(MILLISECOND, ?, CURRENT_TIMESTAMP) ORDER BY node_id";
+        String takeSql = "UPDATE node_leases SET owner = ?, heartbeat = CURRENT_TIMESTAMP " +
+                         "WHERE node_id = ? AND heartbeat < DATEADD(MILLISECOND, ?, CURRENT_TIMESTAMP)";
+        String addSql = "INSERT INTO node_leases (node_id, owner, heartbeat) " +
+                        "SELECT COALESCE(MAX(node_id) + 1, 0), ?, CURRENT_TIMESTAMP FROM node_leases " +
+                        "HAVING COALESCE(MAX(node_id) + 1, 0) <= " + MAX_NODE_ID;
+        String ownSql = "SELECT node_id, last_stamp FROM node_leases WHERE owner = ?";
+
+        try (Connection conn = dbConnection.getConnection()) {
+            // A few rounds absorb other JVMs claiming the same row at the same moment
+            for (int attempt = 0; attempt < 5; attempt++) {
+                if (takeExpired(conn, expiredSql, takeSql)) {
+                    return ownLease(conn, ownSql);
+                }
+
+                try (PreparedStatement add = conn.prepareStatement(addSql)) {
+                    add.setString(1, owner);
+                    if (add.executeUpdate() == 0) {
+                        throw new IllegalStateException("All " + (MAX_NODE_ID + 1) + " node ids are leased by live processes");
+                    }
+                } catch (SQLException e) {
+                    // Primary key clash with a concurrent claim; look again
+                    continue;
+                }
+                return ownLease(conn, ownSql);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error claiming a node id lease: " + e.getMessage(), e);
+        }
+        throw new IllegalStateException("Could not claim a node id lease after repeated conflicts");
+    }
+
+    private boolean takeExpired(Connection conn, String expiredSql, String takeSql) throws SQLException {
+        try (PreparedStatement expired = conn.prepareStatement(expiredSql)) {
+            expired.setLong(1, -leaseMillis);
+            ResultSet rs = expired.executeQuery();
+            while (rs.next()) {
+                try (PreparedStatement take = conn.prepareStatement(takeSql)) {
+                    take.setString(1, owner);
+                    take.setInt(2, rs.getInt(1));
+                    take.setLong(3, -leaseMillis);
+                    if (take.executeUpdate() == 1) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private long ownLease(Connection conn, String ownSql) throws SQLException {
+        try (PreparedStatement own = conn.prepareStatement(ownSql)) {
+            own.setString(1, owner);
+            ResultSet rs = own.executeQuery();
+            rs.next();
+            long previousStamp = rs.getLong(2);
+            lastStamp.accumulateAndGet(previousStamp, Math::max);
+            return rs.getInt(1);
+        }
+    }
+
+    // The stamp is saved with each heartbeat too, so a JVM that dies without releasing
+    // leaves its successor a starting point no older than one heartbeat period
+    private void renewLease() {
+        String sql = "UPDATE node_leases SET heartbeat = CURRENT_TIMESTAMP, last_stamp = ? WHERE node_id = ? AND owner = ?";
+
+        // Taken before the update: the lease runs from no earlier than this moment
+        long renewedAt = System.currentTimeMillis();
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, lastStamp.get());
+            pstmt.setLong(2, nodeId);
+            pstmt.setString(3, owner);
+            if (pstmt.executeUpdate() == 1) {
+                leaseRenewedAt = renewedAt;
+                return;
+            }
+            // Lost the lease (e.g. after a long pause); move to a fresh node id
+            System.err.println("Node id lease " + nodeId + " was taken over, claiming a new one");
+            setNode(claimLease());
+            leaseRenewedAt = renewedAt;
+        } catch (SQLException | IllegalStateException e) {
+            System.err.println("Error renewing node id lease: " + e.getMessage());
+        }
+    }
+
+    // Expire the lease at shutdown so the next JVM can reuse the node id at once; the
+    // saved stamp, not the backdated heartbeat, is what orders its ids after ours
+    synchronized void releaseLease() {
+        if (heartbeat == null || released) {
+            return;
+        }
+        released = true;
+        heartbeat.shutdownNow();
+        String sql = "UPDATE node_leases SET heartbeat = TIMESTAMP '1970-01-01 00:00:00', last_stamp = ? WHERE node_id = ? AND owner = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, lastStamp.get());
+            pstmt.setLong(2, nodeId);
+            pstmt.setString(3, owner);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error releasing node id lease: " + e.getMessage());
+        }
+    }
+}
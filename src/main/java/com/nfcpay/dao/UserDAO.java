@@ -1,6 +1,9 @@
 package com.nfcpay.dao;
 
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
 import com.nfcpay.model.User;
+import com.nfcpay.model.UserStatus;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -12,14 +15,33 @@ import java.util.List;
  * Uses PreparedStatements to prevent SQL injection
  */
 public class UserDAO {
+    private static final Timer CREATE_USER = MetricsRegistry.timer("dao.UserDAO.createUser");
+    private static final Timer GET_USER_BY_ID = MetricsRegistry.timer("dao.UserDAO.getUserById");
+    private static final Timer GET_USER_BY_EMAIL = MetricsRegistry.timer("dao.UserDAO.getUserByEmail");
+    private static final Timer UPDATE_USER = MetricsRegistry.timer("dao.UserDAO.updateUser");
+    private static final Timer UPDATE_LAST_LOGIN = MetricsRegistry.timer("dao.UserDAO.updateLastLogin");
+    private static final Timer UPDATE_PASSWORD = MetricsRegistry.timer("dao.UserDAO.updatePassword");
+    private static final Timer EMAIL_EXISTS = MetricsRegistry.timer("dao.UserDAO.emailExists");
+    private static final Timer GET_USER_STATUS = MetricsRegistry.timer("dao.UserDAO.getUserStatus");
+    private static final Timer DEACTIVATE_USER = MetricsRegistry.timer("dao.UserDAO.deactivateUser");
+    
+    // Columns the full-row mapper reads
+    static final String COLUMNS = "user_id, full_name, email, password_hash, phone, is_active, created_at, last_login";
+    
     private DatabaseConnection dbConnection;
+    private final UserStatusCache statusCache;
     
     public UserDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.statusCache = UserStatusCache.getInstance();
     }
     
     // CREATE - Insert new user
     public boolean createUser(User user) {
+        return CREATE_USER.time(() -> doCreateUser(user));
+    }
+    
+    private boolean doCreateUser(User user) {
         String sql = "INSERT INTO users (full_name, email, password_hash, phone, is_active, created_at) VALUES (?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = dbConnection.getConnection();
@@ -42,6 +64,7 @@ public class UserDAO {
                 return true;
             }
         } catch (SQLException e) {
+            CREATE_USER.recordError();
             System.err.println("Error creating user: " + e.getMessage());
         }
         return false;
@@ -49,7 +72,11 @@ public class UserDAO {
     
     // READ - Get user by ID
     public User getUserById(int userId) {
-        String sql = "SELECT * FROM users WHERE user_id = ?";
+        return GET_USER_BY_ID.time(() -> doGetUserById(userId));
+    }
+    
+    private User doGetUserById(int userId) {
+        String sql = "SELECT " + COLUMNS + " FROM users WHERE user_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -61,14 +88,59 @@ public class UserDAO {
                 return mapResultSetToUser(rs);
             }
         } catch (SQLException e) {
+            GET_USER_BY_ID.recordError();
             System.err.println("Error getting user by ID: " + e.getMessage());
         }
         return null;
     }
     
+    // READ - Active flag, email and name by ID (cached; never loads the password hash)
+    public UserStatus getUserStatus(int userId) {
+        long start = GET_USER_STATUS.start();
+        try {
+            return doGetUserStatus(userId);
+        } catch (Exception e) {
+            GET_USER_STATUS.recordError(e);
+            throw e;
+        } finally {
+            GET_USER_STATUS.stop(start);
+        }
+    }
+    
+    private UserStatus doGetUserStatus(int userId) {
+        UserStatus cached = statusCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        
+        String sql = "SELECT is_active, email, full_name FROM users WHERE user_id = ?";
+        long generation = statusCache.generation(userId);
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                UserStatus status = new UserStatus(userId, rs.getBoolean(1), rs.getString(2), rs.getString(3));
+                statusCache.putIfUnchanged(status, generation);
+                return status;
+            }
+        } catch (SQLException e) {
+            GET_USER_STATUS.recordError();
+            System.err.println("Error getting user status: " + e.getMessage());
+        }
+        return null;
+    }
+    
     // READ - Get user by email (for authentication)
     public User getUserByEmail(String email) {
-        String sql = "SELECT * FROM users WHERE email = ? AND is_active = true";
+        return GET_USER_BY_EMAIL.time(() -> doGetUserByEmail(email));
+    }
+    
+    private User doGetUserByEmail(String email) {
+        String sql = "SELECT " + COLUMNS + " FROM users WHERE email = ? AND is_active = true";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -80,6 +152,7 @@ public class UserDAO {
                 return mapResultSetToUser(rs);
             }
         } catch (SQLException e) {
+            GET_USER_BY_EMAIL.recordError();
             System.err.println("Error getting user by email: " + e.getMessage());
         }
         return null;
@@ -89,6 +162,10 @@ public class UserDAO {
     
     // UPDATE - Update user information
     public boolean updateUser(User user) {
+        return UPDATE_USER.time(() -> doUpdateUser(user));
+    }
+    
+    private boolean doUpdateUser(User user) {
         String sql = "UPDATE users SET full_name = ?, email = ?, phone = ? WHERE user_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
@@ -99,8 +176,11 @@ public class UserDAO {
             pstmt.setString(3, user.getPhone());
             pstmt.setInt(4, user.getUserId());
             
-            return pstmt.executeUpdate() > 0;
+            boolean updated = pstmt.executeUpdate() > 0;
+            statusCache.invalidate(user.getUserId());
+            return updated;
         } catch (SQLException e) {
+            UPDATE_USER.recordError();
             System.err.println("Error updating user: " + e.getMessage());
         }
         return false;
@@ -108,6 +188,10 @@ public class UserDAO {
     
     // UPDATE - Update last login timestamp
     public boolean updateLastLogin(int userId) {
+        return UPDATE_LAST_LOGIN.time(() -> doUpdateLastLogin(userId));
+    }
+    
+    private boolean doUpdateLastLogin(int userId) {
         String sql = "UPDATE users SET last_login = CURRENT_TIMESTAMP WHERE user_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
@@ -116,6 +200,7 @@ public class UserDAO {
             pstmt.setInt(1, userId);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
+            UPDATE_LAST_LOGIN.recordError();
             System.err.println("Error updating last login: " + e.getMessage());
         }
         return false;
@@ -123,6 +208,10 @@ public class UserDAO {
     
     // UPDATE - Change password
     public boolean updatePassword(int userId, String newPasswordHash) {
+        return UPDATE_PASSWORD.time(() -> doUpdatePassword(userId, newPasswordHash));
+    }
+    
+    private boolean doUpdatePassword(int userId, String newPasswordHash) {
         String sql = "UPDATE users SET password_hash = ? WHERE user_id = ?";
         
         try (Connection conn = dbConnection.getConnection();
@@ -131,8 +220,36 @@ public class UserDAO {
             pstmt.setString(1, newPasswordHash);
             pstmt.setInt(2, userId);
             
-            return pstmt.executeUpdate() > 0;
+            boolean updated = pstmt.executeUpdate() > 0;
+            statusCache.invalidate(userId);
+            return updated;
+        } catch (SQLException e) {
+            UPDATE_PASSWORD.recordError();
+            System.err.println("Error updating password: " + e.getMessage());
+        }
+        return false;
+    }
+    
+    // UPDATE - Replace the password hash only if it is still expectedHash (false if it changed meanwhile)
+    public boolean updatePassword(int userId, String newPasswordHash, String expectedHash) {
+        return UPDATE_PASSWORD.time(() -> doUpdatePassword(userId, newPasswordHash, expectedHash));
+    }
+    
+    private boolean doUpdatePassword(int userId, String newPasswordHash, String expectedHash) {
+        String sql = "UPDATE users SET password_hash = ? WHERE user_id = ? AND password_hash = ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, newPasswordHash);
+            pstmt.setInt(2, userId);
+            pstmt.setString(3, expectedHash);
+            
+            boolean updated = pstmt.executeUpdate() > 0;
+            statusCache.invalidate(userId);
+            return updated;
         } catch (SQLException e) {
+            UPDATE_PASSWORD.recordError();
             System.err.println("Error updating password: " + e.getMessage());
         }
         return false;
@@ -140,8 +257,35 @@ public class UserDAO {
     
 
     
+    // UPDATE - Deactivate account
+    public boolean deactivateUser(int userId) {
+        return DEACTIVATE_USER.time(() -> doDeactivateUser(userId));
+    }
+    
+    private boolean doDeactivateUser(int userId) {
+        String sql = "UPDATE users SET is_active = false WHERE user_id = ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, userId);
+            
+            boolean updated = pstmt.executeUpdate() > 0;
+            statusCache.invalidate(userId);
+            return updated;
+        } catch (SQLException e) {
+            DEACTIVATE_USER.recordError();
+            System.err.println("Error deactivating user: " + e.getMessage());
+        }
+        return false;
+    }
+    
     // VALIDATION - Check if email exists
     public boolean emailExists(String email) {
+        return EMAIL_EXISTS.time(() -> doEmailExists(email));
+    }
+    
+    private boolean doEmailExists(String email) {
         String sql = "SELECT COUNT(*) FROM users WHERE email = ?";
         
         try (Connection conn = dbConnection.getConnection();
@@ -154,6 +298,7 @@ public class UserDAO {
                 return rs.getInt(1) > 0;
             }
         } catch (SQLException e) {
+            EMAIL_EXISTS.recordError();
             System.err.println("Error checking email existence: " + e.getMessage());
         }
         return false;
@@ -0,0 +1,70 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.model.UserStatus;
+import com.nfcpay.util.BoundedTtlCache;
+
+/**
+ * User status (active flag, email, name) by user id, shared by all UserDAO instances
+ * Bounded LRU with a time-to-live; UserDAO invalidates an entry on every write to
+ * the user, so the active-user check on hot paths is a map read
+ */
+public class UserStatusCache {
+    private static UserStatusCache instance;
+
+    private static final int MAX_ENTRIES = 50_000;
+    private static final long TTL_MILLIS = 60_000;
+
+    private final BoundedTtlCache<Integer, UserStatus> entries = new BoundedTtlCache<>(MAX_ENTRIES, TTL_MILLIS);
+
+    private UserStatusCache() {}
+
+    public static synchronized UserStatusCache getInstance() {
+        if (instance == null) {
+            instance = new UserStatusCache();
+            MetricsRegistry.gauge("userStatusCache.size", instance::size);
+            MetricsRegistry.gauge("userStatusCache.hitRate", instance::getHitRate);
+        }
+        return instance;
+    }
+
+    /**
+     * Cached status, or null on miss/expiry
+     */
+    public UserStatus get(int userId) {
+        return entries.get(userId);
+    }
+
+    /**
+     * Token to pass to putIfUnchanged; take it before reading from the database
+     */
+    public long generation(int userId) {
+        return entries.generation(userId);
+    }
+
+    /**
+     * Cache a freshly loaded status unless the user was written since the token was taken
+     */
+    public void putIfUnchanged(UserStatus status, long generation) {
+        entries.putIfUnchanged(status.getUserId(), status, generation);
+    }
+
+    /**
+     * Drop a user whose row has changed
+     */
+    public void invalidate(int userId) {
+        entries.invalidate(userId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public double getHitRate() {
+        return entries.getHitRate();
+    }
+}
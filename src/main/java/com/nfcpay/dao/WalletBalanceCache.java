@@ -0,0 +1,97 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.model.Wallet;
+import com.nfcpay.util.BoundedTtlCache;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Write-through wallet cache shared by all WalletDAO instances
+ * Bounded LRU with a time-to-live; balance writes made through the DAOs
+ * are applied to the cached entry so payment-path reads stay in memory
+ */
+public class WalletBalanceCache {
+    private static WalletBalanceCache instance;
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TTL_MILLIS = 60_000;
+
+    // Holds private copies; Wallet is mutable, so callers only ever see copies
+    private final BoundedTtlCache<Integer, Wallet> entries = new BoundedTtlCache<>(MAX_ENTRIES, TTL_MILLIS);
+
+    private WalletBalanceCache() {}
+
+    public static synchronized WalletBalanceCache getInstance() {
+        if (instance == null) {
+            instance = new WalletBalanceCache();
+            MetricsRegistry.gauge("walletCache.size", instance::size);
+            MetricsRegistry.gauge("walletCache.hitRate", instance::getHitRate);
+        }
+        return instance;
+    }
+
+    /**
+     * Cached wallet copy, or null on miss/expiry
+     */
+    public Wallet get(int userId) {
+        Wallet cached = entries.get(userId);
+        return cached != null ? copy(cached, cached.getBalance(), cached.getUpdatedAt()) : null;
+    }
+
+    /**
+     * Token to pass to putIfUnchanged; take it before reading from the database
+     */
+    public long generation(int userId) {
+        return entries.generation(userId);
+    }
+
+    /**
+     * Cache a freshly loaded wallet unless a write to it happened since the token was taken
+     */
+    public void putIfUnchanged(Wallet wallet, long generation) {
+        entries.putIfUnchanged(wallet.getUserId(), copy(wallet, wallet.getBalance(), wallet.getUpdatedAt()), generation);
+    }
+
+    /**
+     * Write-through of a committed balance change
+     */
+    public void applyDelta(int userId, BigDecimal delta) {
+        entries.update(userId, cached -> copy(cached, cached.getBalance().add(delta), LocalDateTime.now()));
+    }
+
+    /**
+     * Drop a wallet whose database state is unknown (e.g. after a failed write)
+     */
+    public void invalidate(int userId) {
+        entries.invalidate(userId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static Wallet copy(Wallet wallet, BigDecimal balance, LocalDateTime updatedAt) {
+        return new Wallet(wallet.getWalletId(), wallet.getUserId(), balance, wallet.getCurrency(), wallet.getCreatedAt(), updatedAt);
+    }
+
+    // Cache statistics
+    public int size() { return entries.size(); }
+    public long getHits() { return entries.getHits(); }
+    public long getMisses() { return entries.getMisses(); }
+    public long getEvictions() { return entries.getEvictions(); }
+    public long getExpirations() { return entries.getExpirations(); }
+    public double getHitRate() { return entries.getHitRate(); }
+
+    @Override
+    public String toString() {
+        return "WalletBalanceCache{" +
+                "size=" + size() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", hitRate=" + String.format("%.3f", getHitRate()) +
+                ", evictions=" + getEvictions() +
+                ", expirations=" + getExpirations() +
+                '}';
+    }
+}
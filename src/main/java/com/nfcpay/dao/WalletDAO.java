@@ -1,5 +1,7 @@
 package com.nfcpay.dao;
 
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
 import com.nfcpay.model.Wallet;
 import com.nfcpay.model.enums.Currency;
 import java.math.BigDecimal;
@@ -10,16 +12,33 @@ import java.time.LocalDateTime;
  * Wallet Data Access Object
  * Handles all database operations for wallets table
  * Uses PreparedStatements to prevent SQL injection
+ * Reads are served from the shared WalletBalanceCache when possible
  */
 public class WalletDAO {
+    private static final Timer CREATE_WALLET = MetricsRegistry.timer("dao.WalletDAO.createWallet");
+    private static final Timer GET_WALLET_BY_USER_ID = MetricsRegistry.timer("dao.WalletDAO.getWalletByUserId");
+    private static final Timer GET_BALANCE = MetricsRegistry.timer("dao.WalletDAO.getBalance");
+    private static final Timer ADD_FUNDS = MetricsRegistry.timer("dao.WalletDAO.addFunds");
+    private static final Timer DEDUCT_FUNDS = MetricsRegistry.timer("dao.WalletDAO.deductFunds");
+    private static final Timer HAS_SUFFICIENT_BALANCE = MetricsRegistry.timer("dao.WalletDAO.hasSufficientBalance");
+    
+    // Columns the full-row mapper reads
+    static final String COLUMNS = "wallet_id, user_id, balance, currency, created_at, updated_at";
+    
     private DatabaseConnection dbConnection;
+    private final WalletBalanceCache balanceCache;
     
     public WalletDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.balanceCache = WalletBalanceCache.getInstance();
     }
     
     // CREATE - Create new wallet for user
     public boolean createWallet(Wallet wallet) {
+        return CREATE_WALLET.time(() -> doCreateWallet(wallet));
+    }
+    
+    private boolean doCreateWallet(Wallet wallet) {
         String sql = "INSERT INTO wallets (user_id, balance, currency, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
         
         try (Connection conn = dbConnection.getConnection();
@@ -38,9 +57,11 @@ public class WalletDAO {
                 if (generatedKeys.next()) {
                     wallet.setWalletId(generatedKeys.getInt(1));
                 }
+                balanceCache.invalidate(wallet.getUserId());
                 return true;
             }
         } catch (SQLException e) {
+            CREATE_WALLET.recordError();
             System.err.println("Error creating wallet: " + e.getMessage());
         }
         return false;
@@ -48,7 +69,25 @@ public class WalletDAO {
     
     // READ - Get wallet by user ID
     public Wallet getWalletByUserId(int userId) {
-        String sql = "SELECT * FROM wallets WHERE user_id = ?";
+        long start = GET_WALLET_BY_USER_ID.start();
+        try {
+            return doGetWalletByUserId(userId);
+        } catch (Exception e) {
+            GET_WALLET_BY_USER_ID.recordError(e);
+            throw e;
+        } finally {
+            GET_WALLET_BY_USER_ID.stop(start);
+        }
+    }
+    
+    private Wallet doGetWalletByUserId(int userId) {
+        Wallet cached = balanceCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        
+        String sql = "SELECT " + COLUMNS + " FROM wallets WHERE user_id = ?";
+        long generation = balanceCache.generation(userId);
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -57,9 +96,12 @@ public class WalletDAO {
             ResultSet rs = pstmt.executeQuery();
             
             if (rs.next()) {
-                return mapResultSetToWallet(rs);
+                Wallet wallet = mapResultSetToWallet(rs);
+                balanceCache.putIfUnchanged(wallet, generation);
+                return wallet;
             }
         } catch (SQLException e) {
+            GET_WALLET_BY_USER_ID.recordError();
             System.err.println("Error getting wallet by user ID: " + e.getMessage());
         }
         return null;
@@ -69,78 +111,117 @@ public class WalletDAO {
     
     // READ - Get current balance
     public BigDecimal getBalance(int userId) {
-        String sql = "SELECT balance FROM wallets WHERE user_id = ?";
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getBigDecimal("balance");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting balance: " + e.getMessage());
+        long start = GET_BALANCE.start();
+        try {
+            return doGetBalance(userId);
+        } catch (Exception e) {
+            GET_BALANCE.recordError(e);
+            throw e;
+        } finally {
+            GET_BALANCE.stop(start);
         }
-        return BigDecimal.ZERO;
+    }
+    
+    private BigDecimal doGetBalance(int userId) {
+        Wallet wallet = getWalletByUserId(userId);
+        return wallet != null ? wallet.getBalance() : BigDecimal.ZERO;
     }
     
 
     
     // UPDATE - Add funds to wallet
     public boolean addFunds(int userId, BigDecimal amount) {
-        String sql = "UPDATE wallets SET balance = balance + ?, updated_at = CURRENT_TIMESTAMP WHERE user_id = ?";
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setBigDecimal(1, amount);
-            pstmt.setInt(2, userId);
-            
-            return pstmt.executeUpdate() > 0;
+        long start = ADD_FUNDS.start();
+        try {
+            return doAddFunds(userId, amount);
+        } catch (Exception e) {
+            ADD_FUNDS.recordError(e);
+            throw e;
+        } finally {
+            ADD_FUNDS.stop(start);
+        }
+    }
+    
+    private boolean doAddFunds(int userId, BigDecimal amount) {
+        try (Connection conn = dbConnection.getConnection()) {
+            if (credit(conn, userId, amount)) {
+                balanceCache.applyDelta(userId, amount);
+                return true;
+            }
         } catch (SQLException e) {
+            ADD_FUNDS.recordError();
             System.err.println("Error adding funds: " + e.getMessage());
         }
+        balanceCache.invalidate(userId);
         return false;
     }
     
     // UPDATE - Deduct funds from wallet
     public boolean deductFunds(int userId, BigDecimal amount) {
+        long start = DEDUCT_FUNDS.start();
+        try {
+            return doDeductFunds(userId, amount);
+        } catch (Exception e) {
+            DEDUCT_FUNDS.recordError(e);
+            throw e;
+        } finally {
+            DEDUCT_FUNDS.stop(start);
+        }
+    }
+    
+    private boolean doDeductFunds(int userId, BigDecimal amount) {
+        try (Connection conn = dbConnection.getConnection()) {
+            if (debit(conn, userId, amount)) { // Ensures sufficient balance
+                balanceCache.applyDelta(userId, amount.negate());
+                return true;
+            }
+        } catch (SQLException e) {
+            DEDUCT_FUNDS.recordError();
+            System.err.println("Error deducting funds: " + e.getMessage());
+        }
+        balanceCache.invalidate(userId);
+        return false;
+    }
+    
+    // UPDATE - Conditional debit on a caller-supplied connection (joins the caller's JDBC transaction)
+    boolean debit(Connection conn, int userId, BigDecimal amount) throws SQLException {
         String sql = "UPDATE wallets SET balance = balance - ?, updated_at = CURRENT_TIMESTAMP WHERE user_id = ? AND balance >= ?";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setBigDecimal(1, amount);
             pstmt.setInt(2, userId);
-            pstmt.setBigDecimal(3, amount); // Ensure sufficient balance
-            
+            pstmt.setBigDecimal(3, amount);
             return pstmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error deducting funds: " + e.getMessage());
         }
-        return false;
     }
     
-
+    // UPDATE - Credit on a caller-supplied connection (joins the caller's JDBC transaction)
+    boolean credit(Connection conn, int userId, BigDecimal amount) throws SQLException {
+        String sql = "UPDATE wallets SET balance = balance + ?, updated_at = CURRENT_TIMESTAMP WHERE user_id = ?";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setBigDecimal(1, amount);
+            pstmt.setInt(2, userId);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
     
     // VALIDATION - Check if user has sufficient balance
     public boolean hasSufficientBalance(int userId, BigDecimal amount) {
-        String sql = "SELECT balance FROM wallets WHERE user_id = ? AND balance >= ?";
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            pstmt.setBigDecimal(2, amount);
-            ResultSet rs = pstmt.executeQuery();
-            
-            return rs.next();
-        } catch (SQLException e) {
-            System.err.println("Error checking sufficient balance: " + e.getMessage());
+        long start = HAS_SUFFICIENT_BALANCE.start();
+        try {
+            return doHasSufficientBalance(userId, amount);
+        } catch (Exception e) {
+            HAS_SUFFICIENT_BALANCE.recordError(e);
+            throw e;
+        } finally {
+            HAS_SUFFICIENT_BALANCE.stop(start);
         }
-        return false;
+    }
+    
+    private boolean doHasSufficientBalance(int userId, BigDecimal amount) {
+        Wallet wallet = getWalletByUserId(userId);
+        return wallet != null && wallet.getBalance().compareTo(amount) >= 0;
     }
     
 
@@ -0,0 +1,14 @@
+package com.nfcpay.exception;
+
+/**
+ * Exception for database errors that cannot be reported as a plain failed result
+ */
+public class DatabaseException extends NFCPayException {
+    public DatabaseException(String errorCode, String message, String userMessage) {
+        super(errorCode, message, userMessage);
+    }
+    
+    public DatabaseException(String errorCode, String message, String userMessage, Throwable cause) {
+        super(errorCode, message, userMessage, cause);
+    }
+}
\ No newline at end of file
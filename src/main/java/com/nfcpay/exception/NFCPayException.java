@@ -21,4 +21,10 @@ public class NFCPayException extends Exception {
     
     public String getErrorCode() { return errorCode; }
     public String getUserMessage() { return userMessage; }
+    
+    /**
+     * Whether this reports an expected outcome (invalid input, a declined payment)
+     * rather than a failure; metrics do not count expected outcomes as errors
+     */
+    public boolean isExpected() { return false; }
 }
\ No newline at end of file
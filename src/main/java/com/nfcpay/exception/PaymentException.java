@@ -1,7 +1,8 @@
 package com.nfcpay.exception;
 
 /**
- * Exception for payment processing errors
+ * Exception for declined payments (insufficient funds, limits, inactive card or account)
+ * Processing failures are reported as DatabaseException instead
  */
 public class PaymentException extends NFCPayException {
     public PaymentException(String errorCode, String message, String userMessage) {
@@ -11,4 +12,7 @@ public class PaymentException extends NFCPayException {
     public PaymentException(String errorCode, String message, String userMessage, Throwable cause) {
         super(errorCode, message, userMessage, cause);
     }
+    
+    @Override
+    public boolean isExpected() { return true; }
 }
\ No newline at end of file
@@ -11,4 +11,7 @@ public class ValidationException extends NFCPayException {
     public ValidationException(String message, Throwable cause) {
         super("VALIDATION_ERROR", message, message, cause);
     }
+    
+    @Override
+    public boolean isExpected() { return true; }
 }
\ No newline at end of file
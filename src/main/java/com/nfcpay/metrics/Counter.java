@@ -0,0 +1,30 @@
+package com.nfcpay.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic event counter; increments are contention-free
+ */
+public final class Counter {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    public long getCount() { return count.sum(); }
+    public String getName() { return name; }
+
+    void reset() {
+        count.reset();
+    }
+}
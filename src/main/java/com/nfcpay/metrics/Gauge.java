@@ -0,0 +1,9 @@
+package com.nfcpay.metrics;
+
+/**
+ * Value sampled when a snapshot is taken, e.g. pool size or cache hit rate
+ */
+@FunctionalInterface
+public interface Gauge {
+    double getValue();
+}
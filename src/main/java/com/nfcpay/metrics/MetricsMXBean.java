@@ -0,0 +1,18 @@
+package com.nfcpay.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics registry, registered as com.nfcpay:type=Metrics
+ */
+public interface MetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, Double> getGauges();
+
+    Map<String, TimerStats> getTimers();
+
+    String getSnapshot();
+
+    void reset();
+}
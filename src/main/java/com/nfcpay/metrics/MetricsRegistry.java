@@ -0,0 +1,166 @@
+package com.nfcpay.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide registry of counters, gauges and timers
+ * Metrics are created once (typically into static final fields) and then
+ * updated without locks or allocation. Exposed over JMX as com.nfcpay:type=Metrics
+ * and, when nfcpay.metrics.reportInterval (seconds) is positive, printed periodically.
+ */
+public class MetricsRegistry {
+    private static MetricsRegistry instance;
+
+    public static final String REPORT_INTERVAL_PROPERTY = "nfcpay.metrics.reportInterval";
+    private static final String OBJECT_NAME = "com.nfcpay:type=Metrics";
+    private static final long DEFAULT_REPORT_INTERVAL_SECONDS = 300;
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reporter;
+
+    private MetricsRegistry() {
+        registerMBean();
+        startReporter(Long.getLong(REPORT_INTERVAL_PROPERTY, DEFAULT_REPORT_INTERVAL_SECONDS));
+    }
+
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+        }
+        return instance;
+    }
+
+    // Shorthands for static field initializers
+    public static Timer timer(String name) {
+        return getInstance().timers.computeIfAbsent(name, Timer::new);
+    }
+
+    public static Counter counter(String name) {
+        return getInstance().counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Register (or replace) a gauge
+     */
+    public static void gauge(String name, Gauge gauge) {
+        getInstance().gauges.put(name, gauge);
+    }
+
+    public Map<String, Long> getCounterValues() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.getCount()));
+        return values;
+    }
+
+    public Map<String, Double> getGaugeValues() {
+        Map<String, Double> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, sample(gauge)));
+        return values;
+    }
+
+    public Map<String, TimerStats> getTimerStats() {
+        Map<String, TimerStats> stats = new TreeMap<>();
+        timers.forEach((name, timer) -> stats.put(name, new TimerStats(timer)));
+        return stats;
+    }
+
+    /**
+     * Text snapshot; timers are ordered by total time spent so the dominant calls come first
+     */
+    public String snapshot() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("=== NFCPay metrics ").append(LocalDateTime.now()).append(" ===\n");
+
+        List<Map.Entry<String, TimerStats>> timed = new ArrayList<>(getTimerStats().entrySet());
+        timed.removeIf(entry -> entry.getValue().getCount() == 0 && entry.getValue().getErrors() == 0);
+        timed.sort((a, b) -> Double.compare(b.getValue().getTotalMillis(), a.getValue().getTotalMillis()));
+        if (!timed.isEmpty()) {
+            out.append(String.format("%-52s %9s %7s %11s %9s %9s %9s %9s%n",
+                "timer", "count", "errors", "total ms", "mean ms", "p50 ms", "p99 ms", "max ms"));
+            for (Map.Entry<String, TimerStats> entry : timed) {
+                TimerStats t = entry.getValue();
+                out.append(String.format("%-52s %9d %7d %11.1f %9.3f %9.3f %9.3f %9.3f%n",
+                    entry.getKey(), t.getCount(), t.getErrors(), t.getTotalMillis(),
+                    t.getMeanMillis(), t.getP50Millis(), t.getP99Millis(), t.getMaxMillis()));
+            }
+        }
+        for (Map.Entry<String, Long> entry : getCounterValues().entrySet()) {
+            out.append(String.format("counter %-44s %d%n", entry.getKey(), entry.getValue()));
+        }
+        for (Map.Entry<String, Double> entry : getGaugeValues().entrySet()) {
+            out.append(String.format("gauge   %-44s %.3f%n", entry.getKey(), entry.getValue()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Clear counters and timers; gauges are live values and are unaffected
+     */
+    public void reset() {
+        counters.values().forEach(Counter::reset);
+        timers.values().forEach(Timer::reset);
+    }
+
+    public synchronized void startReporter(long intervalSeconds) {
+        stopReporter();
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "nfcpay-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.print(snapshot()),
+            intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    private static double sample(Gauge gauge) {
+        try {
+            return gauge.getValue();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBeanAdapter(), new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    private final class MetricsMBeanAdapter implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() { return getCounterValues(); }
+
+        @Override
+        public Map<String, Double> getGauges() { return getGaugeValues(); }
+
+        @Override
+        public Map<String, TimerStats> getTimers() { return getTimerStats(); }
+
+        @Override
+        public String getSnapshot() { return snapshot(); }
+
+        @Override
+        public void reset() { MetricsRegistry.this.reset(); }
+    }
+}
@@ -0,0 +1,92 @@
+package com.nfcpay.metrics;
+
+import com.nfcpay.exception.NFCPayException;
+import com.nfcpay.util.LatencyHistogram;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency timer with an error count
+ * Usage: return TIMER.time(() -> doWork(args)); the lambda allocates when it captures
+ * arguments, so hot paths use long start = TIMER.start(); try { ... } catch (Exception e)
+ * { TIMER.recordError(e); throw e; } finally { TIMER.stop(start); } instead, which does not.
+ * Exceptions count as errors unless they are expected outcomes (NFCPayException.isExpected).
+ */
+public final class Timer {
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(long startNanos) {
+        histogram.recordNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Time a call that returns a value
+     */
+    public <T, E extends Exception> T time(TimedCall<T, E> call) throws E {
+        long start = start();
+        try {
+            return call.call();
+        } catch (Exception e) {
+            recordError(e);
+            throw e;
+        } finally {
+            stop(start);
+        }
+    }
+
+    /**
+     * Time a call that returns nothing
+     */
+    public <E extends Exception> void time(TimedRun<E> run) throws E {
+        long start = start();
+        try {
+            run.run();
+        } catch (Exception e) {
+            recordError(e);
+            throw e;
+        } finally {
+            stop(start);
+        }
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Count an exception as an error unless it is an expected outcome such as a declined payment
+     */
+    public void recordError(Exception e) {
+        if (!(e instanceof NFCPayException && ((NFCPayException) e).isExpected())) {
+            errors.increment();
+        }
+    }
+
+    public String getName() { return name; }
+    public LatencyHistogram getHistogram() { return histogram; }
+    public long getErrorCount() { return errors.sum(); }
+
+    void reset() {
+        histogram.reset();
+        errors.reset();
+    }
+
+    @FunctionalInterface
+    public interface TimedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface TimedRun<E extends Exception> {
+        void run() throws E;
+    }
+}
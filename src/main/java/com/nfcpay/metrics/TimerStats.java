@@ -0,0 +1,35 @@
+package com.nfcpay.metrics;
+
+/**
+ * Point-in-time summary of a timer, in milliseconds
+ */
+public class TimerStats {
+    private final long count;
+    private final long errors;
+    private final double totalMillis;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double maxMillis;
+
+    TimerStats(Timer timer) {
+        this.count = timer.getHistogram().getCount();
+        this.errors = timer.getErrorCount();
+        this.totalMillis = timer.getHistogram().getTotalNanos() / 1_000_000.0;
+        this.meanMillis = timer.getHistogram().getMeanMillis();
+        this.p50Millis = timer.getHistogram().getPercentileMillis(50);
+        this.p99Millis = timer.getHistogram().getPercentileMillis(99);
+        this.p999Millis = timer.getHistogram().getPercentileMillis(99.9);
+        this.maxMillis = timer.getHistogram().getMaxNanos() / 1_000_000.0;
+    }
+
+    public long getCount() { return count; }
+    public long getErrors() { return errors; }
+    public double getTotalMillis() { return totalMillis; }
+    public double getMeanMillis() { return meanMillis; }
+    public double getP50Millis() { return p50Millis; }
+    public double getP99Millis() { return p99Millis; }
+    public double getP999Millis() { return p999Millis; }
+    public double getMaxMillis() { return maxMillis; }
+}
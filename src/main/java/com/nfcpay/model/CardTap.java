@@ -0,0 +1,35 @@
+package com.nfcpay.model;
+
+/**
+ * What an NFC tap resolves to: the card a UID belongs to, its owner and status
+ * The active flag may be stale if another process changed the card; payments
+ * re-check it in the database, so treat it as advisory.
+ */
+public class CardTap {
+    private final String cardUid;
+    private final int cardId;
+    private final int userId;
+    private final boolean active;
+    
+    public CardTap(String cardUid, int cardId, int userId, boolean active) {
+        this.cardUid = cardUid;
+        this.cardId = cardId;
+        this.userId = userId;
+        this.active = active;
+    }
+    
+    public CardTap withActive(boolean active) {
+        return new CardTap(cardUid, cardId, userId, active);
+    }
+    
+    // Getters
+    public String getCardUid() { return cardUid; }
+    public int getCardId() { return cardId; }
+    public int getUserId() { return userId; }
+    public boolean isActive() { return active; }
+    
+    @Override
+    public String toString() {
+        return "CardTap{cardId=" + cardId + ", userId=" + userId + ", active=" + active + "}";
+    }
+}
@@ -0,0 +1,34 @@
+package com.nfcpay.model;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Figures shown on the dashboard, loaded together in one query
+ */
+public class DashboardSummary {
+    private final BigDecimal balance;
+    private final int activeCardCount;
+    private final int monthPaymentCount;
+    private final List<Transaction> recentTransactions;
+    
+    public DashboardSummary(BigDecimal balance, int activeCardCount, int monthPaymentCount, List<Transaction> recentTransactions) {
+        this.balance = balance != null ? balance : BigDecimal.ZERO;
+        this.activeCardCount = activeCardCount;
+        this.monthPaymentCount = monthPaymentCount;
+        this.recentTransactions = recentTransactions != null ? recentTransactions : Collections.emptyList();
+    }
+    
+    // Getters
+    public BigDecimal getBalance() { return balance; }
+    public int getActiveCardCount() { return activeCardCount; }
+    public int getMonthPaymentCount() { return monthPaymentCount; }
+    public List<Transaction> getRecentTransactions() { return recentTransactions; }
+    
+    @Override
+    public String toString() {
+        return "DashboardSummary{balance=" + balance + ", activeCards=" + activeCardCount +
+               ", monthPayments=" + monthPaymentCount + ", recent=" + recentTransactions.size() + "}";
+    }
+}
@@ -21,6 +21,7 @@ public class Transaction {
     private String description;
     private LocalDateTime createdAt;
     private LocalDateTime processedAt;
+    private String idempotencyKey;
     
     // Default constructor
     public Transaction() {}
@@ -114,6 +115,9 @@ public class Transaction {
     public LocalDateTime getProcessedAt() { return processedAt; }
     public void setProcessedAt(LocalDateTime processedAt) { this.processedAt = processedAt; }
     
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+    
     // Business methods
     public void markAsSuccess() {
         this.status = TransactionStatus.SUCCESS;
@@ -0,0 +1,34 @@
+package com.nfcpay.model;
+
+import com.nfcpay.model.enums.TransactionType;
+import java.time.LocalDateTime;
+
+/**
+ * Server-side filter for transaction history queries
+ * Null fields do not restrict the result
+ */
+public class TransactionFilter {
+    private final TransactionType type;
+    private final LocalDateTime since;
+    private final String searchText;
+    
+    public TransactionFilter(TransactionType type, LocalDateTime since, String searchText) {
+        this.type = type;
+        this.since = since;
+        this.searchText = searchText != null && !searchText.trim().isEmpty() ? searchText.trim() : null;
+    }
+    
+    public static TransactionFilter none() {
+        return new TransactionFilter(null, null, null);
+    }
+    
+    // Getters
+    public TransactionType getType() { return type; }
+    public LocalDateTime getSince() { return since; }
+    public String getSearchText() { return searchText; }
+    
+    @Override
+    public String toString() {
+        return "TransactionFilter{type=" + type + ", since=" + since + ", searchText='" + searchText + "'}";
+    }
+}
@@ -0,0 +1,60 @@
+package com.nfcpay.model;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of transaction history, newest first
+ * Pages are addressed by a (created_at, transaction_id) keyset cursor rather than an offset
+ */
+public class TransactionPage {
+    private final List<Transaction> transactions;
+    private final Cursor nextCursor;
+    
+    public TransactionPage(List<Transaction> transactions, Cursor nextCursor) {
+        this.transactions = transactions != null ? transactions : Collections.emptyList();
+        this.nextCursor = nextCursor;
+    }
+    
+    public static TransactionPage empty() {
+        return new TransactionPage(Collections.emptyList(), null);
+    }
+    
+    // Getters
+    public List<Transaction> getTransactions() { return transactions; }
+    public Cursor getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+    public int size() { return transactions.size(); }
+    public boolean isEmpty() { return transactions.isEmpty(); }
+    
+    @Override
+    public String toString() {
+        return "TransactionPage{size=" + transactions.size() + ", hasMore=" + hasMore() + "}";
+    }
+    
+    /**
+     * Position after the last row of a page; the next page starts strictly below it
+     */
+    public static class Cursor {
+        private final LocalDateTime createdAt;
+        private final int transactionId;
+        
+        public Cursor(LocalDateTime createdAt, int transactionId) {
+            this.createdAt = createdAt;
+            this.transactionId = transactionId;
+        }
+        
+        public static Cursor after(Transaction transaction) {
+            return new Cursor(transaction.getCreatedAt(), transaction.getTransactionId());
+        }
+        
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public int getTransactionId() { return transactionId; }
+        
+        @Override
+        public String toString() {
+            return "Cursor{createdAt=" + createdAt + ", transactionId=" + transactionId + "}";
+        }
+    }
+}
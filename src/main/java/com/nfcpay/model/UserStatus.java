@@ -0,0 +1,30 @@
+package com.nfcpay.model;
+
+/**
+ * The user fields non-auth flows need: whether the account is active and who it is
+ * Carries no password hash
+ */
+public class UserStatus {
+    private final int userId;
+    private final boolean active;
+    private final String email;
+    private final String fullName;
+    
+    public UserStatus(int userId, boolean active, String email, String fullName) {
+        this.userId = userId;
+        this.active = active;
+        this.email = email;
+        this.fullName = fullName;
+    }
+    
+    // Getters
+    public int getUserId() { return userId; }
+    public boolean isActive() { return active; }
+    public String getEmail() { return email; }
+    public String getFullName() { return fullName; }
+    
+    @Override
+    public String toString() {
+        return "UserStatus{userId=" + userId + ", active=" + active + ", email='" + email + "'}";
+    }
+}
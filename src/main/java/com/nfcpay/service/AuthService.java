@@ -1,5 +1,7 @@
 package com.nfcpay.service;
 
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
 import com.nfcpay.dao.UserDAO;
 import com.nfcpay.dao.WalletDAO;
 import com.nfcpay.model.User;
@@ -7,26 +9,38 @@ import com.nfcpay.model.Wallet;
 import com.nfcpay.model.enums.Currency;
 import com.nfcpay.exception.ValidationException;
 import com.nfcpay.exception.NFCPayException;
-import org.mindrot.jbcrypt.BCrypt;
+import com.nfcpay.util.PasswordHasher;
 import java.math.BigDecimal;
 
 /**
  * Authentication and User Management Service
  */
 public class AuthService {
+    private static final Timer REGISTER_USER = MetricsRegistry.timer("service.AuthService.registerUser");
+    private static final Timer LOGIN = MetricsRegistry.timer("service.AuthService.login");
+    private static final Timer CHANGE_PASSWORD = MetricsRegistry.timer("service.AuthService.changePassword");
+    private static final Timer UPDATE_PROFILE = MetricsRegistry.timer("service.AuthService.updateProfile");
+    private static final Timer DEACTIVATE_ACCOUNT = MetricsRegistry.timer("service.AuthService.deactivateAccount");
+    
     private final UserDAO userDAO;
     private final WalletDAO walletDAO;
+    private final PasswordHasher passwordHasher;
     private User currentUser;
     
     public AuthService() {
         this.userDAO = new UserDAO();
         this.walletDAO = new WalletDAO();
+        this.passwordHasher = PasswordHasher.getInstance();
     }
     
     /**
      * Register new user with validation
      */
     public User registerUser(String fullName, String email, String password) throws NFCPayException {
+        return REGISTER_USER.time(() -> doRegisterUser(fullName, email, password));
+    }
+    
+    private User doRegisterUser(String fullName, String email, String password) throws NFCPayException {
         // Validate inputs
         ValidationService.validateStringLength(fullName, "Full name", 2, 100);
         ValidationService.validateEmail(email);
@@ -38,7 +52,7 @@ public class AuthService {
         }
         
         // Hash password
-        String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt());
+        String hashedPassword = passwordHasher.hash(password);
         
         // Create user
         User user = new User(fullName, email, hashedPassword, null);
@@ -59,6 +73,10 @@ public class AuthService {
      * Authenticate user login
      */
     public User login(String email, String password) throws NFCPayException {
+        return LOGIN.time(() -> doLogin(email, password));
+    }
+    
+    private User doLogin(String email, String password) throws NFCPayException {
         ValidationService.validateEmail(email);
         ValidationService.validateNotNull(password, "Password");
         
@@ -71,10 +89,14 @@ public class AuthService {
             throw new ValidationException("Account is deactivated. Please contact support.");
         }
         
-        if (!BCrypt.checkpw(password, user.getPasswordHash())) {
+        if (!passwordHasher.verify(password, user.getPasswordHash())) {
             throw new ValidationException("Invalid email or password");
         }
         
+        if (passwordHasher.needsRehash(user.getPasswordHash())) {
+            rehashInBackground(user.getUserId(), password, user.getPasswordHash());
+        }
+        
         // Update last login
         userDAO.updateLastLogin(user.getUserId());
         this.currentUser = user;
@@ -82,22 +104,42 @@ public class AuthService {
         return user;
     }
     
+    /**
+     * Re-hash a just-verified password at the current work factor without delaying the login
+     * The update only applies if the stored hash is unchanged, so a concurrent password change wins
+     */
+    private void rehashInBackground(int userId, String password, String oldHash) {
+        ServiceExecutor.getInstance().submit(() -> {
+            String newHash = passwordHasher.hash(password);
+            return userDAO.updatePassword(userId, newHash, oldHash);
+        }).whenComplete((updated, error) -> {
+            if (error != null) {
+                // Left for a later login, e.g. when the hashing pool was busy
+                System.err.println("Password rehash skipped for user " + userId + ": " + error.getMessage());
+            }
+        });
+    }
+    
     /**
      * Change user password
      */
     public void changePassword(int userId, String currentPassword, String newPassword) throws NFCPayException {
+        CHANGE_PASSWORD.time(() -> doChangePassword(userId, currentPassword, newPassword));
+    }
+    
+    private void doChangePassword(int userId, String currentPassword, String newPassword) throws NFCPayException {
         User user = userDAO.getUserById(userId);
         if (user == null) {
             throw new ValidationException("User not found");
         }
         
-        if (!BCrypt.checkpw(currentPassword, user.getPasswordHash())) {
+        if (!passwordHasher.verify(currentPassword, user.getPasswordHash())) {
             throw new ValidationException("Current password is incorrect");
         }
         
         ValidationService.validatePassword(newPassword);
         
-        String hashedPassword = BCrypt.hashpw(newPassword, BCrypt.gensalt());
+        String hashedPassword = passwordHasher.hash(newPassword);
         userDAO.updatePassword(userId, hashedPassword);
     }
     
@@ -105,6 +147,10 @@ public class AuthService {
      * Update user profile
      */
     public User updateProfile(int userId, String fullName, String email) throws NFCPayException {
+        return UPDATE_PROFILE.time(() -> doUpdateProfile(userId, fullName, email));
+    }
+    
+    private User doUpdateProfile(int userId, String fullName, String email) throws NFCPayException {
         ValidationService.validateStringLength(fullName, "Full name", 2, 100);
         ValidationService.validateEmail(email);
         
@@ -154,13 +200,16 @@ public class AuthService {
      * Deactivate user account
      */
     public void deactivateAccount(int userId) throws NFCPayException {
-        User user = userDAO.getUserById(userId);
-        if (user == null) {
+        DEACTIVATE_ACCOUNT.time(() -> doDeactivateAccount(userId));
+    }
+    
+    private void doDeactivateAccount(int userId) throws NFCPayException {
+        if (userDAO.getUserStatus(userId) == null) {
             throw new ValidationException("User not found");
         }
         
-        user.setActive(false);
-        boolean updated = userDAO.updateUser(user);
+        // updateUser does not write is_active, so deactivation has its own statement
+        boolean updated = userDAO.deactivateUser(userId);
         if (!updated) {
             throw new ValidationException("Failed to deactivate account");
         }
@@ -1,28 +1,46 @@
 package com.nfcpay.service;
 
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
 import com.nfcpay.dao.CardDAO;
-import com.nfcpay.dao.UserDAO;
+import com.nfcpay.dao.CardUidAllocator;
+import com.nfcpay.dao.CardUidIndex;
 import com.nfcpay.model.Card;
-import com.nfcpay.model.User;
+import com.nfcpay.model.CardTap;
 import com.nfcpay.model.enums.CardType;
+import com.nfcpay.exception.PaymentException;
 import com.nfcpay.exception.ValidationException;
 import com.nfcpay.exception.NFCPayException;
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Card Management Service
  */
 public class CardService {
+    private static final Timer ADD_CARD = MetricsRegistry.timer("service.CardService.addCard");
+    private static final Timer RESOLVE_TAP = MetricsRegistry.timer("service.CardService.resolveTap");
+    private static final Timer UPDATE_CARD = MetricsRegistry.timer("service.CardService.updateCard");
+    private static final Timer ACTIVATE_CARD = MetricsRegistry.timer("service.CardService.activateCard");
+    private static final Timer DEACTIVATE_CARD = MetricsRegistry.timer("service.CardService.deactivateCard");
+    private static final Timer DELETE_CARD = MetricsRegistry.timer("service.CardService.deleteCard");
+    private static final Timer GET_USER_CARDS = MetricsRegistry.timer("service.CardService.getUserCards");
+    private static final Timer GET_ACTIVE_CARDS = MetricsRegistry.timer("service.CardService.getActiveCards");
+    private static final Timer GET_CARD = MetricsRegistry.timer("service.CardService.getCard");
+    private static final Timer CAN_ADD_MORE_CARDS = MetricsRegistry.timer("service.CardService.canAddMoreCards");
+    private static final Timer VALIDATE_CARD_FOR_PAYMENT = MetricsRegistry.timer("service.CardService.validateCardForPayment");
+    
+    private static final int MAX_ACTIVE_CARDS = 5;
+    private static final int MAX_UID_ATTEMPTS = 3;
+    
     private final CardDAO cardDAO;
-    private final UserDAO userDAO;
-    private final Random random;
+    private final CardUidIndex cardUidIndex;
+    private final CardUidAllocator cardUidAllocator;
     
     public CardService() {
         this.cardDAO = new CardDAO();
-        this.userDAO = new UserDAO();
-        this.random = new Random();
+        this.cardUidIndex = CardUidIndex.getInstance();
+        this.cardUidAllocator = CardUidAllocator.getInstance();
     }
     
     /**
@@ -36,55 +54,63 @@ public class CardService {
      * Add new card with initial balance
      */
     public Card addCard(int userId, String cardName, CardType cardType, BigDecimal initialBalance) throws NFCPayException {
+        return ADD_CARD.time(() -> doAddCard(userId, cardName, cardType, initialBalance));
+    }
+    
+    private Card doAddCard(int userId, String cardName, CardType cardType, BigDecimal initialBalance) throws NFCPayException {
         ValidationService.validatePositiveInteger(userId, "User ID");
         ValidationService.validateStringLength(cardName, "Card name", 2, 50);
         ValidationService.validateNotNull(cardType, "Card type");
         
-        // Validate user exists and is active
-        User user = userDAO.getUserById(userId);
-        if (user == null || !user.isActive()) {
+        // User status, card limit (max 5 cards per user) and duplicate card names in one query
+        CardDAO.NewCardCheck check = cardDAO.checkNewCard(userId, cardName.trim());
+        if (check == null) {
+            throw new ValidationException("Failed to create card");
+        }
+        if (!check.isUserActive()) {
             throw new ValidationException("User account is not active");
         }
-        
-        // Check card limit (max 5 cards per user)
-        if (!cardDAO.canAddMoreCards(userId)) {
+        if (check.getActiveCardCount() >= MAX_ACTIVE_CARDS) {
             throw new ValidationException("Maximum 5 cards allowed per user");
         }
-        
-        // Check for duplicate card names
-        List<Card> userCards = cardDAO.getCardsByUserId(userId);
-        for (Card existingCard : userCards) {
-            if (existingCard.getCardName().equalsIgnoreCase(cardName.trim())) {
-                throw new ValidationException("Card name already exists. Please choose a different name.");
-            }
+        if (check.isNameTaken()) {
+            throw new ValidationException("Card name already exists. Please choose a different name.");
         }
         
-        // Generate unique card UID
-        String cardUid;
-        do {
-            cardUid = generateCardUid();
-        } while (cardDAO.cardUidExists(cardUid));
-        
         // Validate initial balance
         if (initialBalance != null && initialBalance.compareTo(BigDecimal.ZERO) < 0) {
             throw new ValidationException("Initial balance cannot be negative");
         }
         
-        // Create card with balance
-        Card card = new Card(userId, cardUid, cardName.trim(), cardType, initialBalance);
-        boolean created = cardDAO.createCard(card);
-        
-        if (!created) {
-            throw new ValidationException("Failed to create card");
+        // Allocated UIDs are unique by construction, so no existence check is needed up front;
+        // an insert rejected because the UID was taken by a card the allocator did not know
+        // about is retried with the next UID
+        for (int attempt = 0; attempt < MAX_UID_ATTEMPTS; attempt++) {
+            String cardUid = cardUidAllocator.allocate();
+            if (cardUid == null) {
+                break;
+            }
+            
+            // Create card with balance
+            Card card = new Card(userId, cardUid, cardName.trim(), cardType, initialBalance);
+            if (cardDAO.createCard(card)) {
+                return card;
+            }
+            if (!cardDAO.cardUidExists(cardUid)) {
+                break;
+            }
         }
-        
-        return card;
+        throw new ValidationException("Failed to create card");
     }
     
     /**
      * Update card information
      */
     public void updateCard(int cardId, int userId, String cardName) throws NFCPayException {
+        UPDATE_CARD.time(() -> doUpdateCard(cardId, userId, cardName));
+    }
+    
+    private void doUpdateCard(int cardId, int userId, String cardName) throws NFCPayException {
         ValidationService.validatePositiveInteger(cardId, "Card ID");
         ValidationService.validatePositiveInteger(userId, "User ID");
         ValidationService.validateStringLength(cardName, "Card name", 2, 50);
@@ -112,7 +138,11 @@ public class CardService {
      * Activate card
      */
     public void activateCard(int cardId, int userId) throws NFCPayException {
-        Card card = validateCardOwnership(cardId, userId);
+        ACTIVATE_CARD.time(() -> doActivateCard(cardId, userId));
+    }
+    
+    private void doActivateCard(int cardId, int userId) throws NFCPayException {
+        CardTap card = validateCardStatus(cardId, userId);
         
         if (card.isActive()) {
             throw new ValidationException("Card is already active");
@@ -128,7 +158,11 @@ public class CardService {
      * Deactivate card
      */
     public void deactivateCard(int cardId, int userId) throws NFCPayException {
-        Card card = validateCardOwnership(cardId, userId);
+        DEACTIVATE_CARD.time(() -> doDeactivateCard(cardId, userId));
+    }
+    
+    private void doDeactivateCard(int cardId, int userId) throws NFCPayException {
+        CardTap card = validateCardStatus(cardId, userId);
         
         if (!card.isActive()) {
             throw new ValidationException("Card is already deactivated");
@@ -144,7 +178,11 @@ public class CardService {
      * Delete card (deactivates if has transactions)
      */
     public void deleteCard(int cardId, int userId) throws NFCPayException {
-        validateCardOwnership(cardId, userId);
+        DELETE_CARD.time(() -> doDeleteCard(cardId, userId));
+    }
+    
+    private void doDeleteCard(int cardId, int userId) throws NFCPayException {
+        validateCardStatus(cardId, userId);
         
         boolean deleted = cardDAO.deleteCard(cardId);
         if (!deleted) {
@@ -156,6 +194,10 @@ public class CardService {
      * Get user's cards
      */
     public List<Card> getUserCards(int userId) throws NFCPayException {
+        return GET_USER_CARDS.time(() -> doGetUserCards(userId));
+    }
+    
+    private List<Card> doGetUserCards(int userId) throws NFCPayException {
         ValidationService.validatePositiveInteger(userId, "User ID");
         return cardDAO.getCardsByUserId(userId);
     }
@@ -164,6 +206,10 @@ public class CardService {
      * Get active cards only
      */
     public List<Card> getActiveCards(int userId) throws NFCPayException {
+        return GET_ACTIVE_CARDS.time(() -> doGetActiveCards(userId));
+    }
+    
+    private List<Card> doGetActiveCards(int userId) throws NFCPayException {
         ValidationService.validatePositiveInteger(userId, "User ID");
         return cardDAO.getActiveCardsByUserId(userId);
     }
@@ -172,6 +218,10 @@ public class CardService {
      * Get card by ID with ownership validation
      */
     public Card getCard(int cardId, int userId) throws NFCPayException {
+        return GET_CARD.time(() -> doGetCard(cardId, userId));
+    }
+    
+    private Card doGetCard(int cardId, int userId) throws NFCPayException {
         return validateCardOwnership(cardId, userId);
     }
     
@@ -179,6 +229,10 @@ public class CardService {
      * Check if user can add more cards
      */
     public boolean canAddMoreCards(int userId) throws NFCPayException {
+        return CAN_ADD_MORE_CARDS.time(() -> doCanAddMoreCards(userId));
+    }
+    
+    private boolean doCanAddMoreCards(int userId) throws NFCPayException {
         return cardDAO.canAddMoreCards(userId);
     }
     
@@ -189,12 +243,32 @@ public class CardService {
         ValidationService.validatePositiveInteger(cardId, "Card ID");
         ValidationService.validatePositiveInteger(userId, "User ID");
         
+        // One read answers existence, ownership and active state
         Card card = cardDAO.getCardById(cardId);
         if (card == null) {
             throw new ValidationException("Card not found");
         }
         
-        if (!cardDAO.cardBelongsToUser(cardId, userId)) {
+        if (card.getUserId() != userId) {
+            throw new ValidationException("You are not authorized to access this card");
+        }
+        
+        return card;
+    }
+    
+    /**
+     * Validate card ownership reading only the card's owner and status
+     */
+    private CardTap validateCardStatus(int cardId, int userId) throws NFCPayException {
+        ValidationService.validatePositiveInteger(cardId, "Card ID");
+        ValidationService.validatePositiveInteger(userId, "User ID");
+        
+        CardTap card = cardDAO.getCardStatus(cardId);
+        if (card == null) {
+            throw new ValidationException("Card not found");
+        }
+        
+        if (card.getUserId() != userId) {
             throw new ValidationException("You are not authorized to access this card");
         }
         
@@ -202,20 +276,50 @@ public class CardService {
     }
     
     /**
-     * Generate random 16-digit card UID
+     * Resolve the card UID read from an NFC tap to its card and owner (in-memory index lookup)
      */
-    private String generateCardUid() {
-        StringBuilder cardUid = new StringBuilder();
-        for (int i = 0; i < 16; i++) {
-            cardUid.append(random.nextInt(10));
+    public CardTap resolveTap(String cardUid) throws NFCPayException {
+        long start = RESOLVE_TAP.start();
+        try {
+            return doResolveTap(cardUid);
+        } catch (Exception e) {
+            RESOLVE_TAP.recordError(e);
+            throw e;
+        } finally {
+            RESOLVE_TAP.stop(start);
         }
-        return cardUid.toString();
+    }
+    
+    private CardTap doResolveTap(String cardUid) throws NFCPayException {
+        ValidationService.validateStringLength(cardUid, "Card UID", 1, 50);
+        
+        CardTap tap = cardUidIndex.resolve(cardUid.trim());
+        if (tap == null) {
+            throw new PaymentException("CARD_NOT_FOUND", "Unknown card UID", "This card is not recognized");
+        }
+        // Advisory early rejection; the payment itself re-checks the card in the database
+        if (!tap.isActive()) {
+            throw new PaymentException("CARD_INACTIVE", "Card is inactive", "This card is currently deactivated");
+        }
+        return tap;
     }
     
     /**
      * Validate card for payment
      */
     public void validateCardForPayment(int cardId, int userId) throws NFCPayException {
+        long start = VALIDATE_CARD_FOR_PAYMENT.start();
+        try {
+            doValidateCardForPayment(cardId, userId);
+        } catch (Exception e) {
+            VALIDATE_CARD_FOR_PAYMENT.recordError(e);
+            throw e;
+        } finally {
+            VALIDATE_CARD_FOR_PAYMENT.stop(start);
+        }
+    }
+    
+    private void doValidateCardForPayment(int cardId, int userId) throws NFCPayException {
         Card card = validateCardOwnership(cardId, userId);
         
         if (!card.isActive()) {
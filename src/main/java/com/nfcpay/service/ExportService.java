@@ -0,0 +1,275 @@
+package com.nfcpay.service;
+
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
+import com.nfcpay.dao.TransactionDAO;
+import com.nfcpay.model.Transaction;
+import com.nfcpay.model.TransactionFilter;
+import com.nfcpay.exception.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+
+/**
+ * Streaming transaction export
+ * Rows flow from a forward-only database cursor straight into a buffered file channel,
+ * so memory use does not grow with the size of the history
+ */
+public class ExportService {
+    private static final Timer EXPORT_TRANSACTIONS = MetricsRegistry.timer("service.ExportService.exportTransactions");
+    
+    private final TransactionDAO transactionDAO;
+
+    private static final int FETCH_SIZE = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 250;
+
+    /**
+     * Supported export formats
+     */
+    public enum Format {
+        CSV("csv"),
+        JSON_LINES("jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() { return extension; }
+    }
+
+    /**
+     * Receives export progress; called on the exporting thread
+     */
+    public interface ProgressListener {
+        void onProgress(long rowsWritten, long totalRows);
+    }
+
+    public ExportService() {
+        this.transactionDAO = new TransactionDAO();
+    }
+
+    /**
+     * Export a user's transactions to a file and return the number of rows written.
+     * The file is written under a temporary name and moved into place when complete;
+     * interrupting the calling thread cancels the export.
+     */
+    public long exportTransactions(int userId, TransactionFilter filter, Format format, Path target, ProgressListener listener) throws NFCPayException {
+        return EXPORT_TRANSACTIONS.time(() -> doExportTransactions(userId, filter, format, target, listener));
+    }
+
+    private long doExportTransactions(int userId, TransactionFilter filter, Format format, Path target, ProgressListener listener) throws NFCPayException {
+        ValidationService.validatePositiveInteger(userId, "User ID");
+        ValidationService.validateNotNull(format, "Export format");
+        ValidationService.validateNotNull(target, "Export file");
+
+        long totalRows = transactionDAO.countTransactions(userId, filter);
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        long[] written = {0};
+        boolean completed;
+
+        try (ChannelWriter out = new ChannelWriter(FileChannel.open(partial,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+
+            StringBuilder row = new StringBuilder(256);
+            if (format == Format.CSV) {
+                out.write("Date,Time,Merchant,Amount,Status,Type\n");
+            }
+
+            completed = transactionDAO.streamTransactions(userId, filter, FETCH_SIZE, transaction -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                row.setLength(0);
+                if (format == Format.CSV) {
+                    appendCsvRow(row, transaction);
+                } else {
+                    appendJsonRow(row, transaction);
+                }
+                try {
+                    out.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                written[0]++;
+                if (listener != null && written[0] % PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(written[0], Math.max(totalRows, written[0]));
+                }
+                return true;
+            });
+        } catch (IOException | UncheckedIOException e) {
+            deleteQuietly(partial);
+            String reason = e instanceof UncheckedIOException ? e.getCause().getMessage() : e.getMessage();
+            throw new NFCPayException("EXPORT_FAILED", "Export write failed: " + reason, "Could not write export file: " + reason, e);
+        }
+
+        if (!completed) {
+            deleteQuietly(partial);
+            throw new NFCPayException("EXPORT_FAILED", "Export query failed", "Could not read transactions for export");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            deleteQuietly(partial);
+            throw new ValidationException("Export cancelled");
+        }
+
+        try {
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(partial);
+            throw new NFCPayException("EXPORT_FAILED", "Export move failed: " + e.getMessage(), "Could not write export file: " + e.getMessage(), e);
+        }
+
+        if (listener != null) {
+            listener.onProgress(written[0], written[0]);
+        }
+        return written[0];
+    }
+
+    // Date,Time,Merchant,Amount,Status,Type
+    private static void appendCsvRow(StringBuilder row, Transaction t) {
+        LocalDateTime createdAt = t.getCreatedAt();
+        row.append(createdAt.toLocalDate()).append(',');
+        appendTwoDigits(row, createdAt.getHour()).append(':');
+        appendTwoDigits(row, createdAt.getMinute()).append(',');
+        appendCsvField(row, t.getDescription()).append(',');
+        row.append(t.getAmount().setScale(2, RoundingMode.HALF_UP).toPlainString()).append(',');
+        row.append(t.getStatus()).append(',');
+        row.append(t.getTransactionType()).append('\n');
+    }
+
+    private static void appendJsonRow(StringBuilder row, Transaction t) {
+        row.append("{\"transactionId\":").append(t.getTransactionId());
+        row.append(",\"referenceCode\":");
+        appendJsonString(row, t.getReferenceCode());
+        row.append(",\"createdAt\":");
+        appendJsonString(row, t.getCreatedAt() != null ? t.getCreatedAt().toString() : null);
+        row.append(",\"type\":\"").append(t.getTransactionType()).append('"');
+        row.append(",\"status\":\"").append(t.getStatus()).append('"');
+        row.append(",\"amount\":").append(t.getAmount().setScale(2, RoundingMode.HALF_UP).toPlainString());
+        row.append(",\"cardId\":").append(t.getCardId());
+        row.append(",\"merchantId\":").append(t.getMerchantId());
+        row.append(",\"description\":");
+        appendJsonString(row, t.getDescription());
+        row.append("}\n");
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder row, int value) {
+        if (value < 10) {
+            row.append('0');
+        }
+        return row.append(value);
+    }
+
+    // RFC 4180 quoting when the value contains a delimiter, quote or line break
+    private static StringBuilder appendCsvField(StringBuilder row, String value) {
+        if (value == null) {
+            return row;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return row.append(value);
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        return row.append('"');
+    }
+
+    private static void appendJsonString(StringBuilder row, String value) {
+        if (value == null) {
+            row.append("null");
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': row.append("\\\""); break;
+                case '\\': row.append("\\\\"); break;
+                case '\n': row.append("\\n"); break;
+                case '\r': row.append("\\r"); break;
+                case '\t': row.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        row.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        row.append(c);
+                    }
+            }
+        }
+        row.append('"');
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Could not remove partial export " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * UTF-8 writer over a file channel with one reusable direct buffer
+     */
+    private static final class ChannelWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+        private ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, false);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isError()) {
+                    result.throwException();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
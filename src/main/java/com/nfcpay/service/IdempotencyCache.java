@@ -0,0 +1,62 @@
+package com.nfcpay.service;
+
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.model.Transaction;
+import com.nfcpay.util.BoundedTtlCache;
+
+/**
+ * Recently completed payments by client idempotency key
+ * Bounded LRU with a time-to-live in front of the unique (user_id, idempotency_key)
+ * index, so a retried submission is answered without touching the database
+ */
+public class IdempotencyCache {
+    private static IdempotencyCache instance;
+
+    private static final int MAX_ENTRIES = 50_000;
+    private static final long TTL_MILLIS = 15 * 60_000;
+
+    private final BoundedTtlCache<String, Transaction> entries = new BoundedTtlCache<>(MAX_ENTRIES, TTL_MILLIS);
+
+    private IdempotencyCache() {}
+
+    public static synchronized IdempotencyCache getInstance() {
+        if (instance == null) {
+            instance = new IdempotencyCache();
+            MetricsRegistry.gauge("idempotency.size", instance::size);
+            MetricsRegistry.gauge("idempotency.hits", instance::getHits);
+        }
+        return instance;
+    }
+
+    /**
+     * Transaction previously recorded for this user and key, or null
+     */
+    public Transaction get(int userId, String idempotencyKey) {
+        return entries.get(key(userId, idempotencyKey));
+    }
+
+    /**
+     * Remember a committed transaction under its idempotency key
+     */
+    public void put(Transaction transaction) {
+        if (transaction.getIdempotencyKey() == null) {
+            return;
+        }
+        entries.put(key(transaction.getUserId(), transaction.getIdempotencyKey()), transaction);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static String key(int userId, String idempotencyKey) {
+        return userId + ":" + idempotencyKey;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() { return entries.getHits(); }
+    public long getMisses() { return entries.getMisses(); }
+}
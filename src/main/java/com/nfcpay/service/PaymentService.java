@@ -1,5 +1,7 @@
 package com.nfcpay.service;
 
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
 import com.nfcpay.dao.*;
 import com.nfcpay.model.*;
 import com.nfcpay.model.enums.*;
@@ -7,127 +9,259 @@ import com.nfcpay.exception.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Payment Processing Service with comprehensive business logic
  */
 public class PaymentService {
+    private static final Timer PROCESS_PAYMENT = MetricsRegistry.timer("service.PaymentService.processPayment");
+    private static final Timer GET_TRANSACTION_HISTORY = MetricsRegistry.timer("service.PaymentService.getTransactionHistory");
+    private static final Timer GET_TRANSACTION_PAGE = MetricsRegistry.timer("service.PaymentService.getTransactionPage");
+    private static final Timer COUNT_TRANSACTIONS = MetricsRegistry.timer("service.PaymentService.countTransactions");
+    private static final Timer GET_DASHBOARD_SUMMARY = MetricsRegistry.timer("service.PaymentService.getDashboardSummary");
+    private static final Timer REFUND_PAYMENT = MetricsRegistry.timer("service.PaymentService.refundPayment");
+    private static final Timer GET_TRANSACTION = MetricsRegistry.timer("service.PaymentService.getTransaction");
+    private static final Timer GET_MONTHLY_SPEND_BY_CATEGORY = MetricsRegistry.timer("service.PaymentService.getMonthlySpendByCategory");
+    private static final Timer VALIDATE_PAYMENT_LIMITS = MetricsRegistry.timer("service.PaymentService.validatePaymentLimits");
+    private static final Timer GET_ACTIVE_MERCHANTS = MetricsRegistry.timer("service.PaymentService.getActiveMerchants");
+    private static final Timer GET_MERCHANTS_BY_CATEGORY = MetricsRegistry.timer("service.PaymentService.getMerchantsByCategory");
+    
     private final TransactionDAO transactionDAO;
-    private final CardDAO cardDAO;
-    private final WalletDAO walletDAO;
-    private final MerchantDAO merchantDAO;
-    private final UserDAO userDAO;
+    private final MerchantCatalog merchantCatalog;
+    private final PaymentDAO paymentDAO;
+    private final DashboardDAO dashboardDAO;
+    private final SpendRollupDAO spendRollupDAO;
+    private final WalletLockManager walletLocks;
+    private final IdempotencyCache idempotencyCache;
+    
+    private static final BigDecimal DAILY_LIMIT = new BigDecimal("5000"); // $5000 daily limit
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DASHBOARD_RECENT_COUNT = 5;
     
     public PaymentService() {
         this.transactionDAO = new TransactionDAO();
-        this.cardDAO = new CardDAO();
-        this.walletDAO = new WalletDAO();
-        this.merchantDAO = new MerchantDAO();
-        this.userDAO = new UserDAO();
+        this.merchantCatalog = MerchantCatalog.getInstance();
+        this.paymentDAO = new PaymentDAO();
+        this.dashboardDAO = new DashboardDAO();
+        this.spendRollupDAO = new SpendRollupDAO();
+        this.walletLocks = WalletLockManager.getInstance();
+        this.idempotencyCache = IdempotencyCache.getInstance();
     }
     
     /**
      * Process NFC payment with comprehensive validation
      */
     public Transaction processPayment(int userId, int cardId, int merchantId, BigDecimal amount, String description) throws NFCPayException {
+        return processPayment(userId, cardId, merchantId, amount, description, null);
+    }
+    
+    /**
+     * Process NFC payment at most once per client idempotency key
+     * Resubmitting the key of a completed payment returns the original transaction
+     */
+    public Transaction processPayment(int userId, int cardId, int merchantId, BigDecimal amount, String description, String idempotencyKey) throws NFCPayException {
+        long start = PROCESS_PAYMENT.start();
+        try {
+            return doProcessPayment(userId, cardId, merchantId, amount, description, idempotencyKey);
+        } catch (Exception e) {
+            PROCESS_PAYMENT.recordError(e);
+            throw e;
+        } finally {
+            PROCESS_PAYMENT.stop(start);
+        }
+    }
+    
+    private Transaction doProcessPayment(int userId, int cardId, int merchantId, BigDecimal amount, String description, String idempotencyKey) throws NFCPayException {
         // Validate inputs
         ValidationService.validatePositiveInteger(userId, "User ID");
         ValidationService.validatePositiveInteger(cardId, "Card ID");
         ValidationService.validatePositiveInteger(merchantId, "Merchant ID");
         ValidationService.validateAmount(amount);
-        
-        // Validate user exists and is active
-        User user = userDAO.getUserById(userId);
-        if (user == null || !user.isActive()) {
-            throw new PaymentException("USER_INACTIVE", "User account is inactive", "Your account is not active. Please contact support.");
-        }
-        
-        // Validate card exists, is active, and belongs to user
-        Card card = cardDAO.getCardById(cardId);
-        if (card == null) {
-            throw new PaymentException("CARD_NOT_FOUND", "Card not found", "Selected card is not available");
-        }
-        if (!card.isActive()) {
-            throw new PaymentException("CARD_INACTIVE", "Card is inactive", "This card is currently deactivated");
-        }
-        if (!cardDAO.cardBelongsToUser(cardId, userId)) {
-            throw new PaymentException("CARD_UNAUTHORIZED", "Card does not belong to user", "You are not authorized to use this card");
-        }
-        
-        // Validate merchant exists and is active
-        Merchant merchant = merchantDAO.getMerchantById(merchantId);
-        if (merchant == null || !merchant.isActive()) {
-            throw new PaymentException("MERCHANT_INACTIVE", "Merchant is inactive", "This merchant is currently not accepting payments");
-        }
-        
-        // Check sufficient balance
-        if (!walletDAO.hasSufficientBalance(userId, amount)) {
-            BigDecimal balance = walletDAO.getBalance(userId);
-            throw new PaymentException("INSUFFICIENT_FUNDS", "Insufficient wallet balance", 
-                String.format("Insufficient funds. Available: $%.2f, Required: $%.2f", balance, amount));
-        }
-        
-        // Check daily transaction limit
-        BigDecimal dailySpent = transactionDAO.getDailySpent(userId);
-        BigDecimal dailyLimit = new BigDecimal("5000"); // $5000 daily limit
-        if (dailySpent.add(amount).compareTo(dailyLimit) > 0) {
-            throw new PaymentException("DAILY_LIMIT_EXCEEDED", "Daily transaction limit exceeded", 
-                String.format("Daily limit exceeded. Limit: $%.2f, Already spent: $%.2f", 
-                    dailyLimit, dailySpent));
+        if (idempotencyKey != null) {
+            ValidationService.validateStringLength(idempotencyKey, "Idempotency key", 1, 64);
         }
         
         // Create transaction
         Transaction transaction = new Transaction(
             userId, cardId, merchantId, amount, 
-            "PAYMENT", "PENDING", 
+            TransactionType.PAYMENT, nextReference(), 
             description != null ? description : "NFC Payment"
         );
+        transaction.setStatus("SUCCESS");
+        transaction.setProcessedAt(LocalDateTime.now());
+        transaction.setIdempotencyKey(idempotencyKey);
         
+        // Validation reads, wallet debit and ledger insert commit or roll back together.
+        // The wallet lock serializes concurrent taps so the balance and daily limit
+        // they were validated against cannot change before the debit.
+        PaymentDAO.PaymentResult result;
+        walletLocks.lock(userId);
         try {
-            // Deduct from wallet
-            boolean deducted = walletDAO.deductFunds(userId, amount);
-            if (!deducted) {
-                throw new PaymentException("PAYMENT_FAILED", "Failed to deduct funds", "Payment could not be processed.");
+            // Checked under the wallet lock so two submissions of one key cannot both debit
+            Transaction original = idempotencyKey != null ? idempotencyCache.get(userId, idempotencyKey) : null;
+            if (original != null) {
+                return replay(original, transaction);
             }
             
-            // Save transaction as completed
-            transaction.setStatus("SUCCESS");
-            transaction.setProcessedAt(LocalDateTime.now());
-            boolean saved = transactionDAO.createTransaction(transaction);
-            
-            if (!saved) {
-                // Rollback - add funds back
-                walletDAO.addFunds(userId, amount);
-                throw new PaymentException("PAYMENT_FAILED", "Failed to save transaction", "Payment could not be processed.");
+            result = paymentDAO.executePayment(transaction, DAILY_LIMIT);
+            if (result == null && idempotencyKey != null) {
+                // The unique (user_id, idempotency_key) index rejected the insert: the key was
+                // completed before this cache window (restart, eviction or another process)
+                original = transactionDAO.getTransactionByIdempotencyKey(userId, idempotencyKey);
+                if (original != null) {
+                    idempotencyCache.put(original);
+                    return replay(original, transaction);
+                }
             }
-            
-            return transaction;
-            
-        } catch (Exception e) {
-            // Create failed transaction record
+            if (result != null && result.isApproved()) {
+                idempotencyCache.put(transaction);
+            }
+        } finally {
+            walletLocks.unlock(userId);
+        }
+        if (result == null) {
+            // Create failed transaction record; it does not claim the key so the client can retry,
+            // and gets a fresh reference code so it can never alias the attempted payment's
             transaction.setStatus("FAILED");
             transaction.setProcessedAt(LocalDateTime.now());
+            transaction.setIdempotencyKey(null);
+            transaction.setReferenceCode(nextReference());
             transactionDAO.createTransaction(transaction);
             
-            throw new PaymentException("PAYMENT_FAILED", "Payment processing failed", 
+            throw new DatabaseException("PAYMENT_FAILED", "Payment processing failed", 
                 "Payment could not be processed. Please try again.");
         }
+        
+        switch (result.getOutcome()) {
+            case USER_INACTIVE:
+                throw new PaymentException("USER_INACTIVE", "User account is inactive", "Your account is not active. Please contact support.");
+            case CARD_NOT_FOUND:
+                throw new PaymentException("CARD_NOT_FOUND", "Card not found", "Selected card is not available");
+            case CARD_INACTIVE:
+                throw new PaymentException("CARD_INACTIVE", "Card is inactive", "This card is currently deactivated");
+            case CARD_UNAUTHORIZED:
+                throw new PaymentException("CARD_UNAUTHORIZED", "Card does not belong to user", "You are not authorized to use this card");
+            case MERCHANT_INACTIVE:
+                throw new PaymentException("MERCHANT_INACTIVE", "Merchant is inactive", "This merchant is currently not accepting payments");
+            case INSUFFICIENT_FUNDS:
+                throw new PaymentException("INSUFFICIENT_FUNDS", "Insufficient wallet balance", 
+                    String.format("Insufficient funds. Available: $%.2f, Required: $%.2f", result.getBalance(), amount));
+            case DAILY_LIMIT_EXCEEDED:
+                throw new PaymentException("DAILY_LIMIT_EXCEEDED", "Daily transaction limit exceeded", 
+                    String.format("Daily limit exceeded. Limit: $%.2f, Already spent: $%.2f", 
+                        DAILY_LIMIT, result.getDailySpent()));
+            default:
+                return transaction;
+        }
+    }
+    
+    // The generator refuses to issue references while it holds no valid node id lease
+    private static String nextReference() throws DatabaseException {
+        try {
+            return com.nfcpay.util.UIDGenerator.generateTransactionReference();
+        } catch (IllegalStateException e) {
+            throw new DatabaseException("REFERENCE_UNAVAILABLE", e.getMessage(),
+                "Payments are temporarily unavailable. Please try again shortly.", e);
+        }
+    }
+    
+    /**
+     * Answer a resubmitted payment with its original transaction
+     * Reusing a key for a different payment is rejected rather than silently ignored
+     */
+    private Transaction replay(Transaction original, Transaction request) throws NFCPayException {
+        if (original.getCardId() != request.getCardId()
+                || original.getMerchantId() != request.getMerchantId()
+                || original.getAmount().compareTo(request.getAmount()) != 0) {
+            throw new ValidationException("Idempotency key was already used for a different payment");
+        }
+        return original;
     }
     
     /**
      * Get transaction history
      */
     public List<Transaction> getTransactionHistory(int userId) throws NFCPayException {
+        return GET_TRANSACTION_HISTORY.time(() -> doGetTransactionHistory(userId));
+    }
+    
+    private List<Transaction> doGetTransactionHistory(int userId) throws NFCPayException {
         ValidationService.validatePositiveInteger(userId, "User ID");
         return transactionDAO.getTransactionsByUserId(userId);
     }
     
+    /**
+     * Get one page of transaction history, newest first
+     * Pass null as the cursor for the first page, then the previous page's next cursor
+     */
+    public TransactionPage getTransactionPage(int userId, TransactionFilter filter, TransactionPage.Cursor after, int pageSize) throws NFCPayException {
+        return GET_TRANSACTION_PAGE.time(() -> doGetTransactionPage(userId, filter, after, pageSize));
+    }
+    
+    private TransactionPage doGetTransactionPage(int userId, TransactionFilter filter, TransactionPage.Cursor after, int pageSize) throws NFCPayException {
+        ValidationService.validatePositiveInteger(userId, "User ID");
+        ValidationService.validateRange(pageSize, "Page size", 1, MAX_PAGE_SIZE);
+        return transactionDAO.getTransactionsPage(userId, filter, after, pageSize);
+    }
+    
+    /**
+     * Count transactions matching a history filter
+     */
+    public int countTransactions(int userId, TransactionFilter filter) throws NFCPayException {
+        return COUNT_TRANSACTIONS.time(() -> doCountTransactions(userId, filter));
+    }
+    
+    private int doCountTransactions(int userId, TransactionFilter filter) throws NFCPayException {
+        ValidationService.validatePositiveInteger(userId, "User ID");
+        return transactionDAO.countTransactions(userId, filter);
+    }
+    
+    /**
+     * Dashboard figures (balance, active cards, this month's payments, recent rows) in one query
+     */
+    public DashboardSummary getDashboardSummary(int userId) throws NFCPayException {
+        return GET_DASHBOARD_SUMMARY.time(() -> doGetDashboardSummary(userId));
+    }
+    
+    private DashboardSummary doGetDashboardSummary(int userId) throws NFCPayException {
+        ValidationService.validatePositiveInteger(userId, "User ID");
+        DashboardSummary summary = dashboardDAO.getDashboardSummary(userId, DASHBOARD_RECENT_COUNT);
+        if (summary == null) {
+            throw new NFCPayException("DASHBOARD_UNAVAILABLE", "Failed to load dashboard summary",
+                "Dashboard data could not be loaded. Please try again.");
+        }
+        return summary;
+    }
+    
+    /**
+     * Net spend per merchant category for a month, largest first (served from rollups)
+     */
+    public Map<String, BigDecimal> getMonthlySpendByCategory(int userId, YearMonth month) throws NFCPayException {
+        return GET_MONTHLY_SPEND_BY_CATEGORY.time(() -> doGetMonthlySpendByCategory(userId, month));
+    }
+    
+    private Map<String, BigDecimal> doGetMonthlySpendByCategory(int userId, YearMonth month) throws NFCPayException {
+        ValidationService.validatePositiveInteger(userId, "User ID");
+        ValidationService.validateNotNull(month, "Month");
+        return spendRollupDAO.getCategoryTotals(userId, SpendRollupDAO.MONTH, month.atDay(1));
+    }
+    
     /**
      * Get transaction by ID with authorization check
      */
     public Transaction getTransaction(int transactionId, int userId) throws NFCPayException {
-        Transaction transaction = transactionDAO.getTransactionById(transactionId);
+        return GET_TRANSACTION.time(() -> doGetTransaction(transactionId, userId));
+    }
+    
+    private Transaction doGetTransaction(int transactionId, int userId) throws NFCPayException {
+        return requireOwnTransaction(transactionDAO.getTransactionById(transactionId), userId);
+    }
+    
+    // Not found and not the user's own are both validation errors
+    private static Transaction requireOwnTransaction(Transaction transaction, int userId) throws ValidationException {
         if (transaction == null) {
             throw new ValidationException("Transaction not found");
         }
@@ -141,7 +275,20 @@ public class PaymentService {
      * Refund a payment transaction
      */
     public Transaction refundPayment(int transactionId, int userId, String reason) throws NFCPayException {
-        Transaction originalTransaction = getTransaction(transactionId, userId);
+        long start = REFUND_PAYMENT.start();
+        try {
+            return doRefundPayment(transactionId, userId, reason);
+        } catch (Exception e) {
+            REFUND_PAYMENT.recordError(e);
+            throw e;
+        } finally {
+            REFUND_PAYMENT.stop(start);
+        }
+    }
+    
+    private Transaction doRefundPayment(int transactionId, int userId, String reason) throws NFCPayException {
+        // Refund checks need no description, so read the summary row
+        Transaction originalTransaction = requireOwnTransaction(transactionDAO.getTransactionSummary(transactionId), userId);
         
         if (!"PAYMENT".equals(originalTransaction.getType())) {
             throw new ValidationException("Only payment transactions can be refunded");
@@ -158,22 +305,22 @@ public class PaymentService {
         // Create refund transaction
         Transaction refundTransaction = new Transaction(
             userId, originalTransaction.getCardId(), originalTransaction.getMerchantId(),
-            originalTransaction.getAmount(), "REFUND", "SUCCESS",
+            originalTransaction.getAmount(), TransactionType.REFUND, nextReference(),
             "Refund for transaction #" + transactionId + (reason != null ? " - " + reason : "")
         );
+        refundTransaction.setStatus("SUCCESS");
         refundTransaction.setProcessedAt(LocalDateTime.now());
         
-        // Add amount back to wallet
-        boolean added = walletDAO.addFunds(userId, originalTransaction.getAmount());
-        if (!added) {
-            throw new ValidationException("Failed to process refund");
+        // Wallet credit and refund record commit or roll back together
+        boolean refunded;
+        walletLocks.lock(userId);
+        try {
+            refunded = paymentDAO.executeRefund(refundTransaction);
+        } finally {
+            walletLocks.unlock(userId);
         }
-        
-        boolean saved = transactionDAO.createTransaction(refundTransaction);
-        if (!saved) {
-            // Rollback
-            walletDAO.deductFunds(userId, originalTransaction.getAmount());
-            throw new ValidationException("Failed to save refund transaction");
+        if (!refunded) {
+            throw new ValidationException("Failed to process refund");
         }
         
         return refundTransaction;
@@ -185,6 +332,10 @@ public class PaymentService {
      * Check if payment amount is within limits
      */
     public void validatePaymentLimits(int userId, BigDecimal amount) throws NFCPayException {
+        VALIDATE_PAYMENT_LIMITS.time(() -> doValidatePaymentLimits(userId, amount));
+    }
+    
+    private void doValidatePaymentLimits(int userId, BigDecimal amount) throws NFCPayException {
         ValidationService.validateAmount(amount);
         
         // Single transaction limit
@@ -196,11 +347,10 @@ public class PaymentService {
         
         // Daily limit check
         BigDecimal dailySpent = transactionDAO.getDailySpent(userId);
-        BigDecimal dailyLimit = new BigDecimal("5000");
-        if (dailySpent.add(amount).compareTo(dailyLimit) > 0) {
+        if (dailySpent.add(amount).compareTo(DAILY_LIMIT) > 0) {
             throw new PaymentException("DAILY_LIMIT_EXCEEDED", "Daily transaction limit exceeded", 
                 String.format("Daily limit exceeded. Limit: $%.2f, Already spent: $%.2f", 
-                    dailyLimit, dailySpent));
+                    DAILY_LIMIT, dailySpent));
         }
     }
     
@@ -208,6 +358,22 @@ public class PaymentService {
      * Get active merchants for payment selection
      */
     public List<Merchant> getActiveMerchants() throws NFCPayException {
-        return merchantDAO.getActiveMerchants();
+        return GET_ACTIVE_MERCHANTS.time(() -> doGetActiveMerchants());
+    }
+    
+    private List<Merchant> doGetActiveMerchants() throws NFCPayException {
+        return merchantCatalog.getActiveMerchants();
+    }
+    
+    /**
+     * Get active merchants in one category
+     */
+    public List<Merchant> getMerchantsByCategory(String category) throws NFCPayException {
+        return GET_MERCHANTS_BY_CATEGORY.time(() -> doGetMerchantsByCategory(category));
+    }
+    
+    private List<Merchant> doGetMerchantsByCategory(String category) throws NFCPayException {
+        ValidationService.validateStringLength(category, "Category", 1, 50);
+        return merchantCatalog.getMerchantsByCategory(category);
     }
 }
\ No newline at end of file
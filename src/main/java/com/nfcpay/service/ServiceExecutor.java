@@ -0,0 +1,120 @@
+package com.nfcpay.service;
+
+import com.nfcpay.exception.NFCPayException;
+import com.nfcpay.metrics.Counter;
+import com.nfcpay.metrics.MetricsRegistry;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs service calls off the calling thread (usually the Swing EDT)
+ * Uses one virtual thread per call when the JVM provides them (Java 21+), so
+ * blocked JDBC calls do not hold OS threads; older JVMs get a platform pool.
+ * Set -Dnfcpay.executor.virtual=false to force the platform pool.
+ * The platform pool has a bounded queue (-Dnfcpay.executor.queueSize); when it
+ * is full the future fails at once with SERVICE_BUSY instead of adding to the backlog.
+ */
+public class ServiceExecutor {
+    private static ServiceExecutor instance;
+
+    public static final String VIRTUAL_THREADS_PROPERTY = "nfcpay.executor.virtual";
+    public static final String QUEUE_SIZE_PROPERTY = "nfcpay.executor.queueSize";
+
+    private static final Counter REJECTED = MetricsRegistry.counter("serviceExecutor.rejected");
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * A service call that may fail with a business exception
+     */
+    @FunctionalInterface
+    public interface ServiceCall<T> {
+        T call() throws NFCPayException;
+    }
+
+    private ServiceExecutor() {
+        ExecutorService virtual = Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY, "true"))
+            ? createVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : createPlatformExecutor(Integer.getInteger(QUEUE_SIZE_PROPERTY, 256));
+    }
+
+    // Platform pool with the given queue size, for tests
+    ServiceExecutor(int queueSize) {
+        this.virtualThreads = false;
+        this.executor = createPlatformExecutor(queueSize);
+    }
+
+    public static synchronized ServiceExecutor getInstance() {
+        if (instance == null) {
+            instance = new ServiceExecutor();
+            MetricsRegistry.gauge("serviceExecutor.inFlight", instance::getInFlight);
+        }
+        return instance;
+    }
+
+    /**
+     * Run the call asynchronously
+     * The future completes with the result, or exceptionally with whatever the call threw
+     */
+    public <T> CompletableFuture<T> submit(ServiceCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Throwable t) {
+                    // Never leave the caller waiting; Errors still reach the thread's uncaught handler
+                    future.completeExceptionally(t);
+                    if (t instanceof Error) {
+                        throw (Error) t;
+                    }
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            REJECTED.increment();
+            future.completeExceptionally(new NFCPayException("SERVICE_BUSY", "Service executor is at capacity, try again shortly",
+                "The system is busy. Please try again in a moment.", e));
+        }
+        return future;
+    }
+
+    public boolean isVirtualThreads() { return virtualThreads; }
+    public int getInFlight() { return inFlight.get(); }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively so the build can stay on Java 11
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Calls mostly wait on JDBC, so allow more threads than cores; excess calls queue up to queueSize
+    private static ExecutorService createPlatformExecutor(int queueSize) {
+        int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+                Thread thread = new Thread(r, "nfcpay-service-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,159 @@
+package com.nfcpay.service;
+
+import com.nfcpay.metrics.MetricsRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped per-wallet lock table
+ * Serializes balance check-then-debit sequences for one wallet while
+ * different wallets proceed in parallel on different stripes
+ */
+public class WalletLockManager {
+    private static WalletLockManager instance;
+
+    // Only wallets that actually saw contention are tracked, up to this many
+    private static final int MAX_TRACKED_WALLETS = 10_000;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    // Contention statistics
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final ConcurrentHashMap<Integer, LongAdder> walletContention = new ConcurrentHashMap<>();
+
+    private WalletLockManager(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(2, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public static synchronized WalletLockManager getInstance() {
+        if (instance == null) {
+            instance = new WalletLockManager(Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+            MetricsRegistry.gauge("walletLocks.contentionRate", instance::getContentionRate);
+            MetricsRegistry.gauge("walletLocks.totalWaitMillis", instance::getTotalWaitMillis);
+        }
+        return instance;
+    }
+
+    /**
+     * Lock the wallet of the given user. Must be paired with unlock(userId) in a finally block.
+     */
+    public void lock(int userId) {
+        acquire(stripeIndex(userId), userId);
+    }
+
+    public void unlock(int userId) {
+        stripes[stripeIndex(userId)].unlock();
+    }
+
+    /**
+     * Lock two wallets in stripe order so concurrent transfers A->B and B->A cannot deadlock
+     */
+    public void lockPair(int firstUserId, int secondUserId) {
+        int first = stripeIndex(firstUserId);
+        int second = stripeIndex(secondUserId);
+        if (first == second) {
+            acquire(first, firstUserId);
+        } else if (first < second) {
+            acquire(first, firstUserId);
+            acquire(second, secondUserId);
+        } else {
+            acquire(second, secondUserId);
+            acquire(first, firstUserId);
+        }
+    }
+
+    public void unlockPair(int firstUserId, int secondUserId) {
+        int first = stripeIndex(firstUserId);
+        int second = stripeIndex(secondUserId);
+        stripes[first].unlock();
+        if (first != second) {
+            stripes[second].unlock();
+        }
+    }
+
+    private void acquire(int index, int userId) {
+        ReentrantLock lock = stripes[index];
+        acquisitions.increment();
+        if (lock.tryLock()) {
+            return;
+        }
+
+        // Slow path: record who we are waiting on
+        contendedAcquisitions.increment();
+        LongAdder counter = walletContention.get(userId);
+        if (counter == null && walletContention.size() < MAX_TRACKED_WALLETS) {
+            counter = walletContention.computeIfAbsent(userId, k -> new LongAdder());
+        }
+        if (counter != null) {
+            counter.increment();
+        }
+
+        long start = System.nanoTime();
+        lock.lock();
+        waitNanos.add(System.nanoTime() - start);
+    }
+
+    private int stripeIndex(int userId) {
+        int h = userId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Contention statistics
+    public int getStripeCount() { return stripes.length; }
+    public long getAcquisitions() { return acquisitions.sum(); }
+    public long getContendedAcquisitions() { return contendedAcquisitions.sum(); }
+    public long getTotalWaitMillis() { return waitNanos.sum() / 1_000_000; }
+
+    public double getContentionRate() {
+        long total = acquisitions.sum();
+        return total == 0 ? 0.0 : (double) contendedAcquisitions.sum() / total;
+    }
+
+    public long getContentionForWallet(int userId) {
+        LongAdder counter = walletContention.get(userId);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Wallets with the most contended lock acquisitions, hottest first
+     */
+    public List<Map.Entry<Integer, Long>> getHotWallets(int limit) {
+        List<Map.Entry<Integer, Long>> hot = new ArrayList<>();
+        for (Map.Entry<Integer, LongAdder> entry : walletContention.entrySet()) {
+            hot.add(Map.entry(entry.getKey(), entry.getValue().sum()));
+        }
+        hot.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return hot.size() > limit ? new ArrayList<>(hot.subList(0, limit)) : hot;
+    }
+
+    public void resetStatistics() {
+        acquisitions.reset();
+        contendedAcquisitions.reset();
+        waitNanos.reset();
+        walletContention.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "WalletLockManager{" +
+                "stripes=" + stripes.length +
+                ", acquisitions=" + getAcquisitions() +
+                ", contended=" + getContendedAcquisitions() +
+                ", contentionRate=" + String.format("%.4f", getContentionRate()) +
+                ", waitMs=" + getTotalWaitMillis() +
+                ", hotWallets=" + getHotWallets(5) +
+                '}';
+    }
+}
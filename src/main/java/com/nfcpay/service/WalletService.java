@@ -1,10 +1,12 @@
 package com.nfcpay.service;
 
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
 import com.nfcpay.dao.WalletDAO;
 import com.nfcpay.dao.UserDAO;
 import com.nfcpay.dao.CardDAO;
 import com.nfcpay.model.Wallet;
-import com.nfcpay.model.User;
+import com.nfcpay.model.UserStatus;
 import com.nfcpay.model.Card;
 import com.nfcpay.model.enums.Currency;
 import com.nfcpay.exception.ValidationException;
@@ -15,23 +17,37 @@ import java.math.BigDecimal;
  * Wallet Management Service
  */
 public class WalletService {
+    private static final Timer GET_WALLET = MetricsRegistry.timer("service.WalletService.getWallet");
+    private static final Timer ADD_FUNDS = MetricsRegistry.timer("service.WalletService.addFunds");
+    private static final Timer WITHDRAW_FUNDS = MetricsRegistry.timer("service.WalletService.withdrawFunds");
+    private static final Timer TRANSFER_FUNDS = MetricsRegistry.timer("service.WalletService.transferFunds");
+    private static final Timer HAS_SUFFICIENT_FUNDS = MetricsRegistry.timer("service.WalletService.hasSufficientFunds");
+    private static final Timer GET_BALANCE = MetricsRegistry.timer("service.WalletService.getBalance");
+    private static final Timer VALIDATE_WALLET_FOR_TRANSACTION = MetricsRegistry.timer("service.WalletService.validateWalletForTransaction");
+    
     private final WalletDAO walletDAO;
     private final UserDAO userDAO;
     private final CardDAO cardDAO;
+    private final WalletLockManager walletLocks;
     
     public WalletService() {
         this.walletDAO = new WalletDAO();
         this.userDAO = new UserDAO();
         this.cardDAO = new CardDAO();
+        this.walletLocks = WalletLockManager.getInstance();
     }
     
     /**
      * Get user's wallet
      */
     public Wallet getWallet(int userId) throws NFCPayException {
+        return GET_WALLET.time(() -> doGetWallet(userId));
+    }
+    
+    private Wallet doGetWallet(int userId) throws NFCPayException {
         ValidationService.validatePositiveInteger(userId, "User ID");
         
-        User user = userDAO.getUserById(userId);
+        UserStatus user = userDAO.getUserStatus(userId);
         if (user == null || !user.isActive()) {
             throw new ValidationException("User account is not active");
         }
@@ -48,6 +64,18 @@ public class WalletService {
      * Add funds to wallet from card
      */
     public void addFunds(int userId, int cardId, BigDecimal amount, String source) throws NFCPayException {
+        long start = ADD_FUNDS.start();
+        try {
+            doAddFunds(userId, cardId, amount, source);
+        } catch (Exception e) {
+            ADD_FUNDS.recordError(e);
+            throw e;
+        } finally {
+            ADD_FUNDS.stop(start);
+        }
+    }
+    
+    private void doAddFunds(int userId, int cardId, BigDecimal amount, String source) throws NFCPayException {
         ValidationService.validatePositiveInteger(cardId, "Card ID");
         
         // Validate card ownership and get card
@@ -75,7 +103,15 @@ public class WalletService {
      * Add funds to wallet (legacy method for backward compatibility)
      */
     public void addFunds(int userId, BigDecimal amount, String source) throws NFCPayException {
-        addFundsInternal(userId, amount, source);
+        long start = ADD_FUNDS.start();
+        try {
+            addFundsInternal(userId, amount, source);
+        } catch (Exception e) {
+            ADD_FUNDS.recordError(e);
+            throw e;
+        } finally {
+            ADD_FUNDS.stop(start);
+        }
     }
     
     /**
@@ -91,19 +127,25 @@ public class WalletService {
             throw new ValidationException(String.format("Maximum deposit amount is $%.2f per transaction", maxDeposit));
         }
         
-        Wallet wallet = getWallet(userId);
-        
-        // Validate maximum wallet balance
-        BigDecimal maxBalance = new BigDecimal("10000");
-        BigDecimal newBalance = wallet.getBalance().add(amount);
-        if (newBalance.compareTo(maxBalance) > 0) {
-            throw new ValidationException(String.format("Wallet balance cannot exceed $%.2f", maxBalance));
-        }
-        
-        // Add funds using DAO method
-        boolean success = walletDAO.addFunds(userId, amount);
-        if (!success) {
-            throw new ValidationException("Failed to add funds to wallet");
+        // Balance check and credit must not interleave with other writers to this wallet
+        walletLocks.lock(userId);
+        try {
+            Wallet wallet = getWallet(userId);
+            
+            // Validate maximum wallet balance
+            BigDecimal maxBalance = new BigDecimal("10000");
+            BigDecimal newBalance = wallet.getBalance().add(amount);
+            if (newBalance.compareTo(maxBalance) > 0) {
+                throw new ValidationException(String.format("Wallet balance cannot exceed $%.2f", maxBalance));
+            }
+            
+            // Add funds using DAO method
+            boolean success = walletDAO.addFunds(userId, amount);
+            if (!success) {
+                throw new ValidationException("Failed to add funds to wallet");
+            }
+        } finally {
+            walletLocks.unlock(userId);
         }
     }
     
@@ -111,6 +153,18 @@ public class WalletService {
      * Withdraw funds from wallet to card
      */
     public void withdrawFunds(int userId, int cardId, BigDecimal amount, String destination) throws NFCPayException {
+        long start = WITHDRAW_FUNDS.start();
+        try {
+            doWithdrawFunds(userId, cardId, amount, destination);
+        } catch (Exception e) {
+            WITHDRAW_FUNDS.recordError(e);
+            throw e;
+        } finally {
+            WITHDRAW_FUNDS.stop(start);
+        }
+    }
+    
+    private void doWithdrawFunds(int userId, int cardId, BigDecimal amount, String destination) throws NFCPayException {
         ValidationService.validatePositiveInteger(cardId, "Card ID");
         
         // Validate card ownership and get card
@@ -132,7 +186,15 @@ public class WalletService {
      * Withdraw funds from wallet (legacy method for backward compatibility)
      */
     public void withdrawFunds(int userId, BigDecimal amount, String destination) throws NFCPayException {
-        withdrawFundsInternal(userId, amount, destination);
+        long start = WITHDRAW_FUNDS.start();
+        try {
+            withdrawFundsInternal(userId, amount, destination);
+        } catch (Exception e) {
+            WITHDRAW_FUNDS.recordError(e);
+            throw e;
+        } finally {
+            WITHDRAW_FUNDS.stop(start);
+        }
     }
     
     /**
@@ -142,30 +204,36 @@ public class WalletService {
         ValidationService.validatePositiveInteger(userId, "User ID");
         ValidationService.validateAmount(amount);
         
-        Wallet wallet = getWallet(userId);
-        
-        // Check sufficient balance
-        if (!walletDAO.hasSufficientBalance(userId, amount)) {
-            throw new ValidationException(String.format("Insufficient funds. Available: $%.2f, Requested: $%.2f", 
-                wallet.getBalance(), amount));
-        }
-        
-        // Validate minimum withdrawal
-        BigDecimal minWithdrawal = new BigDecimal("10");
-        if (amount.compareTo(minWithdrawal) < 0) {
-            throw new ValidationException(String.format("Minimum withdrawal amount is $%.2f", minWithdrawal));
-        }
-        
-        // Validate maximum single withdrawal
-        BigDecimal maxWithdrawal = new BigDecimal("1000");
-        if (amount.compareTo(maxWithdrawal) > 0) {
-            throw new ValidationException(String.format("Maximum withdrawal amount is $%.2f per transaction", maxWithdrawal));
-        }
-        
-        // Deduct funds using DAO method
-        boolean success = walletDAO.deductFunds(userId, amount);
-        if (!success) {
-            throw new ValidationException("Failed to withdraw funds from wallet");
+        // Balance check and debit must not interleave with other writers to this wallet
+        walletLocks.lock(userId);
+        try {
+            Wallet wallet = getWallet(userId);
+            
+            // Check sufficient balance
+            if (!walletDAO.hasSufficientBalance(userId, amount)) {
+                throw new ValidationException(String.format("Insufficient funds. Available: $%.2f, Requested: $%.2f", 
+                    wallet.getBalance(), amount));
+            }
+            
+            // Validate minimum withdrawal
+            BigDecimal minWithdrawal = new BigDecimal("10");
+            if (amount.compareTo(minWithdrawal) < 0) {
+                throw new ValidationException(String.format("Minimum withdrawal amount is $%.2f", minWithdrawal));
+            }
+            
+            // Validate maximum single withdrawal
+            BigDecimal maxWithdrawal = new BigDecimal("1000");
+            if (amount.compareTo(maxWithdrawal) > 0) {
+                throw new ValidationException(String.format("Maximum withdrawal amount is $%.2f per transaction", maxWithdrawal));
+            }
+            
+            // Deduct funds using DAO method
+            boolean success = walletDAO.deductFunds(userId, amount);
+            if (!success) {
+                throw new ValidationException("Failed to withdraw funds from wallet");
+            }
+        } finally {
+            walletLocks.unlock(userId);
         }
     }
     
@@ -173,6 +241,18 @@ public class WalletService {
      * Transfer funds between wallets
      */
     public void transferFunds(int fromUserId, int toUserId, BigDecimal amount, String description) throws NFCPayException {
+        long start = TRANSFER_FUNDS.start();
+        try {
+            doTransferFunds(fromUserId, toUserId, amount, description);
+        } catch (Exception e) {
+            TRANSFER_FUNDS.recordError(e);
+            throw e;
+        } finally {
+            TRANSFER_FUNDS.stop(start);
+        }
+    }
+    
+    private void doTransferFunds(int fromUserId, int toUserId, BigDecimal amount, String description) throws NFCPayException {
         ValidationService.validatePositiveInteger(fromUserId, "From User ID");
         ValidationService.validatePositiveInteger(toUserId, "To User ID");
         ValidationService.validateAmount(amount);
@@ -187,31 +267,37 @@ public class WalletService {
             throw new ValidationException(String.format("Maximum transfer amount is $%.2f", maxTransfer));
         }
         
-        Wallet fromWallet = getWallet(fromUserId);
-        Wallet toWallet = getWallet(toUserId);
-        
-        // Check sufficient balance
-        if (!walletDAO.hasSufficientBalance(fromUserId, amount)) {
-            throw new ValidationException("Insufficient funds for transfer");
-        }
-        
-        // Check recipient wallet limit
-        BigDecimal maxBalance = new BigDecimal("10000");
-        if (toWallet.getBalance().add(amount).compareTo(maxBalance) > 0) {
-            throw new ValidationException("Transfer would exceed recipient's wallet limit");
-        }
-        
-        // Perform transfer
-        boolean deducted = walletDAO.deductFunds(fromUserId, amount);
-        if (!deducted) {
-            throw new ValidationException("Failed to deduct funds from sender wallet");
-        }
-        
-        boolean added = walletDAO.addFunds(toUserId, amount);
-        if (!added) {
-            // Rollback - add funds back to sender
-            walletDAO.addFunds(fromUserId, amount);
-            throw new ValidationException("Failed to add funds to recipient wallet");
+        // Lock both wallets (in a fixed order) for the whole check-debit-credit sequence
+        walletLocks.lockPair(fromUserId, toUserId);
+        try {
+            Wallet fromWallet = getWallet(fromUserId);
+            Wallet toWallet = getWallet(toUserId);
+            
+            // Check sufficient balance
+            if (!walletDAO.hasSufficientBalance(fromUserId, amount)) {
+                throw new ValidationException("Insufficient funds for transfer");
+            }
+            
+            // Check recipient wallet limit
+            BigDecimal maxBalance = new BigDecimal("10000");
+            if (toWallet.getBalance().add(amount).compareTo(maxBalance) > 0) {
+                throw new ValidationException("Transfer would exceed recipient's wallet limit");
+            }
+            
+            // Perform transfer
+            boolean deducted = walletDAO.deductFunds(fromUserId, amount);
+            if (!deducted) {
+                throw new ValidationException("Failed to deduct funds from sender wallet");
+            }
+            
+            boolean added = walletDAO.addFunds(toUserId, amount);
+            if (!added) {
+                // Rollback - add funds back to sender
+                walletDAO.addFunds(fromUserId, amount);
+                throw new ValidationException("Failed to add funds to recipient wallet");
+            }
+        } finally {
+            walletLocks.unlockPair(fromUserId, toUserId);
         }
     }
     
@@ -219,6 +305,18 @@ public class WalletService {
      * Check if wallet has sufficient funds
      */
     public boolean hasSufficientFunds(int userId, BigDecimal amount) throws NFCPayException {
+        long start = HAS_SUFFICIENT_FUNDS.start();
+        try {
+            return doHasSufficientFunds(userId, amount);
+        } catch (Exception e) {
+            HAS_SUFFICIENT_FUNDS.recordError(e);
+            throw e;
+        } finally {
+            HAS_SUFFICIENT_FUNDS.stop(start);
+        }
+    }
+    
+    private boolean doHasSufficientFunds(int userId, BigDecimal amount) throws NFCPayException {
         return walletDAO.hasSufficientBalance(userId, amount);
     }
     
@@ -226,6 +324,18 @@ public class WalletService {
      * Get wallet balance
      */
     public BigDecimal getBalance(int userId) throws NFCPayException {
+        long start = GET_BALANCE.start();
+        try {
+            return doGetBalance(userId);
+        } catch (Exception e) {
+            GET_BALANCE.recordError(e);
+            throw e;
+        } finally {
+            GET_BALANCE.stop(start);
+        }
+    }
+    
+    private BigDecimal doGetBalance(int userId) throws NFCPayException {
         return walletDAO.getBalance(userId);
     }
     
@@ -235,6 +345,10 @@ public class WalletService {
      * Validate wallet for transaction
      */
     public void validateWalletForTransaction(int userId, BigDecimal amount) throws NFCPayException {
+        VALIDATE_WALLET_FOR_TRANSACTION.time(() -> doValidateWalletForTransaction(userId, amount));
+    }
+    
+    private void doValidateWalletForTransaction(int userId, BigDecimal amount) throws NFCPayException {
         if (!walletDAO.hasSufficientBalance(userId, amount)) {
             BigDecimal balance = walletDAO.getBalance(userId);
             throw new ValidationException(String.format("Insufficient wallet balance. Available: $%.2f, Required: $%.2f", 
@@ -0,0 +1,400 @@
+package com.nfcpay.tools;
+
+import com.nfcpay.controller.AuthController;
+import com.nfcpay.controller.CardController;
+import com.nfcpay.controller.PaymentController;
+import com.nfcpay.controller.WalletController;
+import com.nfcpay.dao.DatabaseConnection;
+import com.nfcpay.dao.MerchantDAO;
+import com.nfcpay.exception.NFCPayException;
+import com.nfcpay.model.Card;
+import com.nfcpay.model.Merchant;
+import com.nfcpay.model.Transaction;
+import com.nfcpay.model.User;
+import com.nfcpay.model.enums.CardType;
+import com.nfcpay.util.LatencyHistogram;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load generator
+ * Creates synthetic users with wallets and cards, then drives a mix of payments,
+ * refunds, top-ups and transfers through the controllers at a fixed target rate.
+ *
+ * Requests are issued open-loop: latency is measured from each request's scheduled
+ * start, so a stalled system shows up as queueing delay instead of a lower send rate.
+ *
+ * Usage: LoadGenerator [--users=100] [--tps=200] [--duration=30] [--threads=32]
+ *                      [--merchants=20] [--mix=payment:70,refund:5,topup:15,transfer:10]
+ *                      [--db=jdbc:h2:mem:nfcpay-load;DB_CLOSE_DELAY=-1]
+ */
+public class LoadGenerator {
+    private static final String DEFAULT_DB_URL = "jdbc:h2:mem:nfcpay-load;DB_CLOSE_DELAY=-1";
+    private static final String PASSWORD = "LoadTest123";
+    private static final BigDecimal SEED_DEPOSIT = new BigDecimal("2000.00");
+    private static final int MAX_REFUNDABLE = 10_000;
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+
+    enum Operation { PAYMENT, REFUND, TOPUP, TRANSFER }
+
+    private final Config config;
+    private final AuthController authController;
+    private final CardController cardController;
+    private final WalletController walletController;
+    private final PaymentController paymentController;
+
+    private int[] userIds;
+    private int[] cardIds;
+    private int[] merchantIds;
+
+    // Successful payments that can still be refunded: {transactionId, userId}
+    private final BlockingQueue<int[]> refundable = new ArrayBlockingQueue<>(MAX_REFUNDABLE);
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> failures = new EnumMap<>(Operation.class);
+    private final Map<Operation, ConcurrentHashMap<String, LongAdder>> errorCodes = new EnumMap<>(Operation.class);
+    private final LongAdder completed = new LongAdder();
+
+    public LoadGenerator(Config config) {
+        this.config = config;
+        this.authController = new AuthController();
+        this.cardController = new CardController();
+        this.walletController = new WalletController();
+        this.paymentController = new PaymentController();
+
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new LatencyHistogram());
+            failures.put(op, new LongAdder());
+            errorCodes.put(op, new ConcurrentHashMap<>());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config;
+        try {
+            config = Config.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: LoadGenerator [--users=N] [--tps=N] [--duration=SECONDS] [--threads=N] " +
+                               "[--merchants=N] [--mix=payment:70,refund:5,topup:15,transfer:10] [--db=JDBC_URL]");
+            System.exit(2);
+            return;
+        }
+
+        // Never write synthetic users into the application database unless asked to
+        System.setProperty(DatabaseConnection.DB_URL_PROPERTY, config.dbUrl);
+
+        LoadGenerator generator = new LoadGenerator(config);
+        try {
+            generator.setUp();
+            generator.run();
+        } finally {
+            DatabaseConnection.getInstance().shutdown();
+        }
+    }
+
+    /**
+     * Create merchants (if the database has too few) and the synthetic users
+     */
+    void setUp() throws Exception {
+        long started = System.nanoTime();
+        merchantIds = loadMerchants();
+
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        userIds = new int[config.users];
+        cardIds = new int[config.users];
+
+        // Registration is BCrypt-bound, so spread it over the worker threads
+        ExecutorService pool = Executors.newFixedThreadPool(config.threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < config.users; i++) {
+            final int index = i;
+            futures.add(pool.submit(() -> {
+                User user = authController.registerUser("Load User " + index,
+                    "load-" + runId + "-" + index + "@nfcpay.test", PASSWORD);
+                Card card = cardController.addCard(user.getUserId(), "Load Card", CardType.VIRTUAL);
+                walletController.addFunds(user.getUserId(), SEED_DEPOSIT, "Load test seed");
+                walletController.addFunds(user.getUserId(), SEED_DEPOSIT, "Load test seed");
+                userIds[index] = user.getUserId();
+                cardIds[index] = card.getCardId();
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.printf("Created %d users and %d merchants in %.1fs%n",
+            config.users, merchantIds.length, (System.nanoTime() - started) / 1e9);
+    }
+
+    private int[] loadMerchants() throws NFCPayException {
+        List<Merchant> merchants = new ArrayList<>(paymentController.getActiveMerchants());
+        MerchantDAO merchantDAO = new MerchantDAO();
+        String runId = Long.toString(System.currentTimeMillis() % 1_000_000, 36).toUpperCase();
+
+        for (int i = merchants.size(); i < config.merchants; i++) {
+            Merchant merchant = new Merchant("Load Merchant " + i, "L" + runId + i, "General");
+            if (merchantDAO.createMerchant(merchant)) {
+                merchants.add(merchant);
+            }
+        }
+        if (merchants.isEmpty()) {
+            throw new IllegalStateException("No active merchants available");
+        }
+        return merchants.stream().mapToInt(Merchant::getMerchantId).toArray();
+    }
+
+    /**
+     * Issue requests at the target rate for the configured duration, then print the report
+     */
+    void run() throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(config.threads);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "load-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long intervalNanos = 1_000_000_000L / config.tps;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+        long[] lastCompleted = {0};
+        reporter.scheduleAtFixedRate(() -> {
+            long done = completed.sum();
+            System.out.printf("[%4ds] %6.0f ops/s, %d completed%n",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+                (done - lastCompleted[0]) / (double) REPORT_INTERVAL_SECONDS, done);
+            lastCompleted[0] = done;
+        }, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        long issued = 0;
+        Random random = new Random();
+        while (true) {
+            long scheduled = start + issued * intervalNanos;
+            if (scheduled >= end) {
+                break;
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation op = config.pick(random.nextInt(config.mixTotal));
+            workers.execute(() -> execute(op, scheduled));
+            issued++;
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - start;
+        reporter.shutdownNow();
+
+        printReport(issued, elapsedNanos);
+    }
+
+    private void execute(Operation op, long scheduledNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            switch (op) {
+                case PAYMENT:
+                    pay(random);
+                    break;
+                case REFUND:
+                    refund(random);
+                    break;
+                case TOPUP:
+                    int topUpUser = userIds[random.nextInt(userIds.length)];
+                    walletController.addFunds(topUpUser, amount(random, 1000, 10000), "Load test top-up");
+                    break;
+                case TRANSFER:
+                    int from = random.nextInt(userIds.length);
+                    int to = (from + 1 + random.nextInt(Math.max(1, userIds.length - 1))) % userIds.length;
+                    walletController.transferFunds(userIds[from], userIds[to], amount(random, 100, 2500), "Load test transfer");
+                    break;
+            }
+        } catch (NFCPayException e) {
+            fail(op, e.getErrorCode());
+        } catch (RuntimeException e) {
+            fail(op, e.getClass().getSimpleName());
+        } finally {
+            latencies.get(op).recordNanos(System.nanoTime() - scheduledNanos);
+            completed.increment();
+        }
+    }
+
+    private void pay(ThreadLocalRandom random) throws NFCPayException {
+        int index = random.nextInt(userIds.length);
+        int merchantId = merchantIds[random.nextInt(merchantIds.length)];
+        Transaction transaction = paymentController.processPayment(userIds[index], cardIds[index], merchantId,
+            amount(random, 100, 2500), "Load test payment");
+        refundable.offer(new int[]{transaction.getTransactionId(), transaction.getUserId()});
+    }
+
+    private void refund(ThreadLocalRandom random) throws NFCPayException {
+        int[] payment = refundable.poll();
+        if (payment == null) {
+            fail(Operation.REFUND, "NO_REFUNDABLE_PAYMENT");
+            return;
+        }
+        paymentController.refundPayment(payment[0], payment[1], "Load test refund");
+    }
+
+    private void fail(Operation op, String code) {
+        failures.get(op).increment();
+        errorCodes.get(op).computeIfAbsent(code, k -> new LongAdder()).increment();
+    }
+
+    // Random amount in cents, inclusive range
+    private static BigDecimal amount(ThreadLocalRandom random, int minCents, int maxCents) {
+        return BigDecimal.valueOf(random.nextInt(minCents, maxCents + 1), 2);
+    }
+
+    private void printReport(long issued, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long done = completed.sum();
+
+        System.out.println();
+        System.out.println("=== Load test results ===");
+        System.out.printf("Target: %d TPS for %ds, %d users, %d worker threads%n",
+            config.tps, config.durationSeconds, config.users, config.threads);
+        System.out.printf("Issued: %d, completed: %d, achieved: %.1f TPS%n", issued, done, done / seconds);
+        System.out.println();
+        System.out.printf("%-10s %9s %8s %10s %10s %10s %10s%n", "Operation", "Count", "Errors", "p50 ms", "p99 ms", "p999 ms", "Max ms");
+
+        LatencyHistogram all = new LatencyHistogram();
+        long allFailures = 0;
+        for (Operation op : Operation.values()) {
+            LatencyHistogram histogram = latencies.get(op);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            printRow(op.name(), histogram, failures.get(op).sum());
+            all.add(histogram);
+            allFailures += failures.get(op).sum();
+        }
+        printRow("ALL", all, allFailures);
+
+        System.out.println();
+        System.out.println("Error codes:");
+        boolean anyErrors = false;
+        for (Operation op : Operation.values()) {
+            for (Map.Entry<String, LongAdder> entry : new TreeMap<>(errorCodes.get(op)).entrySet()) {
+                System.out.printf("  %-10s %-28s %8d%n", op, entry.getKey(), entry.getValue().sum());
+                anyErrors = true;
+            }
+        }
+        if (!anyErrors) {
+            System.out.println("  none");
+        }
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram, long errors) {
+        System.out.printf("%-10s %9d %8d %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getCount(), errors,
+            histogram.getPercentileMillis(50), histogram.getPercentileMillis(99),
+            histogram.getPercentileMillis(99.9), histogram.getMaxNanos() / 1_000_000.0);
+    }
+
+    /**
+     * Command-line options
+     */
+    static final class Config {
+        int users = 100;
+        int tps = 200;
+        int durationSeconds = 30;
+        int threads = 32;
+        int merchants = 20;
+        String dbUrl = DEFAULT_DB_URL;
+        final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        int mixTotal;
+
+        static Config parse(String[] args) {
+            Config config = new Config();
+            config.mix.put(Operation.PAYMENT, 70);
+            config.mix.put(Operation.REFUND, 5);
+            config.mix.put(Operation.TOPUP, 15);
+            config.mix.put(Operation.TRANSFER, 10);
+
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Unrecognized argument: " + arg);
+                }
+                String key = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                switch (key) {
+                    case "users": config.users = positive(key, value); break;
+                    case "tps": config.tps = positive(key, value); break;
+                    case "duration": config.durationSeconds = positive(key, value); break;
+                    case "threads": config.threads = positive(key, value); break;
+                    case "merchants": config.merchants = positive(key, value); break;
+                    case "db": config.dbUrl = value; break;
+                    case "mix": config.parseMix(value); break;
+                    default: throw new IllegalArgumentException("Unknown option: --" + key);
+                }
+            }
+            if (config.users < 2) {
+                throw new IllegalArgumentException("--users must be at least 2 (transfers need two wallets)");
+            }
+            config.mixTotal = config.mix.values().stream().mapToInt(Integer::intValue).sum();
+            if (config.mixTotal == 0) {
+                throw new IllegalArgumentException("--mix must give at least one operation a positive weight");
+            }
+            return config;
+        }
+
+        private void parseMix(String value) {
+            mix.clear();
+            for (String part : value.split(",")) {
+                String[] weight = part.split(":");
+                if (weight.length != 2) {
+                    throw new IllegalArgumentException("Invalid mix entry: " + part);
+                }
+                Operation op;
+                try {
+                    op = Operation.valueOf(weight[0].trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown operation in mix: " + weight[0]);
+                }
+                mix.put(op, nonNegative("mix " + weight[0], weight[1].trim()));
+            }
+        }
+
+        Operation pick(int ticket) {
+            for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+                ticket -= entry.getValue();
+                if (ticket < 0) {
+                    return entry.getKey();
+                }
+            }
+            return Operation.PAYMENT;
+        }
+
+        private static int positive(String key, String value) {
+            int parsed = nonNegative(key, value);
+            if (parsed == 0) {
+                throw new IllegalArgumentException("--" + key + " must be positive");
+            }
+            return parsed;
+        }
+
+        private static int nonNegative(String key, String value) {
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed < 0) {
+                    throw new IllegalArgumentException(key + " must not be negative");
+                }
+                return parsed;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number for " + key + ": " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.nfcpay.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded LRU map whose entries expire a fixed time after they were loaded
+ * Values should be immutable; change one with update, which replaces it.
+ * A per-key-stripe generation lets a loader skip caching a value it read
+ * while a write to the same key was happening (generation, then putIfUnchanged).
+ */
+public class BoundedTtlCache<K, V> {
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    // Bumped on every update and invalidation of a key in the stripe
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    // Statistics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedTtlCache(int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<K, Entry<V>>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached value, or null on miss/expiry
+     */
+    public V get(K key) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(ttlMillis)) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Token to pass to putIfUnchanged; take it before reading from the source
+     */
+    public long generation(K key) {
+        return generations.get(stripe(key));
+    }
+
+    /**
+     * Cache a freshly loaded value unless the key was written since the token was taken
+     */
+    public void putIfUnchanged(K key, V value, long generation) {
+        synchronized (entries) {
+            if (generations.get(stripe(key)) == generation) {
+                entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    /**
+     * Replace a cached value with change(value); the entry keeps its original expiry
+     */
+    public void update(K key, UnaryOperator<V> change) {
+        synchronized (entries) {
+            generations.incrementAndGet(stripe(key));
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                entries.put(key, new Entry<>(change.apply(entry.value), entry.loadedAt));
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            generations.incrementAndGet(stripe(key));
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            for (int i = 0; i < GENERATION_STRIPES; i++) {
+                generations.incrementAndGet(i);
+            }
+            entries.clear();
+        }
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    // Cache statistics
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getExpirations() { return expirations.sum(); }
+
+    public double getHitRate() {
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+
+        private boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.nfcpay.util;
+
+import com.nfcpay.exception.NFCPayException;
+import com.nfcpay.metrics.Counter;
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.metrics.Timer;
+import org.mindrot.jbcrypt.BCrypt;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool for BCrypt hashing and verification
+ * BCrypt is deliberately CPU-heavy, so it runs on at most one thread per core
+ * with a short queue. When the queue is full the call fails at once with
+ * AUTH_BUSY instead of adding to the backlog.
+ * The work factor is -Dnfcpay.password.workFactor if set; otherwise it is
+ * calibrated at startup to the largest cost whose hash fits .targetMillis,
+ * never below .minWorkFactor.
+ * Also tunable: .threads, .queueSize and .timeoutMillis.
+ */
+public class PasswordHasher {
+    private static PasswordHasher instance;
+
+    public static final String WORK_FACTOR_PROPERTY = "nfcpay.password.workFactor";
+    public static final String TARGET_MILLIS_PROPERTY = "nfcpay.password.targetMillis";
+    public static final String MIN_WORK_FACTOR_PROPERTY = "nfcpay.password.minWorkFactor";
+    public static final String THREADS_PROPERTY = "nfcpay.password.threads";
+    public static final String QUEUE_SIZE_PROPERTY = "nfcpay.password.queueSize";
+    public static final String TIMEOUT_PROPERTY = "nfcpay.password.timeoutMillis";
+
+    private static final Timer HASH = MetricsRegistry.timer("password.hash");
+    private static final Timer VERIFY = MetricsRegistry.timer("password.verify");
+    private static final Counter REJECTED = MetricsRegistry.counter("password.rejected");
+
+    // jBCrypt accepts log rounds 4-30
+    private static final int MIN_LOG_ROUNDS = 4;
+    private static final int MAX_LOG_ROUNDS = 30;
+    private static final int CALIBRATION_LOG_ROUNDS = 6;
+
+    private final ThreadPoolExecutor executor;
+    private final int workFactor;
+    private final long timeoutMillis;
+
+    private PasswordHasher() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int threads = Math.max(1, Integer.getInteger(THREADS_PROPERTY, cpus));
+        int queueSize = Math.max(1, Integer.getInteger(QUEUE_SIZE_PROPERTY, 64));
+        Integer configured = Integer.getInteger(WORK_FACTOR_PROPERTY);
+        this.workFactor = clamp(configured != null ? configured : calibrate());
+        System.out.println("🔐 Password work factor: " + workFactor + (configured != null ? " (configured)" : " (calibrated)"));
+        this.timeoutMillis = Math.max(1, Long.getLong(TIMEOUT_PROPERTY, 10_000L));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize), r -> {
+                Thread thread = new Thread(r, "nfcpay-password-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized PasswordHasher getInstance() {
+        if (instance == null) {
+            instance = new PasswordHasher();
+            MetricsRegistry.gauge("password.queueDepth", () -> instance.executor.getQueue().size());
+        }
+        return instance;
+    }
+
+    /**
+     * BCrypt hash of the password at the configured work factor
+     */
+    public String hash(String password) throws NFCPayException {
+        return run(() -> {
+            long start = HASH.start();
+            try {
+                return BCrypt.hashpw(password, BCrypt.gensalt(workFactor));
+            } finally {
+                HASH.stop(start);
+            }
+        });
+    }
+
+    /**
+     * Whether the password matches the hash (the hash carries its own work factor)
+     */
+    public boolean verify(String password, String hash) throws NFCPayException {
+        return run(() -> {
+            long start = VERIFY.start();
+            try {
+                return BCrypt.checkpw(password, hash);
+            } catch (IllegalArgumentException e) {
+                // Malformed stored hash
+                VERIFY.recordError();
+                return false;
+            } finally {
+                VERIFY.stop(start);
+            }
+        });
+    }
+
+    /**
+     * Whether a hash that just verified should be replaced: its cost differs from the current work factor
+     */
+    public boolean needsRehash(String hash) {
+        return hashCost(hash) != workFactor;
+    }
+
+    public int getWorkFactor() { return workFactor; }
+
+    // Cost field of a "$2a$10$..." hash, or -1 if it cannot be read
+    static int hashCost(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$') {
+            return -1;
+        }
+        int costStart = hash.indexOf('$', 1) + 1;
+        try {
+            return Integer.parseInt(hash.substring(costStart, costStart + 2));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    // Each extra round doubles the time, so one cheap measurement predicts every cost
+    private static int calibrate() {
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, Long.getLong(TARGET_MILLIS_PROPERTY, 100L)));
+        int minimum = clamp(Integer.getInteger(MIN_WORK_FACTOR_PROPERTY, 10));
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", BCrypt.gensalt(CALIBRATION_LOG_ROUNDS));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        int cost = CALIBRATION_LOG_ROUNDS;
+        while (cost < MAX_LOG_ROUNDS && best * 2 <= targetNanos) {
+            best *= 2;
+            cost++;
+        }
+        return Math.max(minimum, cost);
+    }
+
+    private static int clamp(int logRounds) {
+        return Math.min(MAX_LOG_ROUNDS, Math.max(MIN_LOG_ROUNDS, logRounds));
+    }
+
+    private <T> T run(Callable<T> task) throws NFCPayException {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            REJECTED.increment();
+            throw busy(e);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            REJECTED.increment();
+            throw busy(e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw busy(e);
+        } catch (ExecutionException e) {
+            throw new NFCPayException("PASSWORD_HASH_FAILED", "Password hashing failed: " + e.getCause(),
+                "Something went wrong. Please try again.", e.getCause());
+        }
+    }
+
+    private static NFCPayException busy(Exception cause) {
+        return new NFCPayException("AUTH_BUSY", "Password hashing is at capacity, try again shortly",
+            "The system is busy. Please try again in a moment.", cause);
+    }
+}
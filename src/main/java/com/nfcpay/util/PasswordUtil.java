@@ -1,18 +1,19 @@
 package com.nfcpay.util;
 
-import org.mindrot.jbcrypt.BCrypt;
+import com.nfcpay.exception.NFCPayException;
 
 /**
  * Password utility for hashing and verification
+ * Hashing runs on the shared bounded PasswordHasher pool
  */
 public class PasswordUtil {
     
-    public static String hashPassword(String password) {
-        return BCrypt.hashpw(password, BCrypt.gensalt());
+    public static String hashPassword(String password) throws NFCPayException {
+        return PasswordHasher.getInstance().hash(password);
     }
     
-    public static boolean verifyPassword(String password, String hash) {
-        return BCrypt.checkpw(password, hash);
+    public static boolean verifyPassword(String password, String hash) throws NFCPayException {
+        return PasswordHasher.getInstance().verify(password, hash);
     }
     
     public static boolean isValidPassword(String password) {
@@ -1,24 +1,21 @@
 package com.nfcpay.util;
 
-import java.util.Random;
+import com.nfcpay.dao.CardUidAllocator;
+import com.nfcpay.dao.TransactionReferenceGenerator;
 import java.util.UUID;
 
 /**
  * UID Generator for cards and transactions
  */
 public class UIDGenerator {
-    private static final Random random = new Random();
-    
+    // Unique 16-digit Luhn-valid UID from the shared allocator (null if none could be reserved)
     public static String generateCardUID() {
-        StringBuilder uid = new StringBuilder();
-        for (int i = 0; i < 16; i++) {
-            uid.append(random.nextInt(10));
-        }
-        return uid.toString();
+        return CardUidAllocator.getInstance().allocate();
     }
     
+    // Time-ordered and unique across threads and JVMs (see TransactionReferenceGenerator)
     public static String generateTransactionReference() {
-        return "TXN" + System.currentTimeMillis() + random.nextInt(1000);
+        return TransactionReferenceGenerator.getInstance().nextReference();
     }
     
     public static String generateUUID() {
@@ -1,7 +1,6 @@
 package com.nfcpay.view.frames;
 
 import com.nfcpay.controller.MainController;
-import com.nfcpay.model.User;
 import com.nfcpay.util.Session;
 import com.nfcpay.util.UIUtils;
 import com.nfcpay.util.NotificationManager;
@@ -174,34 +173,31 @@ public class LoginFrame extends JFrame {
             return;
         }
         
-        try {
-            // Show loading
-            loginButton.setText("Logging in...");
-            loginButton.setEnabled(false);
-            
-            User user = mainController.getAuthController().login(email, password);
-            Session.setCurrentUser(user);
-            
-            NotificationManager.showSuccess(this, "Login successful! Welcome " + user.getFullName());
-            
-            // Open main application
-            SwingUtilities.invokeLater(() -> {
+        // Show loading
+        loginButton.setText("Logging in...");
+        loginButton.setEnabled(false);
+        
+        // Password verification is CPU-heavy, so it runs off the EDT
+        mainController.getAuthController().loginAsync(email, password)
+            .whenComplete((user, error) -> SwingUtilities.invokeLater(() -> {
+                loginButton.setText("🔑 Login");
+                loginButton.setEnabled(true);
+                
+                if (error != null) {
+                    System.err.println("Login error: " + error.getMessage()); // Debug
+                    NotificationManager.showError(this, "Login failed: " + error.getMessage());
+                    passwordField.setText("");
+                    return;
+                }
+                
+                Session.setCurrentUser(user);
+                NotificationManager.showSuccess(this, "Login successful! Welcome " + user.getFullName());
+                
+                // Open main application
                 MainFrame mainFrame = new MainFrame(mainController);
                 mainFrame.setVisible(true);
                 dispose();
-            });
-            
-        } catch (Exception ex) {
-            System.err.println("Login error: " + ex.getMessage()); // Debug
-            ex.printStackTrace();
-            NotificationManager.showError(this, "Login failed: " + ex.getMessage());
-            passwordField.setText("");
-        } finally {
-            SwingUtilities.invokeLater(() -> {
-                loginButton.setText("🔑 Login");
-                loginButton.setEnabled(true);
-            });
-        }
+            }));
     }
     
     private void handleRegister(ActionEvent e) {
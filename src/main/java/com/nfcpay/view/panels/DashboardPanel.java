@@ -1,7 +1,6 @@
 package com.nfcpay.view.panels;
 
 import com.nfcpay.controller.MainController;
-import com.nfcpay.model.Wallet;
 import com.nfcpay.model.Transaction;
 import com.nfcpay.util.Session;
 import com.nfcpay.util.UIUtils;
@@ -10,6 +9,7 @@ import com.nfcpay.view.components.CustomButton;
 import javax.swing.*;
 import java.awt.*;
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -142,45 +142,22 @@ public class DashboardPanel extends JPanel {
         try {
             int userId = Session.getCurrentUser().getUserId();
             
-            // Get real wallet balance
-            try {
-                Wallet wallet = mainController.getWalletController().getWallet(userId);
-                balanceLabel.setText(String.format("$%.2f", wallet.getBalance()));
-            } catch (Exception e) {
-                balanceLabel.setText("$0.00");
-            }
-            
-            // Get real card count
-            try {
-                int cardCount = mainController.getCardController().getUserCards(userId).size();
-                cardCountLabel.setText(cardCount + " Cards");
-            } catch (Exception e) {
-                cardCountLabel.setText("0 Cards");
-            }
-            
-            // Get real recent transactions and count this month's payments
-            try {
-                List<Transaction> transactions = mainController.getPaymentController().getTransactionHistory(userId);
-                updateTransactionsTable(transactions.subList(0, Math.min(5, transactions.size())));
-                
-                // Count this month's payments
-                long thisMonthPayments = transactions.stream()
-                    .filter(t -> t.getCreatedAt().getMonth() == java.time.LocalDateTime.now().getMonth())
-                    .count();
-                paymentsLabel.setText(thisMonthPayments + " Payments");
-                
-            } catch (Exception e) {
-                // Show empty table if no transactions
-                String[] columns = {"Date", "Description", "Amount", "Status"};
-                Object[][] data = {};
-                recentTransactionsTable.setModel(new javax.swing.table.DefaultTableModel(data, columns) {
-                    @Override
-                    public boolean isCellEditable(int row, int column) {
-                        return false;
+            // Balance, card count, month-to-date payments and recent rows come back together, off the EDT
+            mainController.getPaymentController().getDashboardSummaryAsync(userId)
+                .whenComplete((summary, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        System.err.println("Error loading dashboard: " + error.getMessage());
+                        balanceLabel.setText("$0.00");
+                        cardCountLabel.setText("0 Cards");
+                        paymentsLabel.setText("0 Payments");
+                        updateTransactionsTable(Collections.emptyList());
+                        return;
                     }
-                });
-                paymentsLabel.setText("0 Payments");
-            }
+                    balanceLabel.setText(String.format("$%.2f", summary.getBalance()));
+                    cardCountLabel.setText(summary.getActiveCardCount() + " Cards");
+                    paymentsLabel.setText(summary.getMonthPaymentCount() + " Payments");
+                    updateTransactionsTable(summary.getRecentTransactions());
+                }));
             
         } catch (Exception e) {
             e.printStackTrace();
@@ -3,8 +3,6 @@ package com.nfcpay.view.panels;
 import com.nfcpay.controller.MainController;
 import com.nfcpay.model.Card;
 import com.nfcpay.model.Merchant;
-import com.nfcpay.model.Transaction;
-import com.nfcpay.model.Wallet;
 import com.nfcpay.util.Session;
 import com.nfcpay.util.UIUtils;
 import com.nfcpay.view.components.CustomButton;
@@ -14,7 +12,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.math.BigDecimal;
-import java.util.List;
+import java.util.UUID;
 
 /**
  * Payment Processing Panel
@@ -29,6 +27,9 @@ public class PaymentPanel extends JPanel {
     private JButton nfcTapButton;
     private JLabel balanceLabel;
     
+    // Idempotency key of the payment being made; kept across repeated taps and retries until it succeeds
+    private String pendingPaymentKey;
+    
     public PaymentPanel(MainController mainController) {
         this.mainController = mainController;
         initializeComponents();
@@ -303,15 +304,22 @@ public class PaymentPanel extends JPanel {
     }
     
     private void processNFCPayment(Card card, Merchant merchant, BigDecimal amount) {
-        try {
-            // Process the actual payment
-            Transaction transaction = mainController.getPaymentController().processPayment(
-                Session.getCurrentUser().getUserId(),
-                card.getCardId(),
-                merchant.getMerchantId(),
-                amount,
-                "NFC Contactless Payment"
-            );
+        // Process the actual payment off the EDT
+        setPaymentInProgress(true);
+        mainController.getPaymentController().processPaymentAsync(
+            Session.getCurrentUser().getUserId(),
+            card.getCardId(),
+            merchant.getMerchantId(),
+            amount,
+            "NFC Contactless Payment",
+            pendingPaymentKey()
+        ).whenComplete((transaction, error) -> SwingUtilities.invokeLater(() -> {
+            setPaymentInProgress(false);
+            if (error != null) {
+                UIUtils.showError(this, "NFC Payment failed: " + error.getMessage());
+                return;
+            }
+            pendingPaymentKey = null;
             
             // Success message with NFC branding
             String successMessage = String.format(
@@ -335,10 +343,7 @@ public class PaymentPanel extends JPanel {
             amountField.setText("");
             descriptionField.setText("");
             refreshData();
-            
-        } catch (Exception ex) {
-            UIUtils.showError(this, "NFC Payment failed: " + ex.getMessage());
-        }
+        }));
     }
     
     private void handlePayment(ActionEvent e) {
@@ -379,32 +384,41 @@ public class PaymentPanel extends JPanel {
             confirmDialog.setVisible(true);
             
             if (confirmDialog.isConfirmed()) {
-                // Process payment
-                Transaction transaction = mainController.getPaymentController().processPayment(
+                // Process payment off the EDT
+                setPaymentInProgress(true);
+                mainController.getPaymentController().processPaymentAsync(
                     Session.getCurrentUser().getUserId(),
                     selectedCard.getCardId(),
                     selectedMerchant.getMerchantId(),
                     amount,
-                    description.isEmpty() ? null : description
-                );
-                
-                // Success message
-                String successMessage = String.format(
-                    "Payment Successful!\n\n" +
-                    "Transaction ID: %d\n" +
-                    "Amount: $%.2f\n" +
-                    "Status: %s",
-                    transaction.getTransactionId(),
-                    transaction.getAmount(),
-                    transaction.getStatus()
-                );
-                
-                UIUtils.showSuccess(this, successMessage);
-                
-                // Clear form
-                amountField.setText("");
-                descriptionField.setText("");
-                refreshData();
+                    description.isEmpty() ? null : description,
+                    pendingPaymentKey()
+                ).whenComplete((transaction, error) -> SwingUtilities.invokeLater(() -> {
+                    setPaymentInProgress(false);
+                    if (error != null) {
+                        UIUtils.showError(this, "Payment failed: " + error.getMessage());
+                        return;
+                    }
+                    pendingPaymentKey = null;
+                    
+                    // Success message
+                    String successMessage = String.format(
+                        "Payment Successful!\n\n" +
+                        "Transaction ID: %d\n" +
+                        "Amount: $%.2f\n" +
+                        "Status: %s",
+                        transaction.getTransactionId(),
+                        transaction.getAmount(),
+                        transaction.getStatus()
+                    );
+                    
+                    UIUtils.showSuccess(this, successMessage);
+                    
+                    // Clear form
+                    amountField.setText("");
+                    descriptionField.setText("");
+                    refreshData();
+                }));
             }
             
         } catch (NumberFormatException ex) {
@@ -414,41 +428,58 @@ public class PaymentPanel extends JPanel {
         }
     }
     
+    // Both pay buttons stay disabled while a payment is in flight
+    private void setPaymentInProgress(boolean inProgress) {
+        payButton.setEnabled(!inProgress);
+        nfcTapButton.setEnabled(!inProgress);
+    }
+    
+    private String pendingPaymentKey() {
+        if (pendingPaymentKey == null) {
+            pendingPaymentKey = UUID.randomUUID().toString();
+        }
+        return pendingPaymentKey;
+    }
+    
     public void refreshData() {
         try {
             int userId = Session.getCurrentUser().getUserId();
             
-            // Load cards
-            try {
-                List<Card> cards = mainController.getCardController().getUserCards(userId);
-                cardComboBox.removeAllItems();
-                for (Card card : cards) {
-                    if (card.isActive()) {
-                        cardComboBox.addItem(card);
+            // Cards, merchants and balance load in parallel off the EDT
+            mainController.getCardController().getUserCardsAsync(userId)
+                .whenComplete((cards, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        System.err.println("Error loading cards: " + error.getMessage());
+                        return;
                     }
-                }
-            } catch (Exception ex) {
-                System.err.println("Error loading cards: " + ex.getMessage());
-            }
+                    cardComboBox.removeAllItems();
+                    for (Card card : cards) {
+                        if (card.isActive()) {
+                            cardComboBox.addItem(card);
+                        }
+                    }
+                }));
             
-            // Load merchants
-            try {
-                List<Merchant> merchants = mainController.getPaymentController().getActiveMerchants();
-                merchantComboBox.removeAllItems();
-                for (Merchant merchant : merchants) {
-                    merchantComboBox.addItem(merchant);
-                }
-            } catch (Exception ex) {
-                System.err.println("Error loading merchants: " + ex.getMessage());
-            }
+            mainController.getPaymentController().getActiveMerchantsAsync()
+                .whenComplete((merchants, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        System.err.println("Error loading merchants: " + error.getMessage());
+                        return;
+                    }
+                    merchantComboBox.removeAllItems();
+                    for (Merchant merchant : merchants) {
+                        merchantComboBox.addItem(merchant);
+                    }
+                }));
             
-            // Update balance
-            try {
-                Wallet wallet = mainController.getWalletController().getWallet(userId);
-                balanceLabel.setText(String.format("Balance: $%.2f", wallet.getBalance()));
-            } catch (Exception ex) {
-                balanceLabel.setText("Balance: $0.00");
-            }
+            mainController.getWalletController().getWalletAsync(userId)
+                .whenComplete((wallet, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null || wallet == null) {
+                        balanceLabel.setText("Balance: $0.00");
+                    } else {
+                        balanceLabel.setText(String.format("Balance: $%.2f", wallet.getBalance()));
+                    }
+                }));
             
         } catch (Exception e) {
             UIUtils.showError(this, "Failed to load payment data: " + e.getMessage());
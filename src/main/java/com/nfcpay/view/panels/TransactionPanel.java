@@ -2,6 +2,10 @@ package com.nfcpay.view.panels;
 
 import com.nfcpay.controller.MainController;
 import com.nfcpay.model.Transaction;
+import com.nfcpay.model.TransactionFilter;
+import com.nfcpay.model.TransactionPage;
+import com.nfcpay.model.enums.TransactionType;
+import com.nfcpay.service.ExportService;
 import com.nfcpay.util.Session;
 import com.nfcpay.util.UIUtils;
 import com.nfcpay.util.NotificationManager;
@@ -10,6 +14,7 @@ import com.nfcpay.view.components.*;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -26,8 +31,11 @@ public class TransactionPanel extends JPanel {
     private CustomButton exportBtn;
     private JLabel paginationInfo, pageLabel;
     private JButton prevBtn, nextBtn;
-    private List<Transaction> allTransactions;
-    private List<Transaction> filteredTransactions;
+    private TransactionFilter currentFilter = TransactionFilter.none();
+    private TransactionPage currentPageData;
+    // Cursor that starts each visited page; index 0 is the first page (null cursor)
+    private final List<TransactionPage.Cursor> pageCursors = new ArrayList<>();
+    private int totalCount = 0;
     private int currentPage = 1;
     private int itemsPerPage = 10;
     private int totalPages = 0;
@@ -87,7 +95,7 @@ public class TransactionPanel extends JPanel {
         filtersLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
         filtersLabel.setForeground(UIUtils.getTextColor());
         
-        typeFilter = new JComboBox<>(new String[]{"All Types", "PAYMENT", "REFUND", "TRANSFER"});
+        typeFilter = new JComboBox<>(new String[]{"All Types", "PAYMENT", "REFUND"});
         dateFilter = new JComboBox<>(new String[]{"All Time", "Today", "This Week", "This Month"});
         cardFilter = new JComboBox<>(new String[]{"All Cards", "PHYSICAL", "VIRTUAL"});
         
@@ -105,7 +113,7 @@ public class TransactionPanel extends JPanel {
         JPanel rightActions = new JPanel(new FlowLayout(FlowLayout.RIGHT, UIUtils.SPACING_SM, 0));
         rightActions.setBackground(UIUtils.getBackgroundColor());
         
-        exportBtn = new CustomButton("📊 Export CSV", CustomButton.ButtonStyle.SECONDARY);
+        exportBtn = new CustomButton("📊 Export", CustomButton.ButtonStyle.SECONDARY);
         exportBtn.setPreferredSize(new Dimension(130, 35));
         exportBtn.addActionListener(this::handleExport);
         
@@ -207,57 +215,31 @@ public class TransactionPanel extends JPanel {
     }
     
     private void applyFilters() {
-        if (allTransactions == null) return;
-        
-        String searchText = searchPanel.getSearchText().toLowerCase();
+        currentFilter = buildFilter();
+        resetPaging();
+        loadPage(true, null);
+    }
+    
+    private TransactionFilter buildFilter() {
         String selectedType = (String) typeFilter.getSelectedItem();
         String selectedDate = (String) dateFilter.getSelectedItem();
-        String selectedCard = (String) cardFilter.getSelectedItem();
-        
-        filteredTransactions = allTransactions.stream()
-            .filter(transaction -> {
-                // Search filter
-                boolean matchesSearch = searchText.isEmpty() || 
-                    transaction.getDescription().toLowerCase().contains(searchText) ||
-                    String.valueOf(transaction.getAmount()).contains(searchText) ||
-                    transaction.getTransactionType().toString().toLowerCase().contains(searchText) ||
-                    transaction.getStatus().toString().toLowerCase().contains(searchText);
-                
-                // Type filter
-                boolean matchesType = "All Types".equals(selectedType) || 
-                    transaction.getTransactionType().toString().equals(selectedType);
-                
-                // Card filter (based on actual card types)
-                boolean matchesCard = "All Cards".equals(selectedCard) || 
-                    selectedCard.equals("PHYSICAL") || selectedCard.equals("VIRTUAL");
-                
-                // Date filter
-                boolean matchesDate = "All Time".equals(selectedDate) || 
-                    checkDateFilter(transaction, selectedDate);
-                
-                return matchesSearch && matchesType && matchesCard && matchesDate;
-            })
-            .collect(java.util.stream.Collectors.toList());
         
-        currentPage = 1;
-        updatePagination();
-        statusPanel.showStatus("Showing " + filteredTransactions.size() + " transactions", 
-                             StatusPanel.StatusType.INFO);
+        TransactionType type = "All Types".equals(selectedType) ? null : TransactionType.valueOf(selectedType);
+        return new TransactionFilter(type, dateFilterStart(selectedDate), searchPanel.getSearchText());
     }
     
-    private boolean checkDateFilter(Transaction transaction, String dateFilter) {
+    private java.time.LocalDateTime dateFilterStart(String dateFilter) {
         java.time.LocalDateTime now = java.time.LocalDateTime.now();
-        java.time.LocalDateTime transactionDate = transaction.getCreatedAt();
         
         switch (dateFilter) {
             case "Today":
-                return transactionDate.toLocalDate().equals(now.toLocalDate());
+                return now.toLocalDate().atStartOfDay();
             case "This Week":
-                return transactionDate.isAfter(now.minusWeeks(1));
+                return now.minusWeeks(1);
             case "This Month":
-                return transactionDate.isAfter(now.minusMonths(1));
+                return now.minusMonths(1);
             default:
-                return true;
+                return null;
         }
     }
     
@@ -329,29 +311,59 @@ public class TransactionPanel extends JPanel {
     
     public void refreshData() {
         statusPanel.showProgress("Loading transactions...", 0);
-        
-        SwingWorker<List<Transaction>, Void> worker = new SwingWorker<List<Transaction>, Void>() {
+        currentFilter = buildFilter();
+        resetPaging();
+        loadPage(true, "Loaded %d transactions");
+    }
+    
+    private void resetPaging() {
+        pageCursors.clear();
+        pageCursors.add(null);
+        currentPage = 1;
+    }
+    
+    /**
+     * Fetch only the current page; the total is re-counted when the filter changes
+     */
+    private void loadPage(boolean recount, String loadedMessage) {
+        final int userId = Session.getCurrentUser().getUserId();
+        final TransactionFilter filter = currentFilter;
+        final TransactionPage.Cursor after = pageCursors.get(currentPage - 1);
+        prevBtn.setEnabled(false);
+        nextBtn.setEnabled(false);
+        
+        SwingWorker<TransactionPage, Void> worker = new SwingWorker<TransactionPage, Void>() {
+            private int count = totalCount;
+            
             @Override
-            protected List<Transaction> doInBackground() throws Exception {
-                statusPanel.showProgress("Loading transactions...", 50);
+            protected TransactionPage doInBackground() throws Exception {
+                if (recount) {
+                    count = mainController.getPaymentController().countTransactions(userId, filter);
+                }
                 return mainController.getPaymentController()
-                    .getTransactionHistory(Session.getCurrentUser().getUserId());
+                    .getTransactionPage(userId, filter, after, itemsPerPage);
             }
             
             @Override
             protected void done() {
+                // A newer filter superseded this request
+                if (filter != currentFilter) return;
+                
                 try {
-                    allTransactions = get();
-                    filteredTransactions = new java.util.ArrayList<>(allTransactions);
-                    currentPage = 1;
-                    updatePagination();
+                    TransactionPage page = get();
+                    totalCount = count;
+                    showPage(page);
                     updateButtonStates();
                     
-                    statusPanel.showProgress("Transactions loaded", 100);
-                    statusPanel.showStatus("Loaded " + allTransactions.size() + " transactions", 
-                                         StatusPanel.StatusType.SUCCESS);
+                    if (loadedMessage != null) {
+                        statusPanel.showProgress("Transactions loaded", 100);
+                        statusPanel.showStatus(String.format(loadedMessage, totalCount), StatusPanel.StatusType.SUCCESS);
+                    } else if (recount) {
+                        statusPanel.showStatus("Showing " + totalCount + " transactions", StatusPanel.StatusType.INFO);
+                    }
                     
                 } catch (Exception e) {
+                    prevBtn.setEnabled(currentPage > 1);
                     statusPanel.showStatus("Failed to load transactions", StatusPanel.StatusType.ERROR);
                     NotificationManager.showOperationError(TransactionPanel.this, "load transactions", e.getMessage());
                 }
@@ -362,80 +374,108 @@ public class TransactionPanel extends JPanel {
     }
     
     private void handleExport(java.awt.event.ActionEvent e) {
-        try {
-            if (allTransactions == null || allTransactions.isEmpty()) {
-                UIUtils.showWarning(this, "No transactions to export");
-                return;
+        if (totalCount == 0) {
+            UIUtils.showWarning(this, "No transactions to export");
+            return;
+        }
+        
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export Transactions");
+        javax.swing.filechooser.FileNameExtensionFilter csvFilter = 
+            new javax.swing.filechooser.FileNameExtensionFilter("CSV Files", "csv");
+        javax.swing.filechooser.FileNameExtensionFilter jsonFilter = 
+            new javax.swing.filechooser.FileNameExtensionFilter("JSON Lines Files", "jsonl");
+        fileChooser.addChoosableFileFilter(csvFilter);
+        fileChooser.addChoosableFileFilter(jsonFilter);
+        fileChooser.setFileFilter(csvFilter);
+        
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        String filePath = fileChooser.getSelectedFile().getAbsolutePath();
+        ExportService.Format format = fileChooser.getFileFilter() == jsonFilter || filePath.endsWith(".jsonl")
+            ? ExportService.Format.JSON_LINES : ExportService.Format.CSV;
+        if (!filePath.endsWith("." + format.getExtension())) {
+            filePath += "." + format.getExtension();
+        }
+        
+        final java.nio.file.Path target = java.nio.file.Paths.get(filePath);
+        final int userId = Session.getCurrentUser().getUserId();
+        final TransactionFilter filter = currentFilter;
+        exportBtn.setEnabled(false);
+        statusPanel.showProgress("Exporting transactions...", 0);
+        
+        // Rows stream from the database to disk off the EDT; only progress comes back
+        SwingWorker<Long, Integer> worker = new SwingWorker<Long, Integer>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return mainController.getPaymentController().exportTransactions(userId, filter, format, target,
+                    (written, total) -> publish((int) (written * 100 / Math.max(1, total))));
             }
             
-            JFileChooser fileChooser = new JFileChooser();
-            fileChooser.setDialogTitle("Export Transactions");
-            fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV Files", "csv"));
+            @Override
+            protected void process(List<Integer> chunks) {
+                statusPanel.showProgress("Exporting transactions...", chunks.get(chunks.size() - 1));
+            }
             
-            if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-                String filePath = fileChooser.getSelectedFile().getAbsolutePath();
-                if (!filePath.endsWith(".csv")) {
-                    filePath += ".csv";
-                }
-                
-                // Simple CSV export
-                StringBuilder csv = new StringBuilder();
-                csv.append("Date,Time,Merchant,Amount,Status,Type\n");
-                
-                for (Transaction t : allTransactions) {
-                    csv.append(String.format("%s,%s,%s,%.2f,%s,%s\n",
-                        t.getCreatedAt().toLocalDate(),
-                        t.getCreatedAt().toLocalTime().toString().substring(0, 5),
-                        t.getDescription(),
-                        t.getAmount(),
-                        t.getStatus(),
-                        t.getTransactionType()
-                    ));
+            @Override
+            protected void done() {
+                exportBtn.setEnabled(true);
+                try {
+                    long rows = get();
+                    statusPanel.showProgress("Export completed", 100);
+                    statusPanel.showStatus("Exported " + rows + " transactions", StatusPanel.StatusType.SUCCESS);
+                    UIUtils.showSuccess(TransactionPanel.this, "Transactions exported to: " + target);
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    statusPanel.showStatus("Export failed", StatusPanel.StatusType.ERROR);
+                    UIUtils.showError(TransactionPanel.this, "Export failed: " + cause.getMessage());
                 }
-                
-                java.nio.file.Files.write(java.nio.file.Paths.get(filePath), csv.toString().getBytes());
-                UIUtils.showSuccess(this, "Transactions exported to: " + filePath);
             }
-            
-        } catch (Exception ex) {
-            UIUtils.showError(this, "Export failed: " + ex.getMessage());
-        }
+        };
+        
+        worker.execute();
     }
     
-    private void updatePagination() {
-        if (filteredTransactions == null) filteredTransactions = allTransactions;
-        if (filteredTransactions == null) filteredTransactions = new java.util.ArrayList<>();
+    private void showPage(TransactionPage page) {
+        currentPageData = page;
+        tableModel.setData(page.getTransactions());
+        
+        // Remember where the next page starts so Next and Previous never re-scan earlier rows
+        if (page.hasMore()) {
+            if (pageCursors.size() > currentPage) {
+                pageCursors.set(currentPage, page.getNextCursor());
+            } else {
+                pageCursors.add(page.getNextCursor());
+            }
+        }
         
-        totalPages = (int) Math.ceil((double) filteredTransactions.size() / itemsPerPage);
-        if (totalPages == 0) totalPages = 1;
-        if (currentPage > totalPages) currentPage = totalPages;
-        if (currentPage < 1) currentPage = 1;
+        totalPages = (int) Math.ceil((double) totalCount / itemsPerPage);
+        if (totalPages < currentPage) totalPages = currentPage;
         
         int startIndex = (currentPage - 1) * itemsPerPage;
-        int endIndex = Math.min(startIndex + itemsPerPage, filteredTransactions.size());
-        
-        List<Transaction> pageTransactions = filteredTransactions.subList(startIndex, endIndex);
-        tableModel.setData(pageTransactions);
+        int endIndex = startIndex + page.size();
         
         paginationInfo.setText(String.format("Showing %d-%d of %d transactions", 
-            startIndex + 1, endIndex, filteredTransactions.size()));
+            page.isEmpty() ? 0 : startIndex + 1, endIndex, totalCount));
         pageLabel.setText(String.format("Page %d of %d", currentPage, totalPages));
         
         prevBtn.setEnabled(currentPage > 1);
-        nextBtn.setEnabled(currentPage < totalPages);
+        nextBtn.setEnabled(page.hasMore());
     }
     
     private void previousPage() {
         if (currentPage > 1) {
             currentPage--;
-            updatePagination();
+            loadPage(false, null);
         }
     }
     
     private void nextPage() {
-        if (currentPage < totalPages) {
+        if (currentPageData != null && currentPageData.hasMore()) {
             currentPage++;
-            updatePagination();
+            loadPage(false, null);
         }
     }
     
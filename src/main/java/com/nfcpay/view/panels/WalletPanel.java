@@ -299,10 +299,11 @@ public class WalletPanel extends JPanel {
             try {
                 // Get recent transactions for wallet activity
                 List<com.nfcpay.model.Transaction> transactions = mainController.getPaymentController()
-                    .getTransactionHistory(Session.getCurrentUser().getUserId());
+                    .getTransactionPage(Session.getCurrentUser().getUserId(), com.nfcpay.model.TransactionFilter.none(), null, 4)
+                    .getTransactions();
                 
                 // Show last 4 transactions
-                int count = Math.min(4, transactions.size());
+                int count = transactions.size();
                 for (int i = 0; i < count; i++) {
                     com.nfcpay.model.Transaction t = transactions.get(i);
                     addActivityItem(t);
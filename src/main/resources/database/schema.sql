@@ -42,6 +42,9 @@ CREATE TABLE cards (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Card UID serial blocks (each value reserves 1000 serials)
+CREATE SEQUENCE card_uid_seq START WITH 1;
+
 -- 4. MERCHANTS TABLE
 CREATE TABLE merchants (
     merchant_id SERIAL PRIMARY KEY,
@@ -50,6 +53,7 @@ CREATE TABLE merchants (
     category VARCHAR(50) DEFAULT 'General',
     is_active BOOLEAN DEFAULT TRUE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     
     CONSTRAINT merchant_code_format CHECK (merchant_code ~* '^[A-Z0-9]{4,10}$')
 );
@@ -67,10 +71,35 @@ CREATE TABLE transactions (
     description TEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     processed_at TIMESTAMP,
+    idempotency_key VARCHAR(64),
     
     CONSTRAINT reference_code_format CHECK (reference_code ~* '^TXN[A-Z0-9]{10,20}$')
 );
 
+-- Node ids for transaction reference codes, leased per running process
+-- (a lease whose heartbeat is older than db.nodeLease.seconds may be taken over;
+-- last_stamp is where the next holder's ids continue from)
+CREATE TABLE node_leases (
+    node_id INTEGER PRIMARY KEY CHECK (node_id BETWEEN 0 AND 1023),
+    owner VARCHAR(100) NOT NULL,
+    heartbeat TIMESTAMP NOT NULL,
+    last_stamp BIGINT NOT NULL DEFAULT 0
+);
+
+-- 6. SPEND ROLLUPS (successful payments and refunds per user, merchant and DAY/MONTH period)
+CREATE TABLE spend_rollups (
+    user_id INTEGER NOT NULL,
+    merchant_id INTEGER NOT NULL,
+    category VARCHAR(50),
+    period_type VARCHAR(5) NOT NULL CHECK (period_type IN ('DAY', 'MONTH')),
+    period_start DATE NOT NULL,
+    payment_total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    payment_count INTEGER NOT NULL DEFAULT 0,
+    refund_total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    refund_count INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, period_type, period_start, merchant_id)
+);
+
 -- INDEXES FOR PERFORMANCE
 CREATE INDEX idx_users_email ON users(email);
 CREATE INDEX idx_users_active ON users(is_active);
@@ -83,6 +112,8 @@ CREATE INDEX idx_transactions_merchant_id ON transactions(merchant_id);
 CREATE INDEX idx_transactions_status ON transactions(status);
 CREATE INDEX idx_transactions_created_at ON transactions(created_at);
 CREATE INDEX idx_transactions_reference ON transactions(reference_code);
+CREATE INDEX idx_transactions_user_created ON transactions(user_id, created_at DESC, transaction_id DESC);
+CREATE UNIQUE INDEX idx_transactions_idempotency ON transactions(user_id, idempotency_key);
 CREATE INDEX idx_wallets_user_id ON wallets(user_id);
 
 -- TRIGGER FOR AUTOMATIC WALLET TIMESTAMP UPDATE
@@ -97,4 +128,10 @@ $$ LANGUAGE plpgsql;
 CREATE TRIGGER wallet_update_trigger
     BEFORE UPDATE ON wallets
     FOR EACH ROW
-    EXECUTE FUNCTION update_wallet_timestamp();
\ No newline at end of file
+    EXECUTE FUNCTION update_wallet_timestamp();
+
+-- Same timestamp bump for merchants; the merchant catalog polls it to detect changes
+CREATE TRIGGER merchant_update_trigger
+    BEFORE UPDATE ON merchants
+    FOR EACH ROW
+    EXECUTE FUNCTION update_wallet_timestamp();
@@ -0,0 +1,110 @@
+package com.nfcpay;
+
+import com.nfcpay.dao.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rows for tests, inserted straight into the shared in-memory test database
+ * Every call creates new rows with unique emails, UIDs and codes, so test
+ * classes can share the database without seeing each other's data.
+ */
+public final class TestData {
+    private static final AtomicInteger SERIAL = new AtomicInteger();
+
+    private TestData() {}
+
+    /**
+     * Active user with a USD wallet holding the given balance
+     */
+    public static int createUser(BigDecimal walletBalance) throws SQLException {
+        int serial = SERIAL.incrementAndGet();
+        int userId = insert("INSERT INTO users (full_name, email, password_hash) VALUES (?, ?, ?)",
+            "Test User " + serial, "test-" + serial + "@nfcpay.test", "not-a-hash");
+        insert("INSERT INTO wallets (user_id, balance, currency) VALUES (?, ?, 'USD')", userId, walletBalance);
+        return userId;
+    }
+
+    /**
+     * Active virtual card owned by the user
+     */
+    public static int createCard(int userId) throws SQLException {
+        int serial = SERIAL.incrementAndGet();
+        return insert("INSERT INTO cards (user_id, card_uid, card_name, card_type) VALUES (?, ?, ?, 'VIRTUAL')",
+            userId, "TEST" + serial, "Test Card " + serial);
+    }
+
+    /**
+     * Active merchant in the General category
+     */
+    public static int createMerchant() throws SQLException {
+        int serial = SERIAL.incrementAndGet();
+        return insert("INSERT INTO merchants (merchant_name, merchant_code, category) VALUES (?, ?, 'General')",
+            "Test Merchant " + serial, String.format("TM%06d", serial));
+    }
+
+    public static int count(String sql, Object... params) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    public static String cardUid(int cardId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT card_uid FROM cards WHERE card_id = ?")) {
+            pstmt.setInt(1, cardId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    public static void execute(String sql, Object... params) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind(pstmt, params);
+            pstmt.executeUpdate();
+        }
+    }
+
+    public static BigDecimal walletBalance(int userId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT balance FROM wallets WHERE user_id = ?")) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getBigDecimal(1);
+            }
+        }
+    }
+
+    private static int insert(String sql, Object... params) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            bind(pstmt, params);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement pstmt, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            pstmt.setObject(i + 1, params[i]);
+        }
+    }
+}
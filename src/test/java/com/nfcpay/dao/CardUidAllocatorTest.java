@@ -0,0 +1,61 @@
+package com.nfcpay.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardUidAllocatorTest {
+
+    @Test
+    void allocatorsSharingTheDatabaseNeverHandOutTheSameUid() throws Exception {
+        List<CardUidAllocator> allocators = List.of(new CardUidAllocator(), new CardUidAllocator(), new CardUidAllocator());
+        int perThread = 2_500;
+
+        ExecutorService pool = Executors.newFixedThreadPool(allocators.size() * 2);
+        List<Future<List<String>>> results = new ArrayList<>();
+        try {
+            // Two threads per allocator, so blocks are reserved concurrently and shared within an instance
+            for (CardUidAllocator allocator : allocators) {
+                for (int t = 0; t < 2; t++) {
+                    results.add(pool.submit(() -> {
+                        List<String> uids = new ArrayList<>(perThread);
+                        for (int i = 0; i < perThread; i++) {
+                            uids.add(allocator.allocate());
+                        }
+                        return uids;
+                    }));
+                }
+            }
+
+            Set<String> seen = new HashSet<>();
+            for (Future<List<String>> result : results) {
+                for (String uid : result.get(30, TimeUnit.SECONDS)) {
+                    assertNotNull(uid);
+                    assertEquals(16, uid.length(), uid);
+                    assertTrue(CardUidAllocator.isValidLuhn(uid), uid);
+                    assertTrue(seen.add(uid), "duplicate " + uid);
+                }
+            }
+            assertEquals(allocators.size() * 2 * perThread, seen.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void luhnCheckDigitValidates() {
+        assertTrue(CardUidAllocator.isValidLuhn("4539578763621486"));
+        assertFalse(CardUidAllocator.isValidLuhn("4539578763621487"));
+        assertFalse(CardUidAllocator.isValidLuhn("45395787636214a6"));
+        assertFalse(CardUidAllocator.isValidLuhn(null));
+    }
+}
@@ -0,0 +1,51 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.TestData;
+import com.nfcpay.model.CardTap;
+import com.nfcpay.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardUidIndexTest {
+
+    @Test
+    void cardInsertedByAnotherProcessIsResolved() throws Exception {
+        CardUidIndex index = CardUidIndex.getInstance();
+        int userId = TestData.createUser(BigDecimal.ZERO);
+        // Written straight to the table, bypassing this process's CardDAO and its index updates
+        int cardId = TestData.createCard(userId);
+        String cardUid = TestData.cardUid(cardId);
+
+        CardTap tap = index.resolve(cardUid);
+        assertNotNull(tap);
+        assertEquals(cardId, tap.getCardId());
+        assertEquals(userId, tap.getUserId());
+        assertTrue(tap.isActive());
+        assertSame(tap, index.resolve(cardUid), "a found card is cached");
+    }
+
+    @Test
+    void unknownUidIsNotFound() {
+        assertNull(CardUidIndex.getInstance().resolve("NO-SUCH-UID"));
+    }
+
+    @Test
+    void paymentRejectsCardDeactivatedElsewhereThoughIndexSaysActive() throws Exception {
+        int userId = TestData.createUser(new BigDecimal("50.00"));
+        int cardId = TestData.createCard(userId);
+        int merchantId = TestData.createMerchant();
+        String cardUid = TestData.cardUid(cardId);
+        assertTrue(CardUidIndex.getInstance().resolve(cardUid).isActive());
+
+        TestData.execute("UPDATE cards SET is_active = FALSE WHERE card_id = ?", cardId);
+        assertTrue(CardUidIndex.getInstance().resolve(cardUid).isActive(), "advisory flag is stale");
+
+        Transaction payment = new Transaction(userId, cardId, merchantId, new BigDecimal("5.00"), "PAYMENT", "SUCCESS", "tap");
+        PaymentDAO.PaymentResult result = new PaymentDAO().executePayment(payment, new BigDecimal("1000.00"));
+        assertEquals(PaymentDAO.Outcome.CARD_INACTIVE, result.getOutcome());
+        assertEquals(0, new BigDecimal("50.00").compareTo(TestData.walletBalance(userId)));
+    }
+}
@@ -0,0 +1,285 @@
+package com.nfcpay.dao;
+
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // Each test gets its own in-memory database so pool counters start from zero
+    private ConnectionPool newPool(int maxActive, long borrowTimeoutMillis, int statementCacheSize) {
+        String url = "jdbc:h2:mem:pool-test-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        pool = new ConnectionPool(url, "sa", "", 0, maxActive, maxActive, 0,
+            borrowTimeoutMillis, 60_000, 2, statementCacheSize);
+        return pool;
+    }
+
+    @Test
+    void borrowTimesOutWhenPoolIsExhausted() throws SQLException {
+        newPool(2, 200, 0);
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+        assertEquals(2, pool.getActiveCount());
+
+        long start = System.nanoTime();
+        SQLException e = assertThrows(SQLException.class, pool::borrow);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(e.getMessage().contains("Timed out"), e.getMessage());
+        assertTrue(waitedMillis >= 150, "gave up after " + waitedMillis + " ms");
+        assertEquals(1, pool.getBorrowTimeouts());
+        assertEquals(2, pool.getTotalConnections());
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void closeReturnsConnectionToPool() throws SQLException {
+        newPool(1, 200, 0);
+        Connection first = pool.borrow();
+        first.close();
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+
+        try (Connection second = pool.borrow()) {
+            assertEquals(1, pool.getActiveCount());
+            assertEquals(1, pool.getCreatedCount(), "the returned physical connection is reused");
+        }
+        assertEquals(0, pool.getBorrowTimeouts());
+    }
+
+    @Test
+    void closingTwiceReturnsConnectionOnce() throws SQLException {
+        newPool(1, 200, 0);
+        Connection first = pool.borrow();
+        first.close();
+        Connection second = pool.borrow();
+
+        // A stale handle must not free the slot now held by second
+        first.close();
+        assertTrue(first.isClosed());
+        assertEquals(1, pool.getActiveCount());
+        assertThrows(SQLException.class, pool::borrow);
+
+        second.close();
+    }
+
+    @Test
+    void returnedConnectionCannotBeUsed() throws SQLException {
+        newPool(1, 200, 0);
+        Connection connection = pool.borrow();
+        connection.close();
+
+        assertThrows(SQLException.class, connection::createStatement);
+    }
+
+    @Test
+    void waitingBorrowerGetsReturnedConnection() throws Exception {
+        newPool(1, 5_000, 0);
+        Connection held = pool.borrow();
+
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(waiter.isDone());
+
+        held.close();
+        try (Connection handedOver = waiter.get(2, TimeUnit.SECONDS)) {
+            assertFalse(handedOver.isClosed());
+        }
+        assertEquals(0, pool.getBorrowTimeouts());
+    }
+
+    @Test
+    void borrowFailsAfterShutdown() {
+        newPool(1, 200, 0);
+        pool.shutdown();
+
+        assertThrows(SQLException.class, pool::borrow);
+    }
+
+    @Test
+    void preparedStatementIsReusedAfterClose() throws SQLException {
+        newPool(1, 200, 8);
+        String sql = "SELECT X FROM SYSTEM_RANGE(1, 3) WHERE X >= ?";
+
+        try (Connection connection = pool.borrow()) {
+            try (PreparedStatement first = connection.prepareStatement(sql)) {
+                first.setInt(1, 2);
+                assertEquals(2, countRows(first));
+            }
+            try (PreparedStatement second = connection.prepareStatement(sql)) {
+                // Parameters were cleared on check-in
+                assertThrows(SQLException.class, second::executeQuery);
+                second.setInt(1, 1);
+                assertEquals(3, countRows(second));
+            }
+        }
+        // Cached per physical connection, so it survives the logical connection too
+        try (Connection connection = pool.borrow();
+             PreparedStatement third = connection.prepareStatement(sql)) {
+            third.setInt(1, 3);
+            assertEquals(1, countRows(third));
+        }
+
+        assertEquals(1, pool.getStatementCacheMisses());
+        assertEquals(2, pool.getStatementCacheHits());
+    }
+
+    @Test
+    void nestedPrepareOfSameSqlGetsItsOwnStatement() throws SQLException {
+        newPool(1, 200, 8);
+        String sql = "SELECT X FROM SYSTEM_RANGE(1, 2)";
+
+        try (Connection connection = pool.borrow();
+             PreparedStatement outer = connection.prepareStatement(sql);
+             PreparedStatement inner = connection.prepareStatement(sql)) {
+            ResultSet outerRows = outer.executeQuery();
+            assertTrue(outerRows.next());
+            assertEquals(2, countRows(inner));
+            assertTrue(outerRows.next(), "inner statement must not close the outer result set");
+        }
+        assertEquals(2, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsEvictedBeyondCacheSize() throws SQLException {
+        newPool(1, 200, 2);
+
+        try (Connection connection = pool.borrow()) {
+            for (int i = 1; i <= 3; i++) {
+                connection.prepareStatement("SELECT " + i).close();
+            }
+            assertEquals(1, pool.getStatementCacheEvictions());
+
+            // "SELECT 1" was the eldest and is gone; "SELECT 3" is still cached
+            connection.prepareStatement("SELECT 3").close();
+            assertEquals(1, pool.getStatementCacheHits());
+            connection.prepareStatement("SELECT 1").close();
+            assertEquals(1, pool.getStatementCacheHits());
+            assertEquals(4, pool.getStatementCacheMisses());
+        }
+    }
+
+    @Test
+    void statementLimitsAreRestoredBeforeReuse() throws SQLException {
+        newPool(1, 200, 8);
+        String sql = "SELECT X FROM SYSTEM_RANGE(1, 100)";
+
+        try (Connection connection = pool.borrow()) {
+            int defaultFetchSize;
+            try (PreparedStatement limited = connection.prepareStatement(sql)) {
+                defaultFetchSize = limited.getFetchSize();
+                limited.setMaxRows(3);
+                limited.setFetchSize(2);
+                limited.setQueryTimeout(9);
+                assertEquals(3, countRows(limited));
+            }
+            try (PreparedStatement reused = connection.prepareStatement(sql)) {
+                assertEquals(0, reused.getMaxRows());
+                assertEquals(defaultFetchSize, reused.getFetchSize());
+                assertEquals(0, reused.getQueryTimeout());
+                assertEquals(100, countRows(reused));
+            }
+        }
+        assertEquals(1, pool.getStatementCacheHits());
+    }
+
+    @Test
+    void statementWithIrreversibleSettingIsNotCached() throws SQLException {
+        newPool(1, 200, 8);
+        String sql = "SELECT 1";
+
+        try (Connection connection = pool.borrow()) {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setMaxFieldSize(10);
+            }
+            connection.prepareStatement(sql).close();
+        }
+        assertEquals(0, pool.getStatementCacheHits());
+        assertEquals(2, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    void sessionStateLeftByBorrowerIsResetBeforeReuse() throws SQLException {
+        newPool(1, 200, 8);
+        int defaultIsolation;
+        try (Connection connection = pool.borrow()) {
+            defaultIsolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            connection.setReadOnly(true);
+            try (Statement session = connection.createStatement()) {
+                session.execute("SET LAZY_QUERY_EXECUTION TRUE");
+            }
+            assertTrue(lazyQueryExecution(connection));
+        }
+
+        try (Connection connection = pool.borrow()) {
+            assertEquals(1, pool.getCreatedCount(), "the same physical connection is reused");
+            assertTrue(connection.getAutoCommit());
+            assertEquals(defaultIsolation, connection.getTransactionIsolation());
+            assertFalse(connection.isReadOnly());
+            assertFalse(lazyQueryExecution(connection));
+        }
+    }
+
+    @Test
+    void evictorTopsIdleConnectionsBackUpToMinIdle() throws Exception {
+        String url = "jdbc:h2:mem:pool-test-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        pool = new ConnectionPool(url, "sa", "", 0, 4, 4, 2, 200, 100, 2, 0);
+        assertEquals(0, pool.getIdleCount());
+
+        // The evictor runs once a second at most
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool.getIdleCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(2, pool.getTotalConnections());
+    }
+
+    // H2 does not report this setting in INFORMATION_SCHEMA, so ask the embedded session
+    private static boolean lazyQueryExecution(Connection connection) throws SQLException {
+        JdbcConnection h2 = connection.unwrap(JdbcConnection.class);
+        return ((SessionLocal) h2.getSession()).isLazyQueryExecution();
+    }
+
+    private static int countRows(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,75 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.TestData;
+import com.nfcpay.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailySpendTrackerTest {
+
+    @Test
+    void totalsRollOverAtMidnight() throws Exception {
+        int userId = TestData.createUser(BigDecimal.ZERO);
+        int cardId = TestData.createCard(userId);
+        int merchantId = TestData.createMerchant();
+        LocalDateTime now = LocalDateTime.now();
+        TransactionBatchWriter writer = TransactionBatchWriter.getInstance();
+        assertTrue(writer.insert(payment(userId, cardId, merchantId, "10.00", now)));
+        assertTrue(writer.insert(payment(userId, cardId, merchantId, "7.00", now.plusDays(1))));
+
+        MutableClock clock = new MutableClock();
+        DailySpendTracker tracker = new DailySpendTracker(clock);
+        assertEquals(0, new BigDecimal("10.00").compareTo(tracker.getDailySpent(userId)));
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            tracker.commitAndRecord(conn, payment(userId, cardId, merchantId, "2.00", now));
+            assertEquals(0, new BigDecimal("12.00").compareTo(tracker.getDailySpent(userId)));
+
+            // Tomorrow starts from tomorrow's rollups, and late commits for yesterday are not counted
+            clock.advance(Duration.ofDays(1));
+            assertEquals(0, new BigDecimal("7.00").compareTo(tracker.getDailySpent(userId)));
+            tracker.commitAndRecord(conn, payment(userId, cardId, merchantId, "3.00", now));
+            assertEquals(0, new BigDecimal("7.00").compareTo(tracker.getDailySpent(userId)));
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static Transaction payment(int userId, int cardId, int merchantId, String amount, LocalDateTime createdAt) {
+        Transaction payment = new Transaction(userId, cardId, merchantId, new BigDecimal(amount), "PAYMENT", "SUCCESS", "rollover");
+        payment.setCreatedAt(createdAt);
+        return payment;
+    }
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant instant = Instant.now();
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
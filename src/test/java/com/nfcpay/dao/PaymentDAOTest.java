@@ -0,0 +1,67 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.TestData;
+import com.nfcpay.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentDAOTest {
+    private static final BigDecimal DAILY_LIMIT = new BigDecimal("1000.00");
+
+    @Test
+    void burstLargerThanPoolWithColdCachesCompletes() throws Exception {
+        ConnectionPool pool = DatabaseConnection.getInstance().getPool();
+        int payers = pool.getMaxActive() * 2;
+
+        // New users are not in the status cache and the new merchant is not in the catalog yet
+        List<Transaction> payments = new ArrayList<>();
+        for (int i = 0; i < payers; i++) {
+            int userId = TestData.createUser(new BigDecimal("50.00"));
+            payments.add(new Transaction(userId, TestData.createCard(userId), 0, new BigDecimal("5.00"), "PAYMENT", "SUCCESS", "burst"));
+        }
+        int merchantId = TestData.createMerchant();
+        payments.forEach(payment -> payment.setMerchantId(merchantId));
+        long timeoutsBefore = pool.getBorrowTimeouts();
+
+        PaymentDAO paymentDAO = new PaymentDAO();
+        ExecutorService executor = Executors.newFixedThreadPool(payers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<PaymentDAO.PaymentResult>> results = new ArrayList<>();
+        try {
+            for (Transaction payment : payments) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return paymentDAO.executePayment(payment, DAILY_LIMIT);
+                }));
+            }
+            // refresh() is synchronized: holding the catalog's monitor parks every payer at the cold
+            // merchant lookup at once, the point where a connection held across it would starve the pool
+            MerchantCatalog catalog = MerchantCatalog.getInstance();
+            synchronized (catalog) {
+                start.countDown();
+                Thread.sleep(500);
+            }
+
+            for (Future<PaymentDAO.PaymentResult> result : results) {
+                PaymentDAO.PaymentResult outcome = result.get(20, TimeUnit.SECONDS);
+                assertNotNull(outcome);
+                assertEquals(PaymentDAO.Outcome.APPROVED, outcome.getOutcome());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(timeoutsBefore, pool.getBorrowTimeouts());
+        assertEquals(payers, TestData.count("SELECT COUNT(*) FROM transactions WHERE merchant_id = ?", merchantId));
+    }
+}
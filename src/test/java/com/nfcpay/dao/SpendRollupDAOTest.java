@@ -0,0 +1,88 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.TestData;
+import com.nfcpay.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpendRollupDAOTest {
+
+    @Test
+    void rollupsMatchLedgerWhenRebuiltDuringPayments() throws Exception {
+        int users = 4;
+        int paymentsPerUser = 25;
+        int merchantId = TestData.createMerchant();
+        List<Integer> userIds = new ArrayList<>();
+        List<Integer> cardIds = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            int userId = TestData.createUser(BigDecimal.ZERO);
+            userIds.add(userId);
+            cardIds.add(TestData.createCard(userId));
+        }
+
+        SpendRollupDAO rollups = new SpendRollupDAO();
+        ExecutorService pool = Executors.newFixedThreadPool(users + 1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < users; i++) {
+                int userId = userIds.get(i);
+                int cardId = cardIds.get(i);
+                results.add(pool.submit(() -> {
+                    for (int p = 0; p < paymentsPerUser; p++) {
+                        Transaction payment = new Transaction(userId, cardId, merchantId, new BigDecimal("1.25"), "PAYMENT", "SUCCESS", "rollup race");
+                        assertTrue(TransactionBatchWriter.getInstance().insert(payment));
+                    }
+                    return null;
+                }));
+            }
+            results.add(pool.submit(() -> {
+                for (int r = 0; r < 5; r++) {
+                    assertTrue(rollups.rebuild());
+                }
+                return null;
+            }));
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        BigDecimal expected = new BigDecimal("1.25").multiply(BigDecimal.valueOf(paymentsPerUser));
+        LocalDate today = LocalDate.now();
+        for (int userId : userIds) {
+            assertEquals(0, expected.compareTo(rollups.getMerchantTotals(userId, SpendRollupDAO.DAY, today).get(merchantId)), "DAY rollup of user " + userId);
+            assertEquals(0, expected.compareTo(rollups.getMerchantTotals(userId, SpendRollupDAO.MONTH, today.withDayOfMonth(1)).get(merchantId)), "MONTH rollup of user " + userId);
+            assertEquals(paymentsPerUser, rollups.getMonthPaymentCount(userId, today));
+            assertEquals(0, expected.compareTo(DailySpendTracker.getInstance().getDailySpent(userId)), "daily spend of user " + userId);
+        }
+    }
+
+    @Test
+    void refundsCountInTheirOwnColumnsAndNetOutOfCategoryTotals() throws Exception {
+        int userId = TestData.createUser(BigDecimal.ZERO);
+        int cardId = TestData.createCard(userId);
+        int merchantId = TestData.createMerchant();
+        TransactionBatchWriter writer = TransactionBatchWriter.getInstance();
+        assertTrue(writer.insert(new Transaction(userId, cardId, merchantId, new BigDecimal("20.00"), "PAYMENT", "SUCCESS", "rollup net")));
+        assertTrue(writer.insert(new Transaction(userId, cardId, merchantId, new BigDecimal("5.00"), "REFUND", "SUCCESS", "rollup net")));
+        // Failed rows never count
+        assertTrue(writer.insert(new Transaction(userId, cardId, merchantId, new BigDecimal("9.00"), "PAYMENT", "FAILED", "rollup net")));
+
+        SpendRollupDAO rollups = new SpendRollupDAO();
+        LocalDate today = LocalDate.now();
+        assertEquals(0, new BigDecimal("15.00").compareTo(rollups.getCategoryTotals(userId, SpendRollupDAO.DAY, today).get("General")));
+        assertEquals(1, rollups.getMonthPaymentCount(userId, today));
+        assertEquals(1, TestData.count("SELECT COUNT(*) FROM spend_rollups WHERE user_id = ? AND period_type = 'DAY' AND refund_count = 1 AND payment_count = 1", userId));
+    }
+}
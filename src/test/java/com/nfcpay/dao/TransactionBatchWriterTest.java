@@ -0,0 +1,110 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.TestData;
+import com.nfcpay.metrics.Counter;
+import com.nfcpay.metrics.MetricsRegistry;
+import com.nfcpay.model.Transaction;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionBatchWriterTest {
+    private static int userId;
+    private static int cardId;
+    private static int merchantId;
+
+    @BeforeAll
+    static void createAccounts() throws Exception {
+        userId = TestData.createUser(new BigDecimal("100.00"));
+        cardId = TestData.createCard(userId);
+        merchantId = TestData.createMerchant();
+        // Claims the node id lease now; new Transaction(...) must not need a connection later
+        TransactionReferenceGenerator.getInstance();
+    }
+
+    private static Transaction refund(int cardId, String description) {
+        return new Transaction(userId, cardId, merchantId, new BigDecimal("1.00"), "REFUND", "SUCCESS", description);
+    }
+
+    private static CompletableFuture<Boolean> insertAsync(Transaction transaction) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return TransactionBatchWriter.getInstance().insert(transaction);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void insertSetsGeneratedId() throws Exception {
+        Transaction transaction = refund(cardId, "batch single");
+
+        assertTrue(TransactionBatchWriter.getInstance().insert(transaction));
+        assertTrue(transaction.getTransactionId() > 0);
+        assertEquals(1, TestData.count("SELECT COUNT(*) FROM transactions WHERE transaction_id = ? AND reference_code = ?",
+            transaction.getTransactionId(), transaction.getReferenceCode()));
+    }
+
+    @Test
+    void rejectedRowFailsAloneAndTheRestOfTheBatchCommits() throws Exception {
+        Counter unitFailures = MetricsRegistry.counter("transactionBatch.unitFailures");
+        long failuresBefore = unitFailures.getCount();
+        TransactionBatchWriter.getInstance();
+
+        // Hold every pooled connection so the writer stalls on its first flush while the rest queue up
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        List<Connection> held = new ArrayList<>();
+        List<Transaction> good = new ArrayList<>();
+        List<CompletableFuture<Boolean>> goodResults = new ArrayList<>();
+        Transaction bad;
+        CompletableFuture<Boolean> badResult;
+        try {
+            for (int i = 0; i < db.getPool().getMaxActive(); i++) {
+                held.add(db.getConnection());
+            }
+            Transaction first = refund(cardId, "batch partial 0");
+            good.add(first);
+            goodResults.add(insertAsync(first));
+            Thread.sleep(200);
+
+            for (int i = 1; i <= 10; i++) {
+                Transaction transaction = refund(cardId, "batch partial " + i);
+                good.add(transaction);
+                goodResults.add(insertAsync(transaction));
+            }
+            // No such card: the foreign key rejects this row, which is rolled back to its savepoint
+            bad = refund(Integer.MAX_VALUE, "batch partial bad");
+            badResult = insertAsync(bad);
+            Thread.sleep(200);
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+
+        assertFalse(badResult.get(10, TimeUnit.SECONDS));
+        assertEquals(0, bad.getTransactionId(), "a rolled-back row must not keep its id");
+
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < good.size(); i++) {
+            assertTrue(goodResults.get(i).get(10, TimeUnit.SECONDS), "row " + i);
+            assertTrue(ids.add(good.get(i).getTransactionId()), "duplicate id for row " + i);
+        }
+        assertFalse(ids.contains(0));
+
+        assertEquals(good.size(), TestData.count("SELECT COUNT(*) FROM transactions WHERE description LIKE 'batch partial %'"));
+        assertEquals(0, TestData.count("SELECT COUNT(*) FROM transactions WHERE reference_code = ?", bad.getReferenceCode()));
+        assertEquals(1, unitFailures.getCount() - failuresBefore, "only the rejected row is rolled back");
+    }
+}
@@ -0,0 +1,122 @@
+package com.nfcpay.dao;
+
+import com.nfcpay.TestData;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionReferenceGeneratorTest {
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    @Test
+    void generatorsSharingTheDatabaseNeverIssueTheSameReference() throws Exception {
+        List<TransactionReferenceGenerator> generators = List.of(
+            new TransactionReferenceGenerator(), new TransactionReferenceGenerator(), new TransactionReferenceGenerator());
+        Set<Long> nodes = new HashSet<>();
+        for (TransactionReferenceGenerator generator : generators) {
+            assertTrue(nodes.add(generator.getNodeId()), "node id " + generator.getNodeId() + " leased twice");
+        }
+
+        int perThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(generators.size() * 2);
+        List<Future<List<String>>> results = new ArrayList<>();
+        try {
+            for (TransactionReferenceGenerator generator : generators) {
+                for (int t = 0; t < 2; t++) {
+                    results.add(pool.submit(() -> {
+                        List<String> references = new ArrayList<>(perThread);
+                        for (int i = 0; i < perThread; i++) {
+                            references.add(generator.nextReference());
+                        }
+                        return references;
+                    }));
+                }
+            }
+
+            Set<String> seen = new HashSet<>();
+            for (Future<List<String>> result : results) {
+                String previous = "";
+                for (String reference : result.get(30, TimeUnit.SECONDS)) {
+                    assertTrue(reference.matches("TXN[0-9A-Z]{13}"), reference);
+                    assertTrue(reference.compareTo(previous) > 0, "not increasing within a thread: " + reference);
+                    assertTrue(seen.add(reference), "duplicate " + reference);
+                    previous = reference;
+                }
+            }
+            assertEquals(generators.size() * 2 * perThread, seen.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() throws Exception {
+        TransactionReferenceGenerator stale = new TransactionReferenceGenerator();
+        long nodeId = stale.getNodeId();
+        assertEquals(1, TestData.count("SELECT COUNT(*) FROM node_leases WHERE node_id = ?", nodeId));
+
+        // As if the owning JVM had stopped heartbeating long ago
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "UPDATE node_leases SET heartbeat = TIMESTAMP '1970-01-01 00:00:00' WHERE node_id = ?")) {
+            pstmt.setLong(1, nodeId);
+            pstmt.executeUpdate();
+        }
+
+        assertEquals(nodeId, new TransactionReferenceGenerator().getNodeId());
+    }
+
+    @Test
+    void successorContinuesAfterReleasedStampThatRanAheadOfTheClock() throws Exception {
+        TransactionReferenceGenerator released = new TransactionReferenceGenerator();
+        released.nextId();
+        released.releaseLease();
+        assertEquals(1, TestData.count("SELECT COUNT(*) FROM node_leases WHERE node_id = ? AND last_stamp > 0", released.getNodeId()));
+
+        // As if every released holder had issued ids an hour ahead of the wall clock
+        long aheadStamp = (System.currentTimeMillis() + 3_600_000 - EPOCH_MILLIS) << 12;
+        TestData.execute("UPDATE node_leases SET last_stamp = ? WHERE heartbeat < TIMESTAMP '2000-01-01 00:00:00'", aheadStamp);
+
+        TransactionReferenceGenerator successor = new TransactionReferenceGenerator();
+        long id = successor.nextId();
+        long stamp = (id >>> 22) << 12 | (id & 0xFFF);
+        assertTrue(stamp > aheadStamp, "successor reissued a stamp its predecessor may have used");
+    }
+
+    @Test
+    void configuredNodeIdOutOfRangeIsRejected() {
+        assertThrows(IllegalStateException.class, () -> withNodeId("1024", TransactionReferenceGenerator::new));
+        assertThrows(IllegalStateException.class, () -> withNodeId("-1", TransactionReferenceGenerator::new));
+        assertThrows(IllegalStateException.class, () -> withNodeId("node-7", TransactionReferenceGenerator::new));
+    }
+
+    @Test
+    void configuredNodeIdIsUsedAsIs() {
+        TransactionReferenceGenerator generator = withNodeId("1023", TransactionReferenceGenerator::new);
+
+        assertEquals(1023, generator.getNodeId());
+        assertNotNull(generator.nextReference());
+    }
+
+    private static <T> T withNodeId(String nodeId, Supplier<T> create) {
+        System.setProperty(TransactionReferenceGenerator.NODE_ID_PROPERTY, nodeId);
+        try {
+            return create.get();
+        } finally {
+            System.clearProperty(TransactionReferenceGenerator.NODE_ID_PROPERTY);
+        }
+    }
+}
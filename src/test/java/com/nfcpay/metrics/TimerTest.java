@@ -0,0 +1,29 @@
+package com.nfcpay.metrics;
+
+import com.nfcpay.exception.DatabaseException;
+import com.nfcpay.exception.PaymentException;
+import com.nfcpay.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerTest {
+
+    @Test
+    void expectedOutcomesAreTimedButNotCountedAsErrors() {
+        Timer timer = new Timer("test.expectedOutcomes");
+
+        assertThrows(ValidationException.class, () -> timer.time(() -> { throw new ValidationException("Invalid amount"); }));
+        assertThrows(PaymentException.class, () -> timer.time(() -> {
+            throw new PaymentException("INSUFFICIENT_FUNDS", "Insufficient funds", "Insufficient funds");
+        }));
+        assertEquals(0, timer.getErrorCount());
+
+        assertThrows(DatabaseException.class, () -> timer.time(() -> {
+            throw new DatabaseException("PAYMENT_FAILED", "Payment processing failed", "Try again");
+        }));
+        assertThrows(IllegalStateException.class, () -> timer.time(() -> { throw new IllegalStateException("bug"); }));
+        assertEquals(2, timer.getErrorCount());
+        assertEquals(4, timer.getHistogram().getCount());
+    }
+}
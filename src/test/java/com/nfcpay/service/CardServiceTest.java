@@ -0,0 +1,48 @@
+package com.nfcpay.service;
+
+import com.nfcpay.TestData;
+import com.nfcpay.dao.CardUidAllocator;
+import com.nfcpay.model.Card;
+import com.nfcpay.model.enums.CardType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardServiceTest {
+    private final CardService cardService = new CardService();
+
+    @Test
+    void uidTakenAfterStartupSnapshotIsSkippedOnInsert() throws Exception {
+        // Peek at the allocator's position, staying clear of a block boundary
+        CardUidAllocator allocator = CardUidAllocator.getInstance();
+        String current;
+        do {
+            current = allocator.allocate();
+        } while (current.substring(12, 15).equals("999"));
+        String taken = nextUid(current);
+
+        // Another process's card holds the UID the allocator will hand out next
+        int otherUserId = TestData.createUser(BigDecimal.ZERO);
+        TestData.execute("INSERT INTO cards (user_id, card_uid, card_name, card_type) VALUES (?, ?, 'Squatter', 'VIRTUAL')",
+            otherUserId, taken);
+
+        Card card = cardService.addCard(TestData.createUser(BigDecimal.ZERO), "Daily Card", CardType.VIRTUAL, BigDecimal.ZERO);
+        assertNotEquals(taken, card.getCardUid());
+        assertTrue(CardUidAllocator.isValidLuhn(card.getCardUid()), card.getCardUid());
+        assertEquals(1, TestData.count("SELECT COUNT(*) FROM cards WHERE card_uid = ?", taken));
+    }
+
+    // UID for the serial after the given UID's
+    private static String nextUid(String uid) {
+        long serial = Long.parseLong(uid.substring(1, 15)) + 1;
+        String payload = uid.charAt(0) + String.format("%014d", serial);
+        for (int digit = 0; digit <= 9; digit++) {
+            if (CardUidAllocator.isValidLuhn(payload + digit)) {
+                return payload + digit;
+            }
+        }
+        throw new AssertionError("no check digit for " + payload);
+    }
+}
@@ -0,0 +1,80 @@
+package com.nfcpay.service;
+
+import com.nfcpay.TestData;
+import com.nfcpay.model.Transaction;
+import com.nfcpay.model.enums.TransactionStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentServiceTest {
+    private final PaymentService paymentService = new PaymentService();
+    private int userId;
+    private int cardId;
+    private int merchantId;
+
+    @BeforeEach
+    void createAccounts() throws Exception {
+        userId = TestData.createUser(new BigDecimal("100.00"));
+        cardId = TestData.createCard(userId);
+        merchantId = TestData.createMerchant();
+    }
+
+    @Test
+    void concurrentSubmissionsOfOneKeyDebitOnce() throws Exception {
+        int submissions = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(submissions);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Transaction>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < submissions; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return paymentService.processPayment(userId, cardId, merchantId, new BigDecimal("10.00"), "Coffee", "tap-1");
+                }));
+            }
+            start.countDown();
+
+            Transaction first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Transaction> result : results) {
+                Transaction transaction = result.get(10, TimeUnit.SECONDS);
+                assertEquals(first.getTransactionId(), transaction.getTransactionId());
+                assertEquals(first.getReferenceCode(), transaction.getReferenceCode());
+                assertEquals(TransactionStatus.SUCCESS, transaction.getStatus());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(0, new BigDecimal("90.00").compareTo(TestData.walletBalance(userId)));
+        assertEquals(1, TestData.count("SELECT COUNT(*) FROM transactions WHERE user_id = ? AND transaction_type = 'PAYMENT'", userId));
+    }
+
+    @Test
+    void resubmittedKeyReplaysOriginalPayment() throws Exception {
+        Transaction original = paymentService.processPayment(userId, cardId, merchantId, new BigDecimal("10.00"), "Coffee", "tap-2");
+        Transaction replay = paymentService.processPayment(userId, cardId, merchantId, new BigDecimal("10.00"), "Coffee", "tap-2");
+
+        assertEquals(original.getTransactionId(), replay.getTransactionId());
+        assertEquals(0, new BigDecimal("90.00").compareTo(TestData.walletBalance(userId)));
+    }
+
+    @Test
+    void distinctKeysEachDebit() throws Exception {
+        Transaction first = paymentService.processPayment(userId, cardId, merchantId, new BigDecimal("10.00"), "Coffee", "tap-3");
+        Transaction second = paymentService.processPayment(userId, cardId, merchantId, new BigDecimal("10.00"), "Coffee", "tap-4");
+
+        assertNotEquals(first.getTransactionId(), second.getTransactionId());
+        assertEquals(0, new BigDecimal("80.00").compareTo(TestData.walletBalance(userId)));
+    }
+}
@@ -0,0 +1,50 @@
+package com.nfcpay.service;
+
+import com.nfcpay.exception.NFCPayException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceExecutorTest {
+
+    @Test
+    void fullPlatformQueueFailsWithServiceBusy() throws Exception {
+        ServiceExecutor executor = new ServiceExecutor(1);
+        int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> accepted = new ArrayList<>();
+        try {
+            // Occupy every pool thread, then fill the one queue slot
+            for (int i = 0; i <= threads; i++) {
+                accepted.add(executor.submit(() -> awaitQuietly(release)));
+            }
+
+            CompletableFuture<Boolean> overflow = executor.submit(() -> true);
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> overflow.get(5, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof NFCPayException);
+            assertEquals("SERVICE_BUSY", ((NFCPayException) failure.getCause()).getErrorCode());
+        } finally {
+            release.countDown();
+        }
+
+        for (CompletableFuture<Boolean> future : accepted) {
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.nfcpay.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedTtlCacheTest {
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedBeyondMaxEntries() {
+        BoundedTtlCache<Integer, String> cache = new BoundedTtlCache<>(2, 60_000);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertEquals("one", cache.get(1));
+        cache.put(3, "three");
+
+        assertNull(cache.get(2), "2 was the least recently used");
+        assertEquals("one", cache.get(1));
+        assertEquals("three", cache.get(3));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void entryExpiresAfterTtlEvenWhenUpdated() throws InterruptedException {
+        BoundedTtlCache<Integer, String> cache = new BoundedTtlCache<>(10, 50);
+        cache.put(1, "one");
+        cache.update(1, value -> value + "!");
+        assertEquals("one!", cache.get(1));
+
+        Thread.sleep(100);
+        cache.update(1, value -> value + "!");
+        assertNull(cache.get(1));
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void loadThatRacedAWriteIsNotCached() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 60_000);
+        long before = cache.generation("key");
+        cache.invalidate("key");
+        cache.putIfUnchanged("key", "stale", before);
+        assertNull(cache.get("key"));
+
+        long current = cache.generation("key");
+        cache.putIfUnchanged("key", "fresh", current);
+        assertEquals("fresh", cache.get("key"));
+
+        cache.update("key", value -> "written");
+        cache.putIfUnchanged("key", "stale", current);
+        assertEquals("written", cache.get("key"));
+    }
+
+    @Test
+    void updateOfMissingKeyCachesNothing() {
+        BoundedTtlCache<Integer, String> cache = new BoundedTtlCache<>(10, 60_000);
+        cache.update(1, value -> "never");
+        assertNull(cache.get(1));
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.0, cache.getHitRate());
+    }
+}